@@ -0,0 +1,59 @@
+package org.poo.checker;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.io.File;
+import java.io.IOException;
+
+/**
+ * Compares an output file with its reference by streaming them through a JsonComparator
+ * and by reading both into trees and comparing the trees. The trees are not rounded, so
+ * the second time is a lower bound of the former tree comparison.
+ */
+public final class JsonComparatorBenchmark {
+    private static final double NANOS_PER_MILLI = 1_000_000.0;
+
+    private JsonComparatorBenchmark() {
+        // Utility class
+    }
+
+    /**
+     * Runs the benchmark.
+     *
+     * @param args the output file, the reference file and the number of rounds
+     * @throws IOException if a file cannot be read
+     */
+    public static void main(final String[] args) throws IOException {
+        if (args.length != 3) {
+            System.err.println("Usage: JsonComparatorBenchmark <output> <ref> <rounds>");
+            return;
+        }
+
+        File output = new File(args[0]);
+        File ref = new File(args[1]);
+        int rounds = Integer.parseInt(args[2]);
+        ObjectMapper mapper = new ObjectMapper();
+
+        long streamTime = 0;
+        long treeTime = 0;
+        String difference = null;
+        boolean treesEqual = false;
+        for (int round = 0; round < rounds; round++) {
+            long start = System.nanoTime();
+            difference = JsonComparator.firstDifference(output, ref);
+            streamTime += System.nanoTime() - start;
+
+            start = System.nanoTime();
+            JsonNode outputTree = mapper.readTree(output);
+            JsonNode refTree = mapper.readTree(ref);
+            treesEqual = outputTree.equals(refTree);
+            treeTime += System.nanoTime() - start;
+        }
+
+        System.out.printf("%d + %d bytes: streaming %.1f ms (first difference %s), "
+                        + "trees %.1f ms (equal %b)%n", output.length(), ref.length(),
+                streamTime / NANOS_PER_MILLI / rounds, difference,
+                treeTime / NANOS_PER_MILLI / rounds, treesEqual);
+    }
+}
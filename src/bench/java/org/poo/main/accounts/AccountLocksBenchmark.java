@@ -0,0 +1,87 @@
+package org.poo.main.accounts;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Measures the throughput of transfers between random accounts from many threads, through
+ * the striped locks of AccountLocks and through a single lock held for every transfer.
+ */
+public final class AccountLocksBenchmark {
+    private static final double NANOS_PER_SECOND = 1_000_000_000.0;
+    private static final double INITIAL_BALANCE = 1_000_000.0;
+    private static final double AMOUNT = 1.0;
+
+    private AccountLocksBenchmark() {
+        // Utility class
+    }
+
+    /**
+     * Runs the benchmark.
+     *
+     * @param args the number of threads, of accounts and of transfers per thread
+     * @throws InterruptedException if interrupted while waiting for the threads
+     */
+    public static void main(final String[] args) throws InterruptedException {
+        if (args.length != 3) {
+            System.err.println("Usage: AccountLocksBenchmark <threads> <accounts> "
+                    + "<transfers per thread>");
+            return;
+        }
+
+        int threadCount = Integer.parseInt(args[0]);
+        int accountCount = Integer.parseInt(args[1]);
+        int transfers = Integer.parseInt(args[2]);
+
+        Account[] accounts = new Account[accountCount];
+        for (int i = 0; i < accountCount; i++) {
+            accounts[i] = new ClassicAccount("RON", "user" + i + "@bank.ro", "RO" + i);
+            accounts[i].deposit(INITIAL_BALANCE);
+        }
+
+        ReentrantLock globalLock = new ReentrantLock();
+        long striped = run(threadCount, () -> {
+            ThreadLocalRandom random = ThreadLocalRandom.current();
+            for (int i = 0; i < transfers; i++) {
+                AccountLocks.transfer(accounts[random.nextInt(accountCount)], AMOUNT,
+                        accounts[random.nextInt(accountCount)], AMOUNT);
+            }
+        });
+        long global = run(threadCount, () -> {
+            ThreadLocalRandom random = ThreadLocalRandom.current();
+            for (int i = 0; i < transfers; i++) {
+                Account sender = accounts[random.nextInt(accountCount)];
+                Account receiver = accounts[random.nextInt(accountCount)];
+                globalLock.lock();
+                try {
+                    if (sender.tryDebit(AMOUNT)) {
+                        receiver.deposit(AMOUNT);
+                    }
+                } finally {
+                    globalLock.unlock();
+                }
+            }
+        });
+
+        double total = (double) threadCount * transfers;
+        System.out.printf("%d threads x %d transfers over %d accounts (%d cores): "
+                        + "striped locks %.0f transfers/s, single lock %.0f transfers/s%n",
+                threadCount, transfers, accountCount,
+                Runtime.getRuntime().availableProcessors(), total * NANOS_PER_SECOND / striped,
+                total * NANOS_PER_SECOND / global);
+    }
+
+    private static long run(final int threadCount, final Runnable work)
+            throws InterruptedException {
+        Thread[] threads = new Thread[threadCount];
+        long start = System.nanoTime();
+        for (int t = 0; t < threadCount; t++) {
+            threads[t] = new Thread(work);
+            threads[t].start();
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        return System.nanoTime() - start;
+    }
+}
@@ -0,0 +1,78 @@
+package org.poo.main.accounts;
+
+import org.poo.main.user.User;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Compares finding the savings accounts by scanning every account of every user with
+ * selecting them from the index of an AccountRegistry, when they are one account in
+ * a hundred.
+ */
+public final class AccountRegistryBenchmark {
+    private static final double NANOS_PER_MILLI = 1_000_000.0;
+    private static final int ACCOUNTS_PER_USER = 10;
+    private static final int SAVINGS_EVERY = 100;
+    private static final int ROUNDS = 5;
+
+    private AccountRegistryBenchmark() {
+        // Utility class
+    }
+
+    /**
+     * Runs the benchmark.
+     *
+     * @param args the number of accounts
+     */
+    public static void main(final String[] args) {
+        if (args.length != 1) {
+            System.err.println("Usage: AccountRegistryBenchmark <accounts>");
+            return;
+        }
+
+        int accounts = Integer.parseInt(args[0]);
+        AccountRegistry registry = new AccountRegistry();
+        List<User> users = new ArrayList<>();
+        User user = null;
+        for (int i = 0; i < accounts; i++) {
+            if (i % ACCOUNTS_PER_USER == 0) {
+                user = new User("First", "Last", "user" + i + "@bank.ro", "1990-01-01",
+                        "engineer");
+                users.add(user);
+            }
+            String iban = "RO" + i;
+            Account account = i % SAVINGS_EVERY == 0
+                    ? new SavingsAccount("RON", user.getEmail(), 0.01, iban)
+                    : new ClassicAccount("RON", user.getEmail(), iban);
+            user.addAccount(account);
+            registry.register(account, user);
+        }
+
+        long scanTime = 0;
+        long indexTime = 0;
+        int scanned = 0;
+        int selected = 0;
+        for (int round = 0; round < ROUNDS; round++) {
+            long start = System.nanoTime();
+            scanned = 0;
+            for (User holder : users) {
+                for (Account account : holder.getAccounts()) {
+                    if (account.isSavingsAccount()) {
+                        scanned++;
+                    }
+                }
+            }
+            scanTime += System.nanoTime() - start;
+
+            start = System.nanoTime();
+            selected = registry.select("savings", null, null).size();
+            indexTime += System.nanoTime() - start;
+        }
+
+        System.out.printf("%d accounts, %d savings: scan %.1f ms, index %.2f ms "
+                        + "(%d found)%n", accounts, scanned,
+                scanTime / NANOS_PER_MILLI / ROUNDS, indexTime / NANOS_PER_MILLI / ROUNDS,
+                selected);
+    }
+}
@@ -0,0 +1,73 @@
+package org.poo.main.accounts;
+
+import org.poo.utils.SymbolTable;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Measures how fast IBANs are given out by the compatible allocator, on one thread,
+ * and by a sharded allocator, on a number of threads drawing them for different users.
+ */
+public final class IdAllocatorBenchmark {
+    private static final double NANOS_PER_MILLI = 1_000_000.0;
+    private static final double NANOS_PER_SECOND = 1_000_000_000.0;
+    private static final long SEED = 7;
+    private static final int BLOCK_SIZE = 256;
+    private static final int USERS_PER_THREAD = 64;
+
+    private IdAllocatorBenchmark() {
+        // Utility class
+    }
+
+    /**
+     * Runs the benchmark.
+     *
+     * @param args the number of IBANs and the number of threads
+     * @throws InterruptedException if interrupted while waiting for the threads
+     */
+    public static void main(final String[] args) throws InterruptedException {
+        if (args.length != 2) {
+            System.err.println("Usage: IdAllocatorBenchmark <ibans> <threads>");
+            return;
+        }
+
+        int ibans = Integer.parseInt(args[0]);
+        int threads = Integer.parseInt(args[1]);
+
+        IdAllocator compatible = IdAllocator.compatible(new SymbolTable());
+        long start = System.nanoTime();
+        for (int i = 0; i < ibans; i++) {
+            compatible.nextIban("user@bank.ro");
+        }
+        report("compatible, 1 thread", ibans, System.nanoTime() - start, 0);
+
+        IdAllocator sharded = IdAllocator.sharded(SEED, threads * 2, BLOCK_SIZE,
+                new AccountRegistry());
+        int perThread = ibans / threads;
+        List<Thread> workers = new ArrayList<>();
+        for (int t = 0; t < threads; t++) {
+            int thread = t;
+            workers.add(new Thread(() -> {
+                for (int i = 0; i < perThread; i++) {
+                    sharded.nextIban("user" + thread + "-" + i % USERS_PER_THREAD + "@bank.ro");
+                }
+            }));
+        }
+        start = System.nanoTime();
+        for (Thread worker : workers) {
+            worker.start();
+        }
+        for (Thread worker : workers) {
+            worker.join();
+        }
+        report("sharded, " + threads + " threads", perThread * threads,
+                System.nanoTime() - start, sharded.getCollisions());
+    }
+
+    private static void report(final String mode, final long ibans, final long nanos,
+                               final long collisions) {
+        System.out.printf("%s: %d IBANs in %.1f ms -> %.0f IBANs/s, %d collisions%n", mode,
+                ibans, nanos / NANOS_PER_MILLI, ibans * NANOS_PER_SECOND / nanos, collisions);
+    }
+}
@@ -0,0 +1,103 @@
+package org.poo.main.bank;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import org.poo.fileio.CommandInput;
+import org.poo.main.accounts.Account;
+import org.poo.main.user.User;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Compares adding the interest to every savings account with one addInterest command
+ * per account and with a single addInterestToAll command, on two banks holding the
+ * same accounts. Checks that both end with the same balances.
+ */
+public final class BulkInterestBenchmark {
+    private static final double NANOS_PER_MILLI = 1_000_000.0;
+    private static final double INTEREST_RATE = 0.05;
+    private static final double DEPOSIT = 1000.0;
+    private static final int ACCOUNTS_PER_USER = 4;
+
+    private BulkInterestBenchmark() {
+        // Utility class
+    }
+
+    /**
+     * Runs the benchmark.
+     *
+     * @param args the number of users, each holding four savings accounts
+     */
+    public static void main(final String[] args) {
+        if (args.length != 1) {
+            System.err.println("Usage: BulkInterestBenchmark <users>");
+            return;
+        }
+
+        int userCount = Integer.parseInt(args[0]);
+        ObjectMapper objectMapper = new ObjectMapper();
+        BankSystem[] banks = new BankSystem[2];
+        List<List<String>> ibans = new ArrayList<>();
+        for (int b = 0; b < banks.length; b++) {
+            banks[b] = new BankSystem();
+            List<String> bankIbans = new ArrayList<>();
+            for (int i = 0; i < userCount; i++) {
+                String email = "user" + i + "@bank.ro";
+                banks[b].addUser(new User("First" + i, "Last" + i, email, "1990-01-01",
+                        "engineer"));
+                for (int a = 0; a < ACCOUNTS_PER_USER; a++) {
+                    CommandInput addAccount = new CommandInput();
+                    addAccount.setCommand("addAccount");
+                    addAccount.setEmail(email);
+                    addAccount.setAccountType("savings");
+                    addAccount.setCurrency("RON");
+                    addAccount.setInterestRate(INTEREST_RATE);
+                    addAccount.setTimestamp(1);
+                    banks[b].process(addAccount, objectMapper.createArrayNode());
+                }
+            }
+            for (User user : banks[b].getUsers()) {
+                for (Account account : user.getAccounts()) {
+                    account.deposit(DEPOSIT);
+                    bankIbans.add(account.getIban());
+                }
+            }
+            ibans.add(bankIbans);
+            banks[b].finish();
+        }
+
+        ArrayNode output = objectMapper.createArrayNode();
+        long start = System.nanoTime();
+        for (String iban : ibans.get(0)) {
+            CommandInput addInterest = new CommandInput();
+            addInterest.setCommand("addInterest");
+            addInterest.setAccount(iban);
+            addInterest.setTimestamp(2);
+            banks[0].process(addInterest, output);
+        }
+        long singleTime = System.nanoTime() - start;
+
+        start = System.nanoTime();
+        CommandInput addInterestToAll = new CommandInput();
+        addInterestToAll.setCommand("addInterestToAll");
+        addInterestToAll.setTimestamp(2);
+        banks[1].process(addInterestToAll, output);
+        long bulkTime = System.nanoTime() - start;
+
+        double[] totals = new double[banks.length];
+        for (int b = 0; b < banks.length; b++) {
+            for (User user : banks[b].getUsers()) {
+                for (Account account : user.getAccounts()) {
+                    totals[b] += account.getBalance();
+                }
+            }
+            banks[b].finish();
+        }
+
+        System.out.printf("%d savings accounts: addInterest per account %.1f ms, "
+                        + "addInterestToAll %.1f ms, same balances: %b%n",
+                ibans.get(0).size(), singleTime / NANOS_PER_MILLI, bulkTime / NANOS_PER_MILLI,
+                totals[0] == totals[1]);
+    }
+}
@@ -0,0 +1,132 @@
+package org.poo.main.bank;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import org.poo.fileio.CommandInput;
+import org.poo.main.accounts.Account;
+import org.poo.main.accounts.ClassicAccount;
+import org.poo.main.commerciant.Commerciant;
+import org.poo.main.user.User;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Compares processCommands with processCommandsInParallel on two banks holding the same
+ * users, each with one account and one card, running the same random stream of
+ * addFunds, payOnline and sendMoney commands, the transfers going between neighbouring
+ * accounts. A setAlias, a barrier, ends every window. Checks that both outputs are equal.
+ */
+public final class ParallelExecutionBenchmark {
+    private static final double NANOS_PER_MILLI = 1_000_000.0;
+    private static final double INITIAL_DEPOSIT = 1_000_000.0;
+    private static final double AMOUNT = 5.0;
+    private static final int COMMAND_KINDS = 3;
+    private static final long SEED = 42;
+
+    private ParallelExecutionBenchmark() {
+        // Utility class
+    }
+
+    /**
+     * Runs the benchmark.
+     *
+     * @param args the number of users, of commands, of commands per window and of
+     *             worker threads
+     */
+    public static void main(final String[] args) {
+        if (args.length != 4) {
+            System.err.println("Usage: ParallelExecutionBenchmark <users> <commands> "
+                    + "<commands per window> <threads>");
+            return;
+        }
+
+        int userCount = Integer.parseInt(args[0]);
+        int commandCount = Integer.parseInt(args[1]);
+        int window = Integer.parseInt(args[2]);
+        int threads = Integer.parseInt(args[3]);
+        ObjectMapper objectMapper = new ObjectMapper();
+
+        BankSystem[] banks = new BankSystem[2];
+        List<Account> accounts = new ArrayList<>();
+        List<String> cards = new ArrayList<>();
+        for (int b = 0; b < banks.length; b++) {
+            banks[b] = new BankSystem();
+            banks[b].addCommerciant(new Commerciant("Shop", 1, "RO00SHOP", "Food",
+                    "nrOfTransactions"));
+            for (int i = 0; i < userCount; i++) {
+                String email = "user" + i + "@bank.ro";
+                User user = new User("First" + i, "Last" + i, email, "1990-01-01",
+                        "engineer");
+                Account account = new ClassicAccount("RON", email, "RO" + i);
+                account.deposit(INITIAL_DEPOSIT);
+                user.addAccount(account);
+                banks[b].addUser(user);
+                banks[b].getAccountRegistry().register(account, user);
+
+                CommandInput createCard = new CommandInput();
+                createCard.setCommand("createCard");
+                createCard.setEmail(email);
+                createCard.setAccount(account.getIban());
+                createCard.setTimestamp(1);
+                banks[b].process(createCard, objectMapper.createArrayNode());
+                if (b == 0) {
+                    accounts.add(account);
+                    cards.add(account.getCards().get(0).getCardNumber());
+                }
+            }
+            banks[b].finish();
+        }
+
+        CommandInput[] commands = new CommandInput[commandCount];
+        Random random = new Random(SEED);
+        for (int i = 0; i < commandCount; i++) {
+            int user = random.nextInt(userCount);
+            Account account = accounts.get(user);
+            CommandInput command = new CommandInput();
+            command.setTimestamp(2 + i);
+            command.setEmail(account.getOwnerEmail());
+            command.setAccount(account.getIban());
+            command.setAmount(AMOUNT);
+            if ((i + 1) % window == 0) {
+                command.setCommand("setAlias");
+                command.setAlias("alias" + i);
+            } else {
+                switch (random.nextInt(COMMAND_KINDS)) {
+                    case 0 -> command.setCommand("addFunds");
+                    case 1 -> {
+                        command.setCommand("payOnline");
+                        command.setAccount(null);
+                        command.setCardNumber(cards.get(user));
+                        command.setCurrency("RON");
+                        command.setCommerciant("Shop");
+                    }
+                    default -> {
+                        command.setCommand("sendMoney");
+                        command.setReceiver(accounts.get((user ^ 1) % userCount).getIban());
+                        command.setDescription("transfer");
+                    }
+                }
+            }
+            commands[i] = command;
+        }
+
+        ArrayNode sequentialOutput = objectMapper.createArrayNode();
+        long start = System.nanoTime();
+        banks[0].processCommands(commands, sequentialOutput);
+        long sequentialTime = System.nanoTime() - start;
+
+        ArrayNode parallelOutput = objectMapper.createArrayNode();
+        start = System.nanoTime();
+        banks[1].processCommandsInParallel(commands, parallelOutput, threads);
+        long parallelTime = System.nanoTime() - start;
+
+        System.out.printf("%d users, %d commands in windows of %d: sequential %.1f ms, "
+                        + "parallel on %d threads %.1f ms (%d available cores), "
+                        + "same output: %b%n", userCount, commandCount, window,
+                sequentialTime / NANOS_PER_MILLI, threads, parallelTime / NANOS_PER_MILLI,
+                Runtime.getRuntime().availableProcessors(),
+                sequentialOutput.equals(parallelOutput));
+    }
+}
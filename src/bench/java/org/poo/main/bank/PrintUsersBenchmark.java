@@ -0,0 +1,123 @@
+package org.poo.main.bank;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import org.poo.fileio.CommandInput;
+import org.poo.main.accounts.Account;
+import org.poo.main.accounts.ClassicAccount;
+import org.poo.main.user.User;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Measures a bank with many users running a printUsers every few commands, the other
+ * commands adding funds to random accounts, each printUsers written out like Main does.
+ * Only the users changed since the previous printUsers are rendered again.
+ */
+public final class PrintUsersBenchmark {
+    private static final double NANOS_PER_MILLI = 1_000_000.0;
+    private static final double DEPOSIT = 10.0;
+    private static final int PRINTS = 5;
+    private static final long SEED = 42;
+
+    private PrintUsersBenchmark() {
+        // Utility class
+    }
+
+    /**
+     * Runs the benchmark.
+     *
+     * @param args the number of users, each holding one account, and the number of
+     *             commands between two printUsers
+     * @throws IOException if the output cannot be written
+     */
+    public static void main(final String[] args) throws IOException {
+        if (args.length != 2) {
+            System.err.println("Usage: PrintUsersBenchmark <users> <commands per print>");
+            return;
+        }
+
+        int userCount = Integer.parseInt(args[0]);
+        int commandsPerPrint = Integer.parseInt(args[1]);
+        ObjectMapper objectMapper = new ObjectMapper();
+        BankSystem bank = new BankSystem();
+        // The accounts are opened directly, addAccount looks the users up one by one
+        List<User> users = new ArrayList<>();
+        for (int i = 0; i < userCount; i++) {
+            String email = "user" + i + "@bank.ro";
+            User user = new User("First" + i, "Last" + i, email, "1990-01-01", "engineer");
+            Account account = new ClassicAccount("RON", email, "RO" + i);
+            user.addAccount(account);
+            bank.addUser(user);
+            bank.getAccountRegistry().register(account, user);
+            users.add(user);
+        }
+
+        ObjectWriter writer = objectMapper.writerWithDefaultPrettyPrinter();
+        CountingStream out = new CountingStream();
+        Random random = new Random(SEED);
+        int timestamp = 2;
+        long firstTime = 0;
+        long nextTime = 0;
+        for (int print = 0; print < PRINTS; print++) {
+            for (int i = 0; i < commandsPerPrint; i++) {
+                User user = users.get(random.nextInt(users.size()));
+                Account account = user.getAccounts().get(0);
+                CommandInput addFunds = new CommandInput();
+                addFunds.setCommand("addFunds");
+                addFunds.setEmail(user.getEmail());
+                addFunds.setAccount(account.getIban());
+                addFunds.setAmount(DEPOSIT);
+                addFunds.setTimestamp(timestamp++);
+                bank.process(addFunds, objectMapper.createArrayNode());
+            }
+
+            long start = System.nanoTime();
+            CommandInput printUsers = new CommandInput();
+            printUsers.setCommand("printUsers");
+            printUsers.setTimestamp(timestamp++);
+            ArrayNode output = objectMapper.createArrayNode();
+            bank.process(printUsers, output);
+            writer.writeValue(out, output);
+            long time = System.nanoTime() - start;
+            if (print == 0) {
+                firstTime = time;
+            } else {
+                nextTime += time;
+            }
+        }
+        bank.finish();
+
+        System.out.printf("%d users, printUsers every %d commands: first print %.1f ms, "
+                        + "next prints %.1f ms on average (%d bytes written)%n", userCount,
+                commandsPerPrint, firstTime / NANOS_PER_MILLI,
+                nextTime / NANOS_PER_MILLI / (PRINTS - 1), out.bytes);
+    }
+
+    /**
+     * Discards what is written, counting the bytes.
+     */
+    private static final class CountingStream extends OutputStream {
+        private long bytes;
+
+        @Override
+        public void write(final int b) {
+            bytes++;
+        }
+
+        @Override
+        public void write(final byte[] b, final int off, final int len) {
+            bytes += len;
+        }
+
+        @Override
+        public void close() {
+            // Keep counting over the next prints
+        }
+    }
+}
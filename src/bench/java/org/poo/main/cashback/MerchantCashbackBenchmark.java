@@ -0,0 +1,91 @@
+package org.poo.main.cashback;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+/**
+ * Compares recording payments and reading the payment counts back with a
+ * MerchantCashbackState per account and with a boxed HashMap per account, for accounts
+ * paying thousands of merchants. Reports the time and the heap kept by each.
+ */
+public final class MerchantCashbackBenchmark {
+    private static final double NANOS_PER_MILLI = 1_000_000.0;
+    private static final long BYTES_PER_MEGABYTE = 1024 * 1024;
+    private static final long SEED = 42;
+
+    private MerchantCashbackBenchmark() {
+        // Utility class
+    }
+
+    /**
+     * Runs the benchmark.
+     *
+     * @param args the number of accounts, of merchants and of payments per account
+     */
+    public static void main(final String[] args) {
+        if (args.length != 3) {
+            System.err.println("Usage: MerchantCashbackBenchmark <accounts> <merchants> "
+                    + "<payments per account>");
+            return;
+        }
+
+        int accounts = Integer.parseInt(args[0]);
+        int merchants = Integer.parseInt(args[1]);
+        int payments = Integer.parseInt(args[2]);
+
+        long heapBefore = usedHeap();
+        Random random = new Random(SEED);
+        long start = System.nanoTime();
+        MerchantCashbackState[] states = new MerchantCashbackState[accounts];
+        long stateCount = 0;
+        for (int a = 0; a < accounts; a++) {
+            states[a] = new MerchantCashbackState();
+            for (int p = 0; p < payments; p++) {
+                int merchant = random.nextInt(merchants);
+                stateCount += states[a].getTransactionCount(merchant);
+                states[a].recordPayment(merchant);
+            }
+        }
+        long stateTime = System.nanoTime() - start;
+        long stateHeap = usedHeap() - heapBefore;
+
+        heapBefore = usedHeap();
+        random = new Random(SEED);
+        start = System.nanoTime();
+        @SuppressWarnings({"unchecked", "rawtypes"})
+        Map<Integer, Integer>[] maps = new Map[accounts];
+        long mapCount = 0;
+        for (int a = 0; a < accounts; a++) {
+            maps[a] = new HashMap<>();
+            for (int p = 0; p < payments; p++) {
+                int merchant = random.nextInt(merchants);
+                mapCount += maps[a].getOrDefault(merchant, 0);
+                maps[a].merge(merchant, 1, Integer::sum);
+            }
+        }
+        long mapTime = System.nanoTime() - start;
+        long mapHeap = usedHeap() - heapBefore;
+
+        // Reading the tables after measuring the heap keeps them reachable until then
+        long paidPairs = 0;
+        boolean sameSizes = true;
+        for (int a = 0; a < accounts; a++) {
+            paidPairs += states[a].size();
+            sameSizes &= states[a].size() == maps[a].size();
+        }
+
+        System.out.printf("%d accounts x %d payments over %d merchants (%d account-merchant "
+                        + "pairs): primitive state %.1f ms %d MB, boxed map %.1f ms %d MB, "
+                        + "same counts: %b%n", accounts, payments, merchants, paidPairs,
+                stateTime / NANOS_PER_MILLI, stateHeap / BYTES_PER_MEGABYTE,
+                mapTime / NANOS_PER_MILLI, mapHeap / BYTES_PER_MEGABYTE,
+                stateCount == mapCount && sameSizes);
+    }
+
+    private static long usedHeap() {
+        Runtime runtime = Runtime.getRuntime();
+        System.gc();
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+}
@@ -0,0 +1,85 @@
+package org.poo.main.events;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import org.poo.fileio.CommandInput;
+import org.poo.fileio.ObjectInput;
+
+import java.io.File;
+import java.util.Random;
+
+/**
+ * Measures how fast an EventSourcedBank rebuilds past states. The commands of an input
+ * file are run on the live bank, then the whole journal is replayed from the initial
+ * bank, then printUsers is asked at random timestamps, with and without checkpoints.
+ */
+public final class EventReplayBenchmark {
+    private static final double NANOS_PER_SECOND = 1_000_000_000.0;
+    private static final double NANOS_PER_MILLI = 1_000_000.0;
+    private static final int QUERY_SEED = 42;
+
+    private EventReplayBenchmark() {
+        // Utility class
+    }
+
+    /**
+     * Runs the benchmark.
+     *
+     * @param args the input file, the number of random queries and the number of checkpoints
+     * @throws Exception if the input cannot be read
+     */
+    public static void main(final String[] args) throws Exception {
+        if (args.length != 3) {
+            System.err.println("Usage: EventReplayBenchmark <input file> <queries> "
+                    + "<checkpoints>");
+            return;
+        }
+
+        ObjectMapper objectMapper = new ObjectMapper();
+        ObjectInput input = objectMapper.readValue(new File(args[0]), ObjectInput.class);
+        int queries = Integer.parseInt(args[1]);
+        int maxCheckpoints = Integer.parseInt(args[2]);
+        CommandInput[] commands = input.getCommands();
+        if (commands.length == 0) {
+            return;
+        }
+        CommandInput printUsers = new CommandInput();
+        printUsers.setCommand("printUsers");
+
+        // Full replay, from the initial bank to the last event
+        EventSourcedBank bank = new EventSourcedBank(input, 0);
+        for (CommandInput command : commands) {
+            bank.process(command, objectMapper.createArrayNode());
+        }
+        int first = commands[0].getTimestamp();
+        int last = commands[commands.length - 1].getTimestamp();
+        long start = System.nanoTime();
+        bank.queryAt(last, printUsers, objectMapper.createArrayNode());
+        long elapsed = System.nanoTime() - start;
+        System.out.printf("full replay: %d events in %.1f ms -> %.0f events/s%n",
+                bank.getReplayedEvents(), elapsed / NANOS_PER_MILLI,
+                bank.getReplayedEvents() * NANOS_PER_SECOND / elapsed);
+        bank.finish();
+
+        for (int checkpoints : new int[] {0, maxCheckpoints}) {
+            bank = new EventSourcedBank(input, checkpoints);
+            for (CommandInput command : commands) {
+                bank.process(command, objectMapper.createArrayNode());
+            }
+
+            Random random = new Random(QUERY_SEED);
+            start = System.nanoTime();
+            for (int i = 0; i < queries; i++) {
+                int timestamp = first + random.nextInt(last - first + 1);
+                ArrayNode output = objectMapper.createArrayNode();
+                bank.queryAt(timestamp, printUsers, output);
+            }
+            elapsed = System.nanoTime() - start;
+            System.out.printf("%d random queries with %d checkpoints: %.3f ms and %.0f "
+                            + "replayed events per query%n", queries, checkpoints,
+                    elapsed / NANOS_PER_MILLI / queries,
+                    (double) bank.getReplayedEvents() / queries);
+            bank.finish();
+        }
+    }
+}
@@ -0,0 +1,162 @@
+package org.poo.main.replay;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import org.poo.fileio.CommandInput;
+import org.poo.fileio.ObjectInput;
+import org.poo.main.bank.BankSystem;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+
+/**
+ * Compares replaying an input file from JSON with replaying it from a binary command
+ * log. The commands of the input are repeated a number of times, each copy moved after
+ * the previous one in time, to get an input large enough to measure. Reports the sizes
+ * of both files, the time to only decode the commands and the time of the full replay,
+ * and checks both replays give the same output.
+ */
+public final class CommandLogBenchmark {
+    private static final double NANOS_PER_MILLI = 1_000_000.0;
+    private static final int ROUNDS = 5;
+
+    private CommandLogBenchmark() {
+        // Utility class
+    }
+
+    /**
+     * Runs the benchmark.
+     *
+     * @param args the input file and the number of copies of its commands
+     * @throws IOException if a file cannot be read or written
+     */
+    public static void main(final String[] args) throws IOException {
+        if (args.length != 2) {
+            System.err.println("Usage: CommandLogBenchmark <input file> <copies>");
+            return;
+        }
+
+        ObjectMapper objectMapper = new ObjectMapper();
+        ObjectInput input = objectMapper.readValue(new File(args[0]), ObjectInput.class);
+        int copies = Integer.parseInt(args[1]);
+        input.setCommands(scale(input.getCommands(), copies));
+
+        File json = File.createTempFile("commands", ".json");
+        File log = File.createTempFile("commands", ".log");
+        json.deleteOnExit();
+        log.deleteOnExit();
+        // The commands go last, where the converter expects them, without the fields
+        // they do not set, as in the test files
+        ObjectMapper compactMapper = objectMapper.copy()
+                .setSerializationInclusion(JsonInclude.Include.NON_DEFAULT);
+        ObjectNode tree = compactMapper.valueToTree(input);
+        tree.set("commands", tree.remove("commands"));
+        compactMapper.writeValue(json, tree);
+
+        long start = System.nanoTime();
+        long commands = CommandLogConverter.convert(json, log);
+        long convertTime = System.nanoTime() - start;
+        System.out.printf("%d commands: JSON %d bytes, command log %d bytes, "
+                        + "converted in %.1f ms%n", commands, json.length(), log.length(),
+                convertTime / NANOS_PER_MILLI);
+
+        long jsonDecodeTime = 0;
+        long logDecodeTime = 0;
+        long jsonReplayTime = 0;
+        long logReplayTime = 0;
+        boolean sameOutput = true;
+        for (int round = 0; round < ROUNDS; round++) {
+            start = System.nanoTime();
+            decodeJson(objectMapper, json);
+            jsonDecodeTime += System.nanoTime() - start;
+
+            start = System.nanoTime();
+            decodeLog(log);
+            logDecodeTime += System.nanoTime() - start;
+
+            start = System.nanoTime();
+            ObjectInput inputData = objectMapper.readValue(json, ObjectInput.class);
+            ArrayNode jsonOutput = objectMapper.createArrayNode();
+            BankSystem.fromInput(inputData).processCommands(inputData.getCommands(),
+                    jsonOutput);
+            jsonReplayTime += System.nanoTime() - start;
+
+            start = System.nanoTime();
+            ArrayNode logOutput = objectMapper.createArrayNode();
+            CommandLogReader.replay(log, logOutput);
+            logReplayTime += System.nanoTime() - start;
+
+            sameOutput &= jsonOutput.equals(logOutput);
+        }
+
+        System.out.printf("decode only: JSON %.1f ms, command log %.1f ms%n",
+                jsonDecodeTime / NANOS_PER_MILLI / ROUNDS,
+                logDecodeTime / NANOS_PER_MILLI / ROUNDS);
+        System.out.printf("full replay: JSON %.1f ms, command log %.1f ms, "
+                        + "same output: %b%n", jsonReplayTime / NANOS_PER_MILLI / ROUNDS,
+                logReplayTime / NANOS_PER_MILLI / ROUNDS, sameOutput);
+    }
+
+    private static CommandInput[] scale(final CommandInput[] commands, final int copies) {
+        int span = 0;
+        for (CommandInput command : commands) {
+            span = Math.max(span, command.getTimestamp());
+        }
+
+        ObjectMapper objectMapper = new ObjectMapper();
+        CommandInput[] scaled = new CommandInput[commands.length * copies];
+        for (int copy = 0; copy < copies; copy++) {
+            int shift = copy * (span + 1);
+            for (int i = 0; i < commands.length; i++) {
+                CommandInput command =
+                        objectMapper.convertValue(commands[i], CommandInput.class);
+                command.setTimestamp(command.getTimestamp() + shift);
+                if (command.getStartTimestamp() != 0 || command.getEndTimestamp() != 0) {
+                    command.setStartTimestamp(command.getStartTimestamp() + shift);
+                    command.setEndTimestamp(command.getEndTimestamp() + shift);
+                }
+                if (command.getFromTimestamp() != null) {
+                    command.setFromTimestamp(command.getFromTimestamp() + shift);
+                }
+                scaled[copy * commands.length + i] = command;
+            }
+        }
+        return scaled;
+    }
+
+    private static long decodeJson(final ObjectMapper objectMapper, final File json)
+            throws IOException {
+        long count = 0;
+        try (JsonParser parser = objectMapper.getFactory().createParser(json)) {
+            parser.nextToken();
+            while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                String field = parser.currentName();
+                parser.nextToken();
+                if (!field.equals("commands")) {
+                    parser.skipChildren();
+                    continue;
+                }
+                while (parser.nextToken() == JsonToken.START_OBJECT) {
+                    objectMapper.readValue(parser, CommandInput.class);
+                    count++;
+                }
+            }
+        }
+        return count;
+    }
+
+    private static long decodeLog(final File log) throws IOException {
+        long count = 0;
+        try (CommandLogReader reader = new CommandLogReader(new FileInputStream(log))) {
+            while (reader.next() != null) {
+                count++;
+            }
+        }
+        return count;
+    }
+}
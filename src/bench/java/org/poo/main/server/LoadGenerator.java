@@ -0,0 +1,122 @@
+package org.poo.main.server;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.net.SocketAddress;
+import java.nio.channels.Channels;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Local load generator for BankServer. Replays the commands of an input file over
+ * several connections, keeping up to a fixed number of commands in flight on each,
+ * and reports the sustained throughput and the latency percentiles.
+ */
+public final class LoadGenerator {
+    private static final double NANOS_PER_MILLI = 1_000_000.0;
+    private static final double NANOS_PER_SECOND = 1_000_000_000.0;
+
+    private LoadGenerator() {
+        // Utility class
+    }
+
+    /**
+     * Runs the load.
+     *
+     * @param args the server address ("unix:/path" or a TCP port), the input file whose
+     *             commands are replayed, the number of connections, the number of commands
+     *             sent on each connection and the number of commands in flight per connection
+     * @throws Exception if the input cannot be read or a connection fails
+     */
+    public static void main(final String[] args) throws Exception {
+        if (args.length != 5) {
+            System.err.println("Usage: LoadGenerator <port | unix:path> <input file> "
+                    + "<connections> <commands per connection> <in flight>");
+            return;
+        }
+
+        SocketAddress address = BankServer.parseAddress(args[0]);
+        JsonNode commands = new ObjectMapper().readTree(new File(args[1])).get("commands");
+        int connections = Integer.parseInt(args[2]);
+        int commandsPerConnection = Integer.parseInt(args[3]);
+        int inFlight = Integer.parseInt(args[4]);
+
+        List<byte[]> lines = new ArrayList<>();
+        ObjectMapper objectMapper = new ObjectMapper();
+        for (JsonNode command : commands) {
+            byte[] json = objectMapper.writeValueAsBytes(command);
+            byte[] line = Arrays.copyOf(json, json.length + 1);
+            line[json.length] = '\n';
+            lines.add(line);
+        }
+
+        long[][] latencies = new long[connections][];
+        Thread[] clients = new Thread[connections];
+        long start = System.nanoTime();
+        for (int i = 0; i < connections; i++) {
+            final int client = i;
+            clients[i] = new Thread(() -> latencies[client] =
+                    runClient(address, lines, client, commandsPerConnection, inFlight));
+            clients[i].start();
+        }
+        for (Thread client : clients) {
+            client.join();
+        }
+        long elapsed = System.nanoTime() - start;
+
+        long[] all = Arrays.stream(latencies).flatMapToLong(Arrays::stream).sorted().toArray();
+        System.out.printf("commands: %d in %.2f s -> %.0f commands/s%n",
+                all.length, elapsed / NANOS_PER_SECOND, all.length * NANOS_PER_SECOND / elapsed);
+        System.out.printf("latency ms: p50 %.3f  p99 %.3f  p99.9 %.3f  max %.3f%n",
+                percentile(all, 0.50), percentile(all, 0.99), percentile(all, 0.999),
+                all.length == 0 ? 0.0 : all[all.length - 1] / NANOS_PER_MILLI);
+    }
+
+    private static long[] runClient(final SocketAddress address, final List<byte[]> lines,
+                                    final int client, final int count, final int inFlight) {
+        long[] latencies = new long[count];
+        try (SocketChannel channel = SocketChannel.open(address)) {
+            OutputStream out = Channels.newOutputStream(channel);
+            BufferedReader in = new BufferedReader(new InputStreamReader(
+                    Channels.newInputStream(channel), StandardCharsets.UTF_8));
+
+            ArrayDeque<Long> sendTimes = new ArrayDeque<>();
+            int sent = 0;
+            int received = 0;
+            while (received < count) {
+                while (sent < count && sendTimes.size() < inFlight) {
+                    sendTimes.add(System.nanoTime());
+                    out.write(lines.get((client + sent) % lines.size()));
+                    sent++;
+                }
+                out.flush();
+
+                if (in.readLine() == null) {
+                    throw new IOException("Server closed the connection");
+                }
+                latencies[received++] = System.nanoTime() - sendTimes.poll();
+            }
+        } catch (IOException e) {
+            throw new IllegalStateException("Client " + client + " failed", e);
+        }
+        return latencies;
+    }
+
+    private static double percentile(final long[] sorted, final double fraction) {
+        if (sorted.length == 0) {
+            return 0.0;
+        }
+        int index = (int) Math.min(sorted.length - 1, Math.ceil(fraction * sorted.length) - 1);
+        return sorted[Math.max(0, index)] / NANOS_PER_MILLI;
+    }
+}
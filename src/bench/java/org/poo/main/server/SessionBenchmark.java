@@ -0,0 +1,181 @@
+package org.poo.main.server;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.poo.fileio.ObjectInput;
+import org.poo.main.bank.BankSystem;
+
+import java.io.File;
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.net.InetSocketAddress;
+import java.net.SocketAddress;
+import java.net.StandardSocketOptions;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.SocketChannel;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.ThreadFactory;
+
+/**
+ * Compares serving sessions on platform threads and on virtual threads.
+ * For each mode an in-process VirtualThreadBankServer is started, a single client thread
+ * opens the given number of sessions, leaves them idle, then sends a few commands on
+ * each of them. The benchmark reports the time to open the sessions, the time to answer
+ * all the commands, the peak number of platform threads and the heap in use.
+ * The sessions are spread over the loopback source addresses 127.0.0.1, 127.0.0.2, ...
+ * so that their count is not bounded by the ephemeral ports of one address; the client
+ * and the server run in this process, so each session takes two file descriptors.
+ */
+public final class SessionBenchmark {
+    private static final double NANOS_PER_MILLI = 1_000_000.0;
+    private static final long BYTES_PER_MEGABYTE = 1024 * 1024;
+    private static final int READ_BUFFER_SIZE = 64 * 1024;
+    // Each loopback source address has about 28k ephemeral ports towards the server
+    private static final int SESSIONS_PER_SOURCE_ADDRESS = 20_000;
+
+    private SessionBenchmark() {
+        // Utility class
+    }
+
+    /**
+     * Runs the benchmark.
+     *
+     * @param args the setup input file (its commands are the ones sent), the number of
+     *             sessions, the number of commands per session and the mode
+     *             ("virtual", "platform" or "both")
+     * @throws Exception if the input cannot be read or a session fails
+     */
+    public static void main(final String[] args) throws Exception {
+        if (args.length != 4) {
+            System.err.println("Usage: SessionBenchmark <input file> <sessions> "
+                    + "<commands per session> <virtual | platform | both>");
+            return;
+        }
+
+        File input = new File(args[0]);
+        int sessions = Integer.parseInt(args[1]);
+        int commandsPerSession = Integer.parseInt(args[2]);
+        String mode = args[3];
+
+        if (!mode.equals("platform")) {
+            run("virtual", Thread.ofVirtual().name("bank-session-", 0).factory(),
+                    input, sessions, commandsPerSession);
+        }
+        if (!mode.equals("virtual")) {
+            run("platform", Thread.ofPlatform().name("bank-session-", 0).daemon().factory(),
+                    input, sessions, commandsPerSession);
+        }
+    }
+
+    private static void run(final String name, final ThreadFactory factory, final File input,
+                            final int sessions, final int commandsPerSession) throws Exception {
+        ObjectMapper objectMapper = new ObjectMapper();
+        ObjectInput setup = objectMapper.readValue(input, ObjectInput.class);
+        List<byte[]> lines = new ArrayList<>();
+        for (JsonNode command : objectMapper.readTree(input).get("commands")) {
+            lines.add((objectMapper.writeValueAsString(command) + "\n").getBytes());
+        }
+
+        ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+        threads.resetPeakThreadCount();
+
+        VirtualThreadBankServer server = new VirtualThreadBankServer(
+                BankSystem.fromInput(setup), new InetSocketAddress("127.0.0.1", 0), factory);
+        SocketAddress address = server.getLocalAddress();
+        Thread acceptor = Thread.ofPlatform().start(() -> {
+            try {
+                server.serve();
+            } catch (IOException e) {
+                throw new IllegalStateException(e);
+            }
+        });
+
+        try (Selector selector = Selector.open()) {
+            // Open every session and leave it idle
+            long openStart = System.nanoTime();
+            List<SocketChannel> channels = new ArrayList<>(sessions);
+            for (int i = 0; i < sessions; i++) {
+                SocketChannel channel;
+                try {
+                    channel = SocketChannel.open();
+                    if (i >= SESSIONS_PER_SOURCE_ADDRESS) {
+                        // Lets the ports of the previous runs still in TIME_WAIT be bound
+                        channel.setOption(StandardSocketOptions.SO_REUSEADDR, true);
+                        channel.bind(new InetSocketAddress(
+                                "127.0.0." + (1 + i / SESSIONS_PER_SOURCE_ADDRESS), 0));
+                    }
+                    channel.connect(address);
+                } catch (IOException e) {
+                    throw new IOException(name + ": opening session " + (i + 1) + " failed", e);
+                }
+                channel.configureBlocking(false);
+                channel.register(selector, SelectionKey.OP_READ, new int[] {i, 0});
+                channels.add(channel);
+            }
+            long openTime = System.nanoTime() - openStart;
+            Runtime runtime = Runtime.getRuntime();
+            System.gc();
+            long heapUsed = runtime.totalMemory() - runtime.freeMemory();
+
+            // Every session sends its commands one after the other
+            long runStart = System.nanoTime();
+            for (int i = 0; i < sessions; i++) {
+                writeFully(channels.get(i), lines.get(i % lines.size()));
+            }
+            int remaining = sessions;
+            ByteBuffer buffer = ByteBuffer.allocate(READ_BUFFER_SIZE);
+            while (remaining > 0) {
+                selector.select();
+                Iterator<SelectionKey> keys = selector.selectedKeys().iterator();
+                while (keys.hasNext()) {
+                    SelectionKey key = keys.next();
+                    keys.remove();
+                    int[] state = (int[]) key.attachment(); // session index, answers received
+                    SocketChannel channel = (SocketChannel) key.channel();
+                    buffer.clear();
+                    if (channel.read(buffer) < 0) {
+                        throw new IOException("Session " + state[0] + " closed by the server");
+                    }
+                    for (int i = 0; i < buffer.position(); i++) {
+                        if (buffer.get(i) != '\n') {
+                            continue;
+                        }
+                        state[1]++;
+                        if (state[1] < commandsPerSession) {
+                            writeFully(channel, lines.get((state[0] + state[1]) % lines.size()));
+                        } else {
+                            remaining--;
+                        }
+                    }
+                }
+            }
+            long runTime = System.nanoTime() - runStart;
+
+            System.out.printf("%s: %d sessions opened in %.1f ms, %d commands answered in "
+                            + "%.1f ms, peak platform threads %d, heap with idle sessions "
+                            + "%d MB%n", name, sessions, openTime / NANOS_PER_MILLI,
+                    sessions * commandsPerSession, runTime / NANOS_PER_MILLI,
+                    threads.getPeakThreadCount(), heapUsed / BYTES_PER_MEGABYTE);
+
+            for (SocketChannel channel : channels) {
+                channel.close();
+            }
+        } finally {
+            server.close();
+            acceptor.join();
+        }
+    }
+
+    private static void writeFully(final SocketChannel channel, final byte[] line)
+            throws IOException {
+        ByteBuffer buffer = ByteBuffer.wrap(line);
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+    }
+}
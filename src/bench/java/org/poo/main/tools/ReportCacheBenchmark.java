@@ -0,0 +1,90 @@
+package org.poo.main.tools;
+
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import org.poo.fileio.CommandInput;
+import org.poo.main.accounts.Account;
+import org.poo.main.accounts.ClassicAccount;
+import org.poo.main.exchange_rate.ExchangeRate;
+import org.poo.main.transactions.ReportTransactionFilter;
+import org.poo.main.transactions.TransactionFactory;
+import org.poo.main.transactions.TransactionFilter;
+import org.poo.main.user.User;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Measures a dashboard asking for the same reports over and over, on a few accounts
+ * with long histories, one of them receiving a deposit every few reports. The reports
+ * are generated with and without a ReportCache.
+ */
+public final class ReportCacheBenchmark {
+    private static final double NANOS_PER_MILLI = 1_000_000.0;
+    private static final int ACCOUNTS = 16;
+    private static final int WINDOWS = 4;
+    private static final int REPORTS_PER_DEPOSIT = 50;
+    private static final double AMOUNT = 10.0;
+    private static final long SEED = 42;
+
+    private ReportCacheBenchmark() {
+        // Utility class
+    }
+
+    /**
+     * Runs the benchmark.
+     *
+     * @param args the number of transactions of each account and the number of reports
+     */
+    public static void main(final String[] args) {
+        if (args.length != 2) {
+            System.err.println("Usage: ReportCacheBenchmark <transactions> <reports>");
+            return;
+        }
+
+        int transactionCount = Integer.parseInt(args[0]);
+        int reportCount = Integer.parseInt(args[1]);
+        List<User> users = new ArrayList<>();
+        List<Account> accounts = new ArrayList<>();
+        for (int i = 0; i < ACCOUNTS; i++) {
+            String email = "user" + i + "@bank.ro";
+            User user = new User("First", "Last", email, "1990-01-01", "engineer");
+            Account account = new ClassicAccount("RON", email, "RO" + i);
+            user.addAccount(account);
+            for (int t = 0; t < transactionCount; t++) {
+                user.addTransaction(TransactionFactory.createOnlinePaymentTransaction(t, null,
+                        AMOUNT, "Merchant" + (t % ACCOUNTS), account.getIban()));
+            }
+            users.add(user);
+            accounts.add(account);
+        }
+
+        ReportCache[] caches = {new ReportCache(0, 0), new ReportCache()};
+        String[] names = {"uncached", "cached"};
+        for (int c = 0; c < caches.length; c++) {
+            ReportCache cache = caches[c];
+            Random random = new Random(SEED);
+            int transactions = 0;
+            long start = System.nanoTime();
+            for (int r = 0; r < reportCount; r++) {
+                if (r % REPORTS_PER_DEPOSIT == 0) {
+                    accounts.get(random.nextInt(ACCOUNTS)).deposit(AMOUNT);
+                }
+                CommandInput report = new CommandInput();
+                report.setCommand("report");
+                report.setAccount(accounts.get(random.nextInt(ACCOUNTS)).getIban());
+                int window = random.nextInt(WINDOWS);
+                report.setStartTimestamp(window * transactionCount / WINDOWS);
+                report.setEndTimestamp(transactionCount);
+                report.setTimestamp(transactionCount + r);
+                TransactionFilter filter = new ReportTransactionFilter();
+                ObjectNode output = Tools.generateReportData(report, filter, false, users,
+                        new ArrayList<ExchangeRate>(), cache);
+                transactions += output.get("transactions").size();
+            }
+            long time = System.nanoTime() - start;
+            System.out.printf("%s: %d reports (%d transactions) in %.1f ms%n  %s%n",
+                    names[c], reportCount, transactions, time / NANOS_PER_MILLI, cache);
+        }
+    }
+}
@@ -0,0 +1,95 @@
+package org.poo.main.transactions;
+
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import org.poo.fileio.CommandInput;
+import org.poo.main.accounts.ClassicAccount;
+import org.poo.main.exchange_rate.ExchangeRate;
+import org.poo.main.tools.ReportCache;
+import org.poo.main.tools.Tools;
+import org.poo.main.user.User;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Compares spendings reports over windows of a long history read from the CardPayments
+ * of the history with the same reports filtering the transactions of the window. The
+ * history mixes the card payments of several accounts with other transactions.
+ */
+public final class CardPaymentsBenchmark {
+    private static final double NANOS_PER_MILLI = 1_000_000.0;
+    private static final int ACCOUNTS = 8;
+    private static final int MERCHANTS = 32;
+    private static final int PAYMENT_EVERY = 4;
+    private static final double AMOUNT_STEP = 0.25;
+    private static final long SEED = 42;
+
+    private CardPaymentsBenchmark() {
+        // Utility class
+    }
+
+    /**
+     * Runs the benchmark.
+     *
+     * @param args the number of transactions, the number of reports and the length of
+     *             their windows
+     */
+    public static void main(final String[] args) {
+        if (args.length != 3) {
+            System.err.println("Usage: CardPaymentsBenchmark <transactions> <reports> <window>");
+            return;
+        }
+
+        int count = Integer.parseInt(args[0]);
+        int reports = Integer.parseInt(args[1]);
+        int window = Integer.parseInt(args[2]);
+        User user = new User("First", "Last", "user@bank.ro", "1990-01-01", "engineer");
+        String[] ibans = new String[ACCOUNTS];
+        for (int i = 0; i < ACCOUNTS; i++) {
+            ibans[i] = "RO" + i;
+            user.addAccount(new ClassicAccount("RON", user.getEmail(), ibans[i]));
+        }
+        for (int i = 0; i < count; i++) {
+            String iban = ibans[i % ACCOUNTS];
+            user.addTransaction(i % PAYMENT_EVERY == 0
+                    ? TransactionFactory.createOnlinePaymentTransaction(i, null,
+                            (i % 1000) * AMOUNT_STEP, "Merchant" + (i % MERCHANTS), iban)
+                    : TransactionFactory.createInsufficientFundsTransaction(i, iban));
+        }
+        List<User> users = List.of(user);
+
+        TransactionFilter[] filters = {new ScanningFilter(), new SpendingsTransactionFilter()};
+        String[] names = {"filtering the window", "card payments index"};
+        for (int f = 0; f < filters.length; f++) {
+            Random random = new Random(SEED);
+            ReportCache noCache = new ReportCache(0, 0);
+            long payments = 0;
+            long start = System.nanoTime();
+            for (int r = 0; r < reports; r++) {
+                CommandInput report = new CommandInput();
+                report.setCommand("spendingsReport");
+                report.setAccount(ibans[random.nextInt(ACCOUNTS)]);
+                report.setStartTimestamp(random.nextInt(Math.max(1, count - window)));
+                report.setEndTimestamp(report.getStartTimestamp() + window);
+                report.setTimestamp(count);
+                ObjectNode output = Tools.generateReportData(report, filters[f], true, users,
+                        new ArrayList<ExchangeRate>(), noCache);
+                payments += output.get("transactions").size();
+            }
+            long time = System.nanoTime() - start;
+            System.out.printf("%s: %d reports (%d payments) in %.1f ms%n", names[f], reports,
+                    payments, time / NANOS_PER_MILLI);
+        }
+    }
+
+    /**
+     * The spendings filter, read without the index.
+     */
+    private static final class ScanningFilter extends SpendingsTransactionFilter {
+        @Override
+        public boolean keepsCardPayments() {
+            return false;
+        }
+    }
+}
@@ -0,0 +1,97 @@
+package org.poo.main.transactions;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import org.poo.main.tools.Tools;
+import org.poo.main.user.User;
+
+import java.io.IOException;
+import java.io.OutputStream;
+
+/**
+ * Measures printing the transactions of a user with a long history several times, like
+ * repeated printTransactions commands written with the default pretty printer: the
+ * first print renders every transaction, the next ones reuse the rendered JSON.
+ */
+public final class PrintTransactionsBenchmark {
+    private static final double NANOS_PER_MILLI = 1_000_000.0;
+    private static final long BYTES_PER_MEGABYTE = 1024 * 1024;
+    private static final int MERCHANTS = 64;
+    private static final double AMOUNT_STEP = 0.25;
+
+    private PrintTransactionsBenchmark() {
+        // Utility class
+    }
+
+    /**
+     * Runs the benchmark.
+     *
+     * @param args the number of transactions and the number of prints
+     * @throws IOException if the output cannot be written
+     */
+    public static void main(final String[] args) throws IOException {
+        if (args.length != 2) {
+            System.err.println("Usage: PrintTransactionsBenchmark <transactions> <prints>");
+            return;
+        }
+
+        int count = Integer.parseInt(args[0]);
+        int prints = Integer.parseInt(args[1]);
+        User user = new User("First", "Last", "user@bank.ro", "1990-01-01", "engineer");
+        for (int i = 0; i < count; i++) {
+            user.addTransaction(TransactionFactory.createOnlinePaymentTransaction(i, null,
+                    (i % 1000) * AMOUNT_STEP, "Merchant" + (i % MERCHANTS),
+                    "RO00POOB0000000000000000"));
+        }
+
+        ObjectMapper objectMapper = new ObjectMapper();
+        ObjectWriter writer = objectMapper.writerWithDefaultPrettyPrinter();
+        CountingStream output = new CountingStream();
+        long firstTime = 0;
+        long nextTime = 0;
+        for (int print = 0; print < prints; print++) {
+            long start = System.nanoTime();
+            ArrayNode result = objectMapper.createArrayNode();
+            ObjectNode resultNode = result.addObject();
+            resultNode.put("command", "printTransactions");
+            resultNode.set("output", Tools.getTransactions(user.getTransactions()));
+            resultNode.put("timestamp", print);
+            writer.writeValue(output, result);
+            long time = System.nanoTime() - start;
+            if (print == 0) {
+                firstTime = time;
+            } else {
+                nextTime += time;
+            }
+        }
+
+        System.out.printf("%d transactions, %d MB per print: first print %.1f ms, "
+                        + "next prints %.1f ms on average%n", count,
+                output.bytes / prints / BYTES_PER_MEGABYTE, firstTime / NANOS_PER_MILLI,
+                prints > 1 ? nextTime / NANOS_PER_MILLI / (prints - 1) : 0.0);
+    }
+
+    /**
+     * Discards what is written, counting the bytes.
+     */
+    private static final class CountingStream extends OutputStream {
+        private long bytes;
+
+        @Override
+        public void write(final int b) {
+            bytes++;
+        }
+
+        @Override
+        public void write(final byte[] b, final int off, final int len) {
+            bytes += len;
+        }
+
+        @Override
+        public void close() {
+            // Keep counting over the next prints
+        }
+    }
+}
@@ -0,0 +1,137 @@
+package org.poo.main.transactions;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Measures the heap used by a long transaction history, kept entirely on the heap or
+ * spilled to a TransactionStore, and how fast it is appended to, scanned and searched
+ * by timestamp. The "payments" workload only holds card payments from a few thousand
+ * accounts to a few merchants. The "mixed" one is closer to a real history: card
+ * payments for 60% of the transactions, transfers whose descriptions are all distinct
+ * for 20%, split payments with distinct amount lists for 10%, and interest income.
+ */
+public final class TransactionHistoryBenchmark {
+    private static final double NANOS_PER_SECOND = 1_000_000_000.0;
+    private static final long BYTES_PER_MEGABYTE = 1024 * 1024;
+    private static final int ACCOUNTS = 4096;
+    private static final int MERCHANTS = 64;
+    private static final int RANGE_QUERIES = 1000;
+    private static final int RANGE_LENGTH = 100;
+    private static final double AMOUNT_STEP = 0.25;
+    private static final int MIX_PERIOD = 10;
+    private static final int MIX_PAYMENTS = 6;
+    private static final int MIX_TRANSFERS = 8;
+    private static final int MIX_SPLITS = 9;
+    private static final int SPLIT_ACCOUNTS = 3;
+
+    private TransactionHistoryBenchmark() {
+        // Utility class
+    }
+
+    /**
+     * Runs the benchmark.
+     *
+     * @param args the number of transactions, the mode ("heap" or "spill") and the
+     *             workload ("payments" or "mixed"); in spill mode, optionally the
+     *             directory of the page file
+     * @throws Exception if the page file cannot be created
+     */
+    public static void main(final String[] args) throws Exception {
+        if (args.length < 3) {
+            System.err.println("Usage: TransactionHistoryBenchmark <transactions> "
+                    + "<heap | spill> <payments | mixed> [page directory]");
+            return;
+        }
+
+        int count = Integer.parseInt(args[0]);
+        boolean spill = args[1].equals("spill");
+        boolean mixed = args[2].equals("mixed");
+        Path directory = args.length > 3 ? Path.of(args[3])
+                : Files.createTempDirectory("transactions");
+
+        String[] ibans = new String[ACCOUNTS];
+        for (int i = 0; i < ACCOUNTS; i++) {
+            ibans[i] = String.format("RO%02dPOOB%016d", i % 100, i);
+        }
+
+        TransactionStore store = new TransactionStore(directory);
+        TransactionHistory history = new TransactionHistory();
+        if (spill) {
+            history.spillTo(store);
+        }
+
+        long start = System.nanoTime();
+        for (int i = 0; i < count; i++) {
+            history.add(mixed ? mixedTransaction(i, ibans)
+                    : TransactionFactory.createOnlinePaymentTransaction(i, null,
+                            (i % 1000) * AMOUNT_STEP, "Merchant" + (i % MERCHANTS),
+                            ibans[i % ACCOUNTS]));
+        }
+        long appendTime = System.nanoTime() - start;
+
+        Runtime runtime = Runtime.getRuntime();
+        System.gc();
+        long heapUsed = runtime.totalMemory() - runtime.freeMemory();
+
+        start = System.nanoTime();
+        double total = 0;
+        for (Transaction transaction : history) {
+            if (transaction.getAmount() != null) {
+                total += transaction.getAmount();
+            }
+        }
+        long scanTime = System.nanoTime() - start;
+
+        start = System.nanoTime();
+        int found = 0;
+        for (int i = 0; i < RANGE_QUERIES; i++) {
+            int from = (int) ((long) i * count / RANGE_QUERIES);
+            int index = history.indexOfTimestamp(from);
+            while (index < history.size()
+                    && history.get(index).getTimestamp() < from + RANGE_LENGTH) {
+                found++;
+                index++;
+            }
+        }
+        long rangeTime = System.nanoTime() - start;
+
+        System.out.printf("%s, %s: %d transactions, %d spilled (%d pages), heap after GC "
+                        + "%d MB%n", spill ? "spill" : "heap", mixed ? "mixed" : "payments",
+                count, history.getSpilledCount(), store.getPageCount(),
+                heapUsed / BYTES_PER_MEGABYTE);
+        System.out.printf("append %.0f/s, scan %.0f/s (total %.2f), %d range queries "
+                        + "(%d transactions) in %.1f ms%n",
+                count * NANOS_PER_SECOND / appendTime, count * NANOS_PER_SECOND / scanTime,
+                total, RANGE_QUERIES, found, rangeTime / 1_000_000.0);
+        store.close();
+    }
+
+    private static Transaction mixedTransaction(final int i, final String[] ibans) {
+        String iban = ibans[i % ACCOUNTS];
+        int kind = i % MIX_PERIOD;
+        if (kind < MIX_PAYMENTS) {
+            return TransactionFactory.createOnlinePaymentTransaction(i, null,
+                    (i % 1000) * AMOUNT_STEP, "Merchant" + (i % MERCHANTS), iban);
+        }
+        if (kind < MIX_TRANSFERS) {
+            return TransactionFactory.createReceivedMoneyTransaction(i,
+                    ibans[(i * 7) % ACCOUNTS], iban, (i % 5000) * AMOUNT_STEP, 1.0, "RON",
+                    "Invoice " + i + " for order #" + (i * 31L) % 100_000);
+        }
+        if (kind < MIX_SPLITS) {
+            List<Double> amounts = new ArrayList<>(SPLIT_ACCOUNTS);
+            List<String> accounts = new ArrayList<>(SPLIT_ACCOUNTS);
+            for (int k = 0; k < SPLIT_ACCOUNTS; k++) {
+                amounts.add((i + k * 13) % 997 * AMOUNT_STEP);
+                accounts.add(ibans[(i + k) % ACCOUNTS]);
+            }
+            return TransactionFactory.createSuccessSplitTransaction(i,
+                    amounts.stream().mapToDouble(Double::doubleValue).sum(), amounts, "EUR",
+                    accounts, "custom");
+        }
+        return TransactionFactory.createInterestTransaction(i, (i % 100) * AMOUNT_STEP, "RON");
+    }
+}
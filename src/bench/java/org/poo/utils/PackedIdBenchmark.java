@@ -0,0 +1,93 @@
+package org.poo.utils;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+/**
+ * Measures an index of cards keyed by card number, either by String in a HashMap or by
+ * PackedId in a LongHashMap: the heap it takes, the time to build it and the time of
+ * lookups by card numbers parsed apart from the indexed ones, as a command brings them.
+ * One mode is run at a time, so each gets the whole heap.
+ */
+public final class PackedIdBenchmark {
+    private static final double NANOS_PER_MILLI = 1_000_000.0;
+    private static final long BYTES_PER_MEGABYTE = 1024 * 1024;
+    private static final int LOOKUPS = 1_000_000;
+    private static final int DIGITS = 16;
+    private static final int DECIMAL = 10;
+    private static final long SEED = 42;
+
+    private PackedIdBenchmark() {
+        // Utility class
+    }
+
+    /**
+     * Runs the benchmark.
+     *
+     * @param args the number of cards and the mode ("string" or "packed")
+     */
+    public static void main(final String[] args) {
+        if (args.length != 2) {
+            System.err.println("Usage: PackedIdBenchmark <cards> <string | packed>");
+            return;
+        }
+
+        int cards = Integer.parseInt(args[0]);
+        boolean packed = args[1].equals("packed");
+        Object card = new Object();
+        Map<String, Object> stringIndex = new HashMap<>();
+        LongHashMap<Object> packedIndex = new LongHashMap<>();
+        SymbolTable symbols = new SymbolTable(); // Only for card numbers that do not pack
+
+        long heapBefore = usedHeap();
+        long start = System.nanoTime();
+        Random random = new Random(SEED);
+        for (int i = 0; i < cards; i++) {
+            String cardNumber = cardNumber(random);
+            if (packed) {
+                packedIndex.put(PackedId.ofCardNumber(cardNumber, symbols), card);
+            } else {
+                stringIndex.put(cardNumber, card);
+            }
+        }
+        long buildTime = System.nanoTime() - start;
+        long indexHeap = usedHeap() - heapBefore;
+
+        // The same card numbers again, as new Strings
+        String[] lookups = new String[Math.min(cards, LOOKUPS)];
+        random = new Random(SEED);
+        for (int i = 0; i < lookups.length; i++) {
+            lookups[i] = cardNumber(random);
+        }
+
+        start = System.nanoTime();
+        int found = 0;
+        for (String cardNumber : lookups) {
+            Object value = packed ? packedIndex.get(PackedId.findCardNumber(cardNumber, symbols))
+                    : stringIndex.get(cardNumber);
+            found += value != null ? 1 : 0;
+        }
+        long lookupTime = System.nanoTime() - start;
+
+        System.out.printf("%s: %d cards indexed in %.1f ms, index heap %d MB, "
+                        + "%d lookups in %.1f ms (%d found)%n", packed ? "packed" : "string",
+                packed ? packedIndex.size() : stringIndex.size(), buildTime / NANOS_PER_MILLI,
+                indexHeap / BYTES_PER_MEGABYTE, lookups.length, lookupTime / NANOS_PER_MILLI,
+                found);
+    }
+
+    private static String cardNumber(final Random random) {
+        char[] digits = new char[DIGITS];
+        for (int i = 0; i < DIGITS; i++) {
+            digits[i] = (char) ('0' + random.nextInt(DECIMAL));
+        }
+        return new String(digits);
+    }
+
+    private static long usedHeap() {
+        Runtime runtime = Runtime.getRuntime();
+        System.gc();
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+}
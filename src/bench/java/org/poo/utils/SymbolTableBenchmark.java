@@ -0,0 +1,131 @@
+package org.poo.utils;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import org.poo.fileio.CommandInput;
+import org.poo.fileio.ObjectInput;
+import org.poo.fileio.SymbolDeserializer;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Compares parsing a large input with and without interning the identifiers into the
+ * symbol table of a bank: the heap held by the parsed commands (and by the table), and
+ * the time to look their accounts up by IBAN in a
+ * hash map (against an index built from other String instances without interning, as
+ * accounts and commands are parsed and created apart) and by symbol id in an array.
+ * The input is a test file with its commands repeated a number of times.
+ */
+public final class SymbolTableBenchmark {
+    private static final double NANOS_PER_MILLI = 1_000_000.0;
+    private static final long BYTES_PER_KILOBYTE = 1024;
+    private static final int ROUNDS = 20;
+
+    private SymbolTableBenchmark() {
+        // Utility class
+    }
+
+    /**
+     * Runs the benchmark.
+     *
+     * @param args the input file and the number of copies of its commands
+     * @throws IOException if a file cannot be read or written
+     */
+    public static void main(final String[] args) throws IOException {
+        if (args.length != 2) {
+            System.err.println("Usage: SymbolTableBenchmark <input file> <copies>");
+            return;
+        }
+
+        ObjectMapper objectMapper = new ObjectMapper();
+        ObjectNode tree = (ObjectNode) objectMapper.readTree(new File(args[0]));
+        ArrayNode commands = objectMapper.createArrayNode();
+        for (int copy = 0; copy < Integer.parseInt(args[1]); copy++) {
+            for (JsonNode command : tree.get("commands")) {
+                commands.add(command);
+            }
+        }
+        tree.set("commands", commands);
+        File json = File.createTempFile("commands", ".json");
+        json.deleteOnExit();
+        objectMapper.writeValue(json, tree);
+
+        // Without a symbol table the identifiers are parsed as new Strings
+        long heapBefore = usedHeap();
+        ObjectInput plain = objectMapper.readValue(json, ObjectInput.class);
+        long plainHeap = usedHeap() - heapBefore;
+
+        heapBefore = usedHeap();
+        SymbolTable symbols = new SymbolTable();
+        ObjectInput interned = SymbolDeserializer.interning(objectMapper, symbols)
+                .readValue(json, ObjectInput.class);
+        long internedHeap = usedHeap() - heapBefore;
+
+        System.out.printf("%d commands: parsed heap %d KB plain, %d KB interned "
+                        + "(%d symbols, table included)%n", plain.getCommands().length,
+                plainHeap / BYTES_PER_KILOBYTE, internedHeap / BYTES_PER_KILOBYTE,
+                symbols.size());
+
+        Map<String, Integer> plainIndex = new HashMap<>();
+        Map<String, Integer> internedIndex = new HashMap<>();
+        int[] byId = new int[symbols.size()];
+        int[] commandIds = new int[interned.getCommands().length];
+        for (int i = 0; i < commandIds.length; i++) {
+            String account = interned.getCommands()[i].getAccount();
+            commandIds[i] = account != null ? symbols.idOf(account) : -1;
+            if (account != null) {
+                plainIndex.put(new String(account), i);
+                internedIndex.put(account, i);
+                byId[commandIds[i]] = i;
+            }
+        }
+
+        long plainTime = 0;
+        long internedTime = 0;
+        long idTime = 0;
+        long found = 0;
+        for (int round = 0; round < ROUNDS; round++) {
+            long start = System.nanoTime();
+            for (CommandInput command : plain.getCommands()) {
+                found += lookup(plainIndex, command.getAccount());
+            }
+            plainTime += System.nanoTime() - start;
+
+            start = System.nanoTime();
+            for (CommandInput command : interned.getCommands()) {
+                found += lookup(internedIndex, command.getAccount());
+            }
+            internedTime += System.nanoTime() - start;
+
+            start = System.nanoTime();
+            for (int id : commandIds) {
+                found += id >= 0 ? byId[id] : 0;
+            }
+            idTime += System.nanoTime() - start;
+        }
+
+        System.out.printf("account lookups: plain %.2f ms, interned %.2f ms, "
+                        + "by id %.2f ms (checksum %d)%n", plainTime / NANOS_PER_MILLI / ROUNDS,
+                internedTime / NANOS_PER_MILLI / ROUNDS, idTime / NANOS_PER_MILLI / ROUNDS,
+                found);
+    }
+
+    private static int lookup(final Map<String, Integer> index, final String key) {
+        if (key == null) {
+            return 0;
+        }
+        Integer value = index.get(key);
+        return value != null ? value : 0;
+    }
+
+    private static long usedHeap() {
+        Runtime runtime = Runtime.getRuntime();
+        System.gc();
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+}
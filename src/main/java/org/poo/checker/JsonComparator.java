@@ -0,0 +1,241 @@
+package org.poo.checker;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonPointer;
+import com.fasterxml.jackson.core.JsonStreamContext;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.NullNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+
+import java.io.File;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.regex.Pattern;
+
+/**
+ * Compares an output file with its reference token by token, rounding the decimals
+ * (the floating point numbers and the texts made of an amount and a currency) as they
+ * are read, without building the trees of the files.
+ * <p>
+ * Arrays are compared in order and objects regardless of the order of their fields, like
+ * JsonNode.equals does: while the fields of two objects come in the same order they are
+ * compared as they are read, from the first field out of order the remaining fields of
+ * both objects are read into trees and compared by name, the difference being searched
+ * down the two trees.
+ */
+public final class JsonComparator {
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+    private static final Pattern DECIMALS = Pattern.compile(CheckerConstants.DECIMALS_REGEX);
+    private static final int CURRENCY_LENGTH = 4;
+
+    private JsonComparator() {
+        // Utility class
+    }
+
+    /**
+     * Compares two files.
+     *
+     * @param output the output file
+     * @param ref the reference file
+     * @return null if they are equal, otherwise the JSON pointer of the first difference
+     * @throws IOException if a file cannot be read or is not valid JSON
+     */
+    public static String firstDifference(final File output, final File ref)
+            throws IOException {
+        try (JsonParser out = MAPPER.createParser(output);
+             JsonParser expected = MAPPER.createParser(ref)) {
+            return firstDifference(out, expected);
+        }
+    }
+
+    private static String firstDifference(final JsonParser out, final JsonParser ref)
+            throws IOException {
+        while (true) {
+            JsonToken token = out.nextToken();
+            JsonToken refToken = ref.nextToken();
+            if (token == null || refToken == null) {
+                return token == refToken ? null : pointer(token != null ? out : ref);
+            }
+
+            // The structures matched so far, so both parsers are inside an object here
+            if (token == JsonToken.FIELD_NAME || token == JsonToken.END_OBJECT) {
+                if (token == refToken && (token == JsonToken.END_OBJECT
+                        || out.currentName().equals(ref.currentName()))) {
+                    continue;
+                }
+                String difference = compareRemainingFields(out, token, ref, refToken);
+                if (difference != null) {
+                    return difference;
+                }
+                continue;
+            }
+
+            if (token != refToken || !sameValue(out, ref, token)) {
+                return pointer(out);
+            }
+        }
+    }
+
+    private static boolean sameValue(final JsonParser out, final JsonParser ref,
+                                     final JsonToken token) throws IOException {
+        switch (token) {
+            case VALUE_STRING:
+                return roundText(out.getText()).equals(roundText(ref.getText()));
+            case VALUE_NUMBER_FLOAT:
+                return round(out.getDoubleValue()).compareTo(round(ref.getDoubleValue())) == 0;
+            case VALUE_NUMBER_INT:
+                return out.getNumberType() == ref.getNumberType()
+                        && out.getNumberValue().equals(ref.getNumberValue());
+            default:
+                return true;
+        }
+    }
+
+    /**
+     * Reads the rest of the objects both parsers are in, from their current field, and
+     * compares the fields by name.
+     */
+    private static String compareRemainingFields(final JsonParser out, final JsonToken token,
+                                                 final JsonParser ref,
+                                                 final JsonToken refToken)
+            throws IOException {
+        JsonStreamContext context = out.getParsingContext();
+        JsonPointer object = (token == JsonToken.END_OBJECT ? context : context.getParent())
+                .pathAsPointer();
+
+        Map<String, JsonNode> fields = readRemainingFields(out, token);
+        Map<String, JsonNode> refFields = readRemainingFields(ref, refToken);
+        for (Map.Entry<String, JsonNode> field : fields.entrySet()) {
+            JsonPointer difference = difference(object.appendProperty(field.getKey()),
+                    field.getValue(), refFields.get(field.getKey()));
+            if (difference != null) {
+                return toString(difference);
+            }
+        }
+        for (String name : refFields.keySet()) {
+            if (!fields.containsKey(name)) {
+                return toString(object.appendProperty(name));
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Finds the first difference between two trees, in the order of the fields of the
+     * output.
+     *
+     * @return null if they are equal, otherwise the pointer of the difference
+     */
+    private static JsonPointer difference(final JsonPointer at, final JsonNode node,
+                                          final JsonNode refNode) {
+        if (Objects.equals(node, refNode)) {
+            return null;
+        }
+        if (refNode == null || node.getNodeType() != refNode.getNodeType()) {
+            return at;
+        }
+
+        if (node.isObject()) {
+            Iterator<Map.Entry<String, JsonNode>> fields = node.fields();
+            while (fields.hasNext()) {
+                Map.Entry<String, JsonNode> field = fields.next();
+                JsonPointer difference = difference(at.appendProperty(field.getKey()),
+                        field.getValue(), refNode.get(field.getKey()));
+                if (difference != null) {
+                    return difference;
+                }
+            }
+            Iterator<String> refNames = refNode.fieldNames();
+            while (refNames.hasNext()) {
+                String name = refNames.next();
+                if (!node.has(name)) {
+                    return at.appendProperty(name);
+                }
+            }
+        } else if (node.isArray()) {
+            int common = Math.min(node.size(), refNode.size());
+            for (int i = 0; i < common; i++) {
+                JsonPointer difference = difference(at.appendIndex(i), node.get(i),
+                        refNode.get(i));
+                if (difference != null) {
+                    return difference;
+                }
+            }
+            return at.appendIndex(common);
+        }
+        return at;
+    }
+
+    private static Map<String, JsonNode> readRemainingFields(final JsonParser parser,
+                                                             final JsonToken token)
+            throws IOException {
+        Map<String, JsonNode> fields = new LinkedHashMap<>();
+        JsonToken current = token;
+        while (current == JsonToken.FIELD_NAME) {
+            String name = parser.currentName();
+            parser.nextToken();
+            JsonNode value = MAPPER.readTree(parser);
+            fields.put(name, roundDecimals(value != null ? value : NullNode.getInstance()));
+            current = parser.nextToken();
+        }
+        return fields;
+    }
+
+    private static JsonNode roundDecimals(final JsonNode node) {
+        if (node.isObject()) {
+            ObjectNode objectNode = (ObjectNode) node;
+            Iterator<String> fieldNames = objectNode.fieldNames();
+            while (fieldNames.hasNext()) {
+                String fieldName = fieldNames.next();
+                objectNode.set(fieldName, roundDecimals(objectNode.get(fieldName)));
+            }
+        } else if (node.isArray()) {
+            ArrayNode arrayNode = (ArrayNode) node;
+            for (int i = 0; i < arrayNode.size(); i++) {
+                arrayNode.set(i, roundDecimals(arrayNode.get(i)));
+            }
+        } else if (node.isNumber() && node.isFloatingPointNumber()) {
+            return MAPPER.getNodeFactory().numberNode(round(node.asDouble()));
+        } else if (node.isTextual()) {
+            return MAPPER.getNodeFactory().textNode(roundText(node.asText()));
+        }
+        return node;
+    }
+
+    private static BigDecimal round(final double value) {
+        return BigDecimal.valueOf(value)
+                .setScale(CheckerConstants.DECIMAL_POINTS, RoundingMode.HALF_UP);
+    }
+
+    /**
+     * Rounds the amount of a text made of an amount and a currency, returns any other
+     * text as it is.
+     */
+    private static String roundText(final String text) {
+        // Only texts ending in " XXX" can match, skip the others before the regex
+        int separator = text.length() - CURRENCY_LENGTH;
+        if (separator < 1 || text.charAt(separator) != ' '
+                || !DECIMALS.matcher(text).matches()) {
+            return text;
+        }
+        String[] words = text.split(" ");
+        return round(Double.parseDouble(words[0])) + " " + words[1];
+    }
+
+    private static String pointer(final JsonParser parser) {
+        return toString(parser.getParsingContext().pathAsPointer());
+    }
+
+    private static String toString(final JsonPointer pointer) {
+        String path = pointer.toString();
+        return path.isEmpty() ? "/" : path;
+    }
+}
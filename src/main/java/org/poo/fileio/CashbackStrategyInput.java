@@ -0,0 +1,12 @@
+package org.poo.fileio;
+
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+public final class CashbackStrategyInput {
+    private String name;
+    private String type;
+    private String[] categories;
+}
@@ -1,5 +1,6 @@
 package org.poo.fileio;
 
+import com.fasterxml.jackson.databind.annotation.JsonDeserialize;
 import lombok.Data;
 import lombok.NoArgsConstructor;
 
@@ -9,15 +10,21 @@ import java.util.List;
 @NoArgsConstructor
 public final class CommandInput {
     private String command;
+    @JsonDeserialize(using = SymbolDeserializer.class)
     private String email;
+    @JsonDeserialize(using = SymbolDeserializer.class)
     private String account;
     private String newPlanType;
     private String role;
+    @JsonDeserialize(using = SymbolDeserializer.class)
     private String currency;
     private String target;
     private String description;
+    @JsonDeserialize(using = SymbolDeserializer.class)
     private String cardNumber;
+    @JsonDeserialize(using = SymbolDeserializer.class)
     private String commerciant;
+    @JsonDeserialize(using = SymbolDeserializer.class)
     private String receiver;
     private String alias;
     private String accountType;
@@ -32,6 +39,10 @@ public final class CommandInput {
     private double depositLimit;
     private double amount;
     private double minBalance;
+    @JsonDeserialize(contentUsing = SymbolDeserializer.class)
     private List<String> accounts;
     private List<Double> amountForUsers;
+    private Integer limit;
+    private String cursor;
+    private Integer fromTimestamp;
 }
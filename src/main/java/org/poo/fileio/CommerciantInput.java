@@ -1,5 +1,6 @@
 package org.poo.fileio;
 
+import com.fasterxml.jackson.databind.annotation.JsonDeserialize;
 import lombok.Data;
 import lombok.NoArgsConstructor;
 
@@ -8,8 +9,10 @@ import java.util.List;
 @Data
 @NoArgsConstructor
 public final class CommerciantInput {
+    @JsonDeserialize(using = SymbolDeserializer.class)
     private String commerciant;
     private int id;
+    @JsonDeserialize(using = SymbolDeserializer.class)
     private String account;
     private String type;
     private String cashbackStrategy;
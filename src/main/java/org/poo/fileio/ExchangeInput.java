@@ -1,12 +1,15 @@
 package org.poo.fileio;
 
+import com.fasterxml.jackson.databind.annotation.JsonDeserialize;
 import lombok.Data;
 import lombok.NoArgsConstructor;
 
 @Data
 @NoArgsConstructor
 public final class ExchangeInput {
+    @JsonDeserialize(using = SymbolDeserializer.class)
     private String from;
+    @JsonDeserialize(using = SymbolDeserializer.class)
     private String to;
     private double rate;
     private int timestamp;
@@ -0,0 +1,13 @@
+package org.poo.fileio;
+
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+public final class PlanPolicyInput {
+    private String name;
+    private double commissionRate;
+    private double commissionThreshold;
+    private double[] cashbackRates;
+}
@@ -0,0 +1,14 @@
+package org.poo.fileio;
+
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+public final class PolicyInput {
+    private PlanPolicyInput[] plans;
+    private double[] cashbackThresholds;
+    private double cashbackEligibility;
+    private UpgradeFeeInput[] upgradeFees;
+    private CashbackStrategyInput[] cashbackStrategies;
+}
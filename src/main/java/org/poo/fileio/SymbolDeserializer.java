@@ -0,0 +1,69 @@
+package org.poo.fileio;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.databind.DeserializationContext;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.databind.deser.std.StdDeserializer;
+import org.poo.utils.SymbolTable;
+
+import java.io.IOException;
+
+/**
+ * Reads an identifier of the input (IBAN, email, card number, currency, merchant).
+ * A reader made by interning adds every identifier to a SymbolTable and reads its
+ * canonical instance, one made by sharing only reads the canonical instance of the
+ * identifiers already in the table; any other reader reads a new String.
+ */
+public final class SymbolDeserializer extends StdDeserializer<String> {
+    private static final long serialVersionUID = 1L;
+    private static final String SYMBOLS = "symbols";
+    private static final String ADD = "addSymbols";
+
+    public SymbolDeserializer() {
+        super(String.class);
+    }
+
+    /**
+     * Creates a reader adding the identifiers it parses to a table. Meant for trusted
+     * inputs, which are kept in memory whole anyway.
+     *
+     * @param objectMapper the mapper the reader is made from
+     * @param symbols the table of the bank the input is for
+     * @return the reader
+     */
+    public static ObjectReader interning(final ObjectMapper objectMapper,
+                                         final SymbolTable symbols) {
+        return objectMapper.reader().withAttribute(SYMBOLS, symbols).withAttribute(ADD, true);
+    }
+
+    /**
+     * Creates a reader replacing the identifiers already in a table by their canonical
+     * instance, without adding the others. Meant for untrusted input, such as the
+     * commands received by a server.
+     *
+     * @param objectMapper the mapper the reader is made from
+     * @param symbols the table of the bank the input is for
+     * @return the reader
+     */
+    public static ObjectReader sharing(final ObjectMapper objectMapper,
+                                       final SymbolTable symbols) {
+        return objectMapper.reader().withAttribute(SYMBOLS, symbols).withAttribute(ADD, false);
+    }
+
+    @Override
+    public String deserialize(final JsonParser parser, final DeserializationContext context)
+            throws IOException {
+        String value = parser.getValueAsString();
+        if (value == null) {
+            return (String) context.handleUnexpectedToken(String.class, parser);
+        }
+
+        SymbolTable symbols = (SymbolTable) context.getAttribute(SYMBOLS);
+        if (symbols == null) {
+            return value;
+        }
+        return Boolean.TRUE.equals(context.getAttribute(ADD))
+                ? symbols.canonical(value) : symbols.share(value);
+    }
+}
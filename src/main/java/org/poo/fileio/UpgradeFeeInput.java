@@ -0,0 +1,12 @@
+package org.poo.fileio;
+
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+public final class UpgradeFeeInput {
+    private String from;
+    private String to;
+    private double fee;
+}
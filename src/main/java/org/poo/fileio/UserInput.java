@@ -1,5 +1,6 @@
 package org.poo.fileio;
 
+import com.fasterxml.jackson.databind.annotation.JsonDeserialize;
 import lombok.Data;
 import lombok.NoArgsConstructor;
 
@@ -8,6 +9,7 @@ import lombok.NoArgsConstructor;
 public final class UserInput {
     private String firstName;
     private String lastName;
+    @JsonDeserialize(using = SymbolDeserializer.class)
     private String email;
     private String birthDate;
     private String occupation;
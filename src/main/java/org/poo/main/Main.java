@@ -6,10 +6,9 @@ import com.fasterxml.jackson.databind.node.ArrayNode;
 import org.poo.checker.Checker;
 import org.poo.checker.CheckerConstants;
 import org.poo.fileio.ObjectInput;
-import org.poo.main.commerciant.Commerciant;
+import org.poo.fileio.SymbolDeserializer;
 import org.poo.main.bank.BankSystem;
-import org.poo.main.exchange_rate.ExchangeRate;
-import org.poo.main.user.User;
+import org.poo.utils.SymbolTable;
 
 import java.io.File;
 import java.io.IOException;
@@ -74,44 +73,15 @@ public final class Main {
                               final String filePath2) throws IOException {
         ObjectMapper objectMapper = new ObjectMapper();
         File file = new File(CheckerConstants.TESTS_PATH + filePath1);
-        ObjectInput inputData = objectMapper.readValue(file, ObjectInput.class);
+        // The identifiers of the input are interned into the symbol table of the bank
+        SymbolTable symbols = new SymbolTable();
+        ObjectInput inputData = SymbolDeserializer.interning(objectMapper, symbols)
+                .readValue(file, ObjectInput.class);
 
         ArrayNode output = objectMapper.createArrayNode();
 
-        BankSystem bankSystem = new BankSystem();
-
-        // Parsing the users from input and adding them to the bank system
-        for (var userInput : inputData.getUsers()) {
-            User user = new User(
-                    userInput.getFirstName(),
-                    userInput.getLastName(),
-                    userInput.getEmail(),
-                    userInput.getBirthDate(),
-                    userInput.getOccupation());
-            bankSystem.addUser(user);
-        }
-
-        // Parsing the exchange rates from input and adding them to the bank system
-        for (var exchangeRateInput : inputData.getExchangeRates()) {
-            ExchangeRate exchangeRate = new ExchangeRate(
-                    exchangeRateInput.getFrom(),
-                    exchangeRateInput.getTo(),
-                    exchangeRateInput.getRate()
-            );
-            bankSystem.addExchangeRate(exchangeRate);
-        }
-
-        // Parsing the merchants from input and adding them to the bank system
-        for (var commerciantInput : inputData.getCommerciants()) {
-            Commerciant commerciant = new Commerciant(
-                    commerciantInput.getCommerciant(),
-                    commerciantInput.getId(),
-                    commerciantInput.getAccount(),
-                    commerciantInput.getType(),
-                    commerciantInput.getCashbackStrategy()
-            );
-            bankSystem.addCommerciant(commerciant);
-        }
+        // Loading the policies, users, exchange rates and merchants from input
+        BankSystem bankSystem = BankSystem.fromInput(inputData, symbols);
 
         // Process the commands from the input and generate the output
         bankSystem.processCommands(inputData.getCommands(), output);
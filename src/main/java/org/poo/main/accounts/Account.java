@@ -1,37 +1,39 @@
 package org.poo.main.accounts;
 
 import org.poo.main.cashback.CashbackInfo;
+import org.poo.main.cashback.MerchantCashbackState;
 import org.poo.main.commerciant.Commerciant;
 import org.poo.main.cards.Card;
 import org.poo.main.exchange_rate.ExchangeRate;
+import org.poo.main.policy.PolicyEngine;
 import org.poo.main.user.User;
 
 import java.util.ArrayList;
-import java.util.HashMap;
 import java.util.List;
-import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
 
 /**
  * Abstract class representing a bank account.
  */
 public abstract class Account {
     private String iban;
-    private double balance;
+    private final AtomicLong balanceBits; // Raw bits of the balance, updated with CAS
     private String currency;
     private String accountType;
     private String ownerEmail;
     private String alias;
-    private double minBalance;
+    private volatile double minBalance;
     private List<Card> cards; // List of cards associated with the account
     private String accountPlan;
-    private double totalSpendingThreshold;
+    private final AtomicLong spendingThresholdBits; // Raw bits, updated with CAS
 
-    private final Map<Commerciant, CashbackInfo> cashbackInfo;
-    private static final double THRESHOLD_100 = 100.0;
+    private final MerchantCashbackState cashbackState; // Payments per merchant id
+    private final AtomicInteger version = new AtomicInteger(); // Changes of what is printed
 
     public Account(final String currency, final String type, final String ownerEmail,
                    final String iban) {
-        this.balance = 0;
+        this.balanceBits = new AtomicLong(Double.doubleToRawLongBits(0.0));
         this.currency = currency;
         this.iban = iban;
         this.accountType = type;
@@ -41,8 +43,26 @@ public abstract class Account {
         this.cards = new ArrayList<>();
         this.accountPlan = null;
 
-        this.cashbackInfo = new HashMap<>();
-        this.totalSpendingThreshold = 0.0;
+        this.cashbackState = new MerchantCashbackState();
+        this.spendingThresholdBits = new AtomicLong(Double.doubleToRawLongBits(0.0));
+    }
+
+    /**
+     * Returns the version of the account, increased every time its balance, its cards
+     * or the status of a card change.
+     *
+     * @return the version
+     */
+    public int getVersion() {
+        return version.get();
+    }
+
+    /**
+     * Marks the account as changed, so that the users printed with it are rendered
+     * again on the next printUsers.
+     */
+    public void markChanged() {
+        version.incrementAndGet();
     }
 
     /**
@@ -51,7 +71,7 @@ public abstract class Account {
      * @return the balance
      */
     public double getBalance() {
-        return balance;
+        return Double.longBitsToDouble(balanceBits.get());
     }
 
     /**
@@ -161,7 +181,8 @@ public abstract class Account {
      * @param amount the new balance to set
      */
     public void setBalance(final double amount) {
-        this.balance = amount;
+        balanceBits.set(Double.doubleToRawLongBits(amount));
+        markChanged();
     }
 
     /**
@@ -171,7 +192,7 @@ public abstract class Account {
      * @return the total spending threshold
      */
     public double getTotalSpendingThreshold() {
-        return totalSpendingThreshold;
+        return Double.longBitsToDouble(spendingThresholdBits.get());
     }
 
     /**
@@ -181,7 +202,16 @@ public abstract class Account {
      * @param amount the amount to add
      */
     public void addToTotalSpendingThreshold(final double amount) {
-        this.totalSpendingThreshold += amount;
+        add(spendingThresholdBits, amount);
+    }
+
+    /**
+     * Records a payment made to a merchant, for its cashback strategy.
+     *
+     * @param commerciant the merchant that was paid
+     */
+    public void recordMerchantPayment(final Commerciant commerciant) {
+        cashbackState.recordPayment(commerciant.getId());
     }
 
     /**
@@ -192,6 +222,7 @@ public abstract class Account {
     public void addCard(final Card card) {
         if (!cards.contains(card)) {
             cards.add(card);
+            markChanged();
         }
     }
 
@@ -201,7 +232,9 @@ public abstract class Account {
      * @param card the card to remove
      */
     public void removeCard(final Card card) {
-        cards.remove(card);
+        if (cards.remove(card)) {
+            markChanged();
+        }
     }
 
     /**
@@ -210,7 +243,8 @@ public abstract class Account {
      * @param amount the amount to deposit
      */
     public void deposit(final double amount) {
-        balance += amount;
+        add(balanceBits, amount);
+        markChanged();
     }
 
     /**
@@ -219,7 +253,39 @@ public abstract class Account {
      * @param amount the amount to spend
      */
     public void spend(final double amount) {
-        balance -= amount;
+        add(balanceBits, -amount);
+        markChanged();
+    }
+
+    /**
+     * Spends an amount from the account only if the balance covers it.
+     * The check and the debit are one atomic step, without taking any lock.
+     *
+     * @param amount the amount to spend
+     * @return true if the amount was spent, false if the funds were insufficient
+     */
+    public boolean tryDebit(final double amount) {
+        long current;
+        double balance;
+        do {
+            current = balanceBits.get();
+            balance = Double.longBitsToDouble(current);
+            if (balance < amount) {
+                return false;
+            }
+        } while (!balanceBits.compareAndSet(current,
+                Double.doubleToRawLongBits(balance - amount)));
+        markChanged();
+        return true;
+    }
+
+    private static void add(final AtomicLong bits, final double delta) {
+        long current;
+        long updated;
+        do {
+            current = bits.get();
+            updated = Double.doubleToRawLongBits(Double.longBitsToDouble(current) + delta);
+        } while (!bits.compareAndSet(current, updated));
     }
 
     /**
@@ -227,6 +293,7 @@ public abstract class Account {
      */
     public void clearCards() {
         cards.clear();
+        markChanged();
     }
 
     /**
@@ -370,48 +437,33 @@ public abstract class Account {
      * @param commerciant the merchant involved in the transaction
      * @param accCurrency the currency of the account
      * @param exchangeRates the list of exchange rates for currency conversion
-     * @return the cashback strategy if applicable, otherwise null
+     * @param policies the fee and cashback policies of the bank
+     * @return the cashback kind if applicable, otherwise PolicyEngine.CASHBACK_NONE
      * @throws IllegalArgumentException if the merchant or exchange rates are null
      */
-    public String isApplyingCashback(final Commerciant commerciant, final String accCurrency,
-                                     final List<ExchangeRate> exchangeRates) {
+    public int isApplyingCashback(final Commerciant commerciant, final String accCurrency,
+                                  final List<ExchangeRate> exchangeRates,
+                                  final PolicyEngine policies) {
         if (commerciant == null || exchangeRates == null) {
             throw new IllegalArgumentException("Merchant and exchange rates cannot be null.");
         }
 
-        // Retrieve the merchant's cashback strategy and category
-        String strategy = commerciant.getCashbackStrategy();
-        String category = commerciant.getType(); // E.g., Food, Clothes, Tech
-
-        // Check for 'spendingThreshold' strategy
-        if ("spendingThreshold".equals(strategy)) {
-            double totalSpentForThreshold = this.getTotalSpendingThreshold();
-
-            // Convert threshold to account currency
-            double threshold100 = THRESHOLD_100;
-            if (!accCurrency.equals("RON")) {
-                double exchangeRate = ExchangeRate.getExchangeRate("RON",
-                                                            accCurrency, exchangeRates);
-                threshold100 = threshold100 * exchangeRate;
+        // The merchant strategy (and its categories) was compiled when it was registered
+        switch (commerciant.getCashbackKind()) {
+            case PolicyEngine.CASHBACK_SPENDING_THRESHOLD -> {
+                if (policies.reachesCashbackThreshold(getTotalSpendingThreshold(),
+                        accCurrency, exchangeRates)) {
+                    return PolicyEngine.CASHBACK_SPENDING_THRESHOLD;
+                }
+                return PolicyEngine.CASHBACK_NONE;
             }
-
-            // Check if the spending threshold is met
-            if (totalSpentForThreshold >= threshold100) {
-                return "spendingThreshold";
+            case PolicyEngine.CASHBACK_NR_OF_TRANSACTIONS -> {
+                return PolicyEngine.CASHBACK_NR_OF_TRANSACTIONS;
             }
-        }
-
-        // Check for 'nrOfTransactions' strategy
-        if ("nrOfTransactions".equals(strategy)) {
-            // Validate merchant categories for transaction-based cashback
-            if (category.equalsIgnoreCase("Food")
-                    || category.equalsIgnoreCase("Clothes")
-                    || category.equalsIgnoreCase("Tech")) {
-                return "nrOfTransactions";
+            default -> {
+                return PolicyEngine.CASHBACK_NONE; // No applicable cashback strategy
             }
         }
-
-        return null; // No applicable cashback strategy
     }
 
     /**
@@ -419,36 +471,36 @@ public abstract class Account {
      *
      * @param commerciant the merchant involved in the transaction
      * @param amount the transaction amount
-     * @param cashbackType the cashback strategy (e.g., "nrOfTransactions", "spendingThreshold")
+     * @param cashbackKind the cashback kind returned by isApplyingCashback
      * @param transactionCurrency the currency of the transaction
      * @param paymentCurrency the payment currency
      * @param exchangeRates the list of exchange rates for currency conversion
      * @param user the user associated with the account
+     * @param policies the fee and cashback policies of the bank
      * @return the calculated cashback amount
      * @throws IllegalArgumentException if the merchant or user are null
      */
     public double applyCashbackForTransaction(final Commerciant commerciant,
                                               final double amount,
-                                              final String cashbackType,
+                                              final int cashbackKind,
                                               final String transactionCurrency,
                                               final String paymentCurrency,
                                               final List<ExchangeRate> exchangeRates,
-                                              final User user) {
+                                              final User user,
+                                              final PolicyEngine policies) {
         if (commerciant == null || user == null) {
             throw new IllegalArgumentException("Merchant and user cannot be null.");
         }
 
-        // Retrieve the user's account plan and merchant cashback info
-        String plan = user.getAccountPlan();
-        CashbackInfo info = cashbackInfo.getOrDefault(commerciant, new CashbackInfo());
         double cashback = 0.0;
 
         // Apply the appropriate cashback strategy
-        if ("nrOfTransactions".equals(cashbackType)) {
-            cashback = info.calculateTransactionCashback(amount, commerciant);
-        } else if ("spendingThreshold".equals(cashbackType)) {
-            cashback = info.calculateSpendingCashback(amount, plan,
-                    transactionCurrency, paymentCurrency, exchangeRates, this);
+        if (cashbackKind == PolicyEngine.CASHBACK_NR_OF_TRANSACTIONS) {
+            cashback = CashbackInfo.calculateTransactionCashback(amount, commerciant,
+                    cashbackState.getTransactionCount(commerciant.getId()));
+        } else if (cashbackKind == PolicyEngine.CASHBACK_SPENDING_THRESHOLD) {
+            cashback = CashbackInfo.calculateSpendingCashback(amount, user.getPlanId(),
+                    transactionCurrency, paymentCurrency, exchangeRates, this, policies);
         }
 
         return cashback;
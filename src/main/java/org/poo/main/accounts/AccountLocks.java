@@ -0,0 +1,110 @@
+package org.poo.main.accounts;
+
+import java.util.Arrays;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Striped locks guarding operations that read and update several balances together
+ * (transfers, split payments). Every account maps to one of a fixed number of stripes;
+ * the stripes of an operation are always taken in ascending order, so two operations
+ * can never wait on each other in a cycle.
+ * <p>
+ * Single-account debits do not take a stripe, see Account.tryDebit. An operation holding
+ * stripes must therefore debit with tryDebit too: a balance checked under the stripes can
+ * still be lowered by a concurrent card payment before it is spent.
+ */
+public final class AccountLocks {
+    private static final int STRIPES = 64; // Power of two
+    private static final ReentrantLock[] LOCKS = new ReentrantLock[STRIPES];
+
+    static {
+        for (int i = 0; i < STRIPES; i++) {
+            LOCKS[i] = new ReentrantLock();
+        }
+    }
+
+    private AccountLocks() {
+        // Utility class
+    }
+
+    /**
+     * Locks the stripes of the given accounts, in ascending stripe order.
+     * Null accounts are ignored.
+     *
+     * @param accounts the accounts to lock
+     * @return the locked stripes, to be passed to unlock
+     */
+    public static int[] lock(final Account... accounts) {
+        int[] stripes = new int[accounts.length];
+        int count = 0;
+        for (Account account : accounts) {
+            if (account != null) {
+                stripes[count++] = stripeOf(account);
+            }
+        }
+
+        Arrays.sort(stripes, 0, count);
+        int distinct = 0;
+        for (int i = 0; i < count; i++) {
+            if (distinct == 0 || stripes[distinct - 1] != stripes[i]) {
+                stripes[distinct++] = stripes[i];
+            }
+        }
+        int[] locked = Arrays.copyOf(stripes, distinct);
+
+        for (int stripe : locked) {
+            LOCKS[stripe].lock();
+        }
+        return locked;
+    }
+
+    /**
+     * Moves money between two accounts: debits the sender if its balance covers the
+     * debit, and only then credits the receiver. The two balances are updated while
+     * holding the stripes of both accounts.
+     *
+     * @param sender the account to debit
+     * @param debit the amount to debit, in the currency of the sender
+     * @param receiver the account to credit
+     * @param credit the amount to credit, in the currency of the receiver
+     * @return true if the money was moved, false if the sender had insufficient funds
+     */
+    public static boolean transfer(final Account sender, final double debit,
+                                   final Account receiver, final double credit) {
+        // Two stripes at most, taken in ascending order without building an array
+        int low = Math.min(stripeOf(sender), stripeOf(receiver));
+        int high = Math.max(stripeOf(sender), stripeOf(receiver));
+        LOCKS[low].lock();
+        if (high != low) {
+            LOCKS[high].lock();
+        }
+        try {
+            if (!sender.tryDebit(debit)) {
+                return false;
+            }
+            receiver.deposit(credit);
+            return true;
+        } finally {
+            if (high != low) {
+                LOCKS[high].unlock();
+            }
+            LOCKS[low].unlock();
+        }
+    }
+
+    /**
+     * Unlocks the stripes returned by lock, in reverse order.
+     *
+     * @param stripes the locked stripes
+     */
+    public static void unlock(final int[] stripes) {
+        for (int i = stripes.length - 1; i >= 0; i--) {
+            LOCKS[stripes[i]].unlock();
+        }
+    }
+
+    private static int stripeOf(final Account account) {
+        int h = System.identityHashCode(account);
+        return (h ^ (h >>> 16)) & (STRIPES - 1);
+    }
+}
@@ -0,0 +1,469 @@
+package org.poo.main.accounts;
+
+import org.poo.main.cards.Card;
+import org.poo.main.user.User;
+import org.poo.utils.LongHashMap;
+import org.poo.utils.PackedId;
+import org.poo.utils.SymbolTable;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.function.BiConsumer;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * The open accounts of a bank with their owners, indexed by IBAN and by type, currency
+ * and plan of the owner, so that batch operations and reports iterate only the accounts
+ * they are about instead of every account of every user. The cards of the accounts are
+ * indexed by card number.
+ * <p>
+ * IBANs and card numbers are keyed by their PackedId in primitive maps. The registry
+ * holds the SymbolTable of the bank, the ids of the values that do not pack come from it.
+ * <p>
+ * The indexes are maintained by the commands opening and closing accounts, adding
+ * business associates and changing plans. Every index keeps the accounts in the order
+ * they were opened. Lookups return snapshots, so the registry can be updated while they
+ * are iterated.
+ * <p>
+ * Deleting an account removes it only from the list of its owner, business associates
+ * keep it in theirs. Such an account is no longer open, but findByIban still finds it
+ * while an associate holds it, like the scans of Tools over the accounts of the users.
+ * <p>
+ * Aliases are indexed case-insensitively with every account they were given to, the
+ * first account holding an alias being found like the scans do.
+ * <p>
+ * Lookups share a read lock and updates take the write lock, so payments on different
+ * accounts look them up concurrently.
+ */
+public final class AccountRegistry {
+    private final Set<Account> accounts = new LinkedHashSet<>();
+    private final LongHashMap<Account> byIban = new LongHashMap<>();
+    private final LongHashMap<Card> cards = new LongHashMap<>();
+    private final Map<Account, User> owners = new IdentityHashMap<>();
+    private final Map<User, Set<Account>> byOwner = new IdentityHashMap<>();
+    private final Map<String, Set<Account>> byType = new HashMap<>();
+    private final Map<String, Set<Account>> byCurrency = new HashMap<>();
+    private final Map<String, Set<Account>> byPlan = new HashMap<>();
+    private final Map<Account, Set<User>> associates = new IdentityHashMap<>();
+    private final List<Account> heldAccounts = new ArrayList<>(); // Every holding, in order
+    private final List<User> holders = new ArrayList<>();
+    private final Map<User, Integer> userOrder = new IdentityHashMap<>();
+    private final Map<String, List<Account>> byAlias = new HashMap<>(); // Every alias given
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private final SymbolTable symbols;
+
+    public AccountRegistry() {
+        this(new SymbolTable());
+    }
+
+    /**
+     * Creates an empty registry.
+     *
+     * @param symbols the symbol table of the bank
+     */
+    public AccountRegistry(final SymbolTable symbols) {
+        this.symbols = symbols;
+    }
+
+    /**
+     * Gets the symbol table of the bank.
+     *
+     * @return the symbol table
+     */
+    public SymbolTable getSymbols() {
+        return symbols;
+    }
+
+    /**
+     * Registers a user of the bank. The users are ranked in the order they are
+     * registered, the order of the user list of the bank.
+     *
+     * @param user the user
+     */
+    public void registerUser(final User user) {
+        lock.writeLock().lock();
+        try {
+            userOrder.putIfAbsent(user, userOrder.size());
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Registers an account that was just opened.
+     *
+     * @param account the account
+     * @param owner the user who opened it
+     */
+    public void register(final Account account, final User owner) {
+        lock.writeLock().lock();
+        try {
+            accounts.add(account);
+            byIban.put(PackedId.ofIban(account.getIban(), symbols), account);
+            for (Card card : account.getCards()) {
+                registerCard(card);
+            }
+            owners.put(account, owner);
+            heldAccounts.add(account);
+            holders.add(owner);
+            add(byOwner, owner, account);
+            add(byType, account.getAccountType(), account);
+            add(byCurrency, account.getCurrency(), account);
+            add(byPlan, owner.getAccountPlan(), account);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Removes an account that was closed, with its cards.
+     *
+     * @param account the account
+     */
+    public void unregister(final Account account) {
+        lock.writeLock().lock();
+        try {
+            User owner = owners.remove(account);
+            if (owner == null) {
+                return;
+            }
+            accounts.remove(account);
+            if (!associates.containsKey(account)) {
+                byIban.remove(PackedId.findIban(account.getIban(), symbols));
+            }
+            for (Card card : account.getCards()) {
+                unregisterCard(card);
+            }
+            remove(byOwner, owner, account);
+            remove(byType, account.getAccountType(), account);
+            remove(byCurrency, account.getCurrency(), account);
+            remove(byPlan, owner.getAccountPlan(), account);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Records that a business associate added an account to its list, so that the
+     * account stays findable by IBAN after its owner deletes it.
+     *
+     * @param account the business account
+     * @param associate the user it was added to
+     */
+    public void registerAssociate(final Account account, final User associate) {
+        lock.writeLock().lock();
+        try {
+            if (associates.computeIfAbsent(account, a -> new LinkedHashSet<>()).add(associate)) {
+                heldAccounts.add(account);
+                holders.add(associate);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Registers a card that was just created.
+     *
+     * @param card the card
+     */
+    public void registerCard(final Card card) {
+        lock.writeLock().lock();
+        try {
+            cards.put(PackedId.ofCardNumber(card.getCardNumber(), symbols), card);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Removes a card that was destroyed.
+     *
+     * @param card the card
+     */
+    public void unregisterCard(final Card card) {
+        lock.writeLock().lock();
+        try {
+            long key = PackedId.findCardNumber(card.getCardNumber(), symbols);
+            if (cards.get(key) == card) {
+                cards.remove(key);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Moves the accounts of a user to the plan index of its new plan. To be called
+     * before the plan of the user is changed.
+     *
+     * @param owner the user
+     * @param newPlan the new plan of the user
+     */
+    public void changePlan(final User owner, final String newPlan) {
+        lock.writeLock().lock();
+        try {
+            for (Account account : byOwner.getOrDefault(owner, Collections.emptySet())) {
+                remove(byPlan, owner.getAccountPlan(), account);
+                add(byPlan, newPlan, account);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Finds an account by its IBAN: an open account, or a deleted business account still
+     * held by an associate.
+     *
+     * @param iban the IBAN
+     * @return the account, or null if there is none
+     */
+    public Account findByIban(final String iban) {
+        lock.readLock().lock();
+        try {
+            return iban != null ? byIban.get(PackedId.findIban(iban, symbols)) : null;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Finds a card of an open account by its number.
+     *
+     * @param cardNumber the card number
+     * @return the card, or null if there is none
+     */
+    public Card findCard(final String cardNumber) {
+        lock.readLock().lock();
+        try {
+            return cardNumber != null
+                    ? cards.get(PackedId.findCardNumber(cardNumber, symbols)) : null;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Gets the user who opened an account.
+     *
+     * @param account the account
+     * @return the owner, or null if the account is not open
+     */
+    public User getOwner(final Account account) {
+        lock.readLock().lock();
+        try {
+            return owners.get(account);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Finds the user holding an account in its list: the owner while the account is open,
+     * or a business associate it was added to. Of several holders, the first registered
+     * user is found, the one Tools.findUserByAccount finds by scanning every user.
+     *
+     * @param iban the IBAN of the account
+     * @return the holder, or null if no user holds the account
+     */
+    public User findHolder(final String iban) {
+        lock.readLock().lock();
+        try {
+            Account account = iban != null ? byIban.get(PackedId.findIban(iban, symbols)) : null;
+            return account != null ? holderOf(account) : null;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Gives an account an alias.
+     *
+     * @param account the account
+     * @param alias the alias, may be null
+     */
+    public void setAlias(final Account account, final String alias) {
+        lock.writeLock().lock();
+        try {
+            account.setAlias(alias);
+            if (alias != null) {
+                List<Account> given = byAlias.computeIfAbsent(foldCase(alias),
+                        a -> new ArrayList<>());
+                if (!given.contains(account)) {
+                    given.add(account);
+                }
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Finds an account by its alias, ignoring case. Of several accounts with the alias,
+     * finds the one Tools.findAccountByAlias finds by scanning the accounts of every
+     * user: the first one in the list of the first registered user holding one.
+     *
+     * @param alias the alias
+     * @return the account, or null if no account held by a user has the alias
+     */
+    public Account findByAlias(final String alias) {
+        if (alias == null || alias.isEmpty()) {
+            return null;
+        }
+        lock.readLock().lock();
+        try {
+            Account found = null;
+            User foundHolder = null;
+            for (Account account : byAlias.getOrDefault(foldCase(alias), List.of())) {
+                User holder = holderOf(account);
+                if (holder == null || !alias.equalsIgnoreCase(account.getAlias())) {
+                    continue;
+                }
+                if (found == null || rank(holder) < rank(foundHolder)
+                        || holder == foundHolder && holder.getAccounts().indexOf(account)
+                        < holder.getAccounts().indexOf(found)) {
+                    found = account;
+                    foundHolder = holder;
+                }
+            }
+            return found;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Finds the first registered user holding an account: its owner while it is open, or
+     * a business associate.
+     */
+    private User holderOf(final Account account) {
+        User holder = owners.get(account);
+        for (User associate : associates.getOrDefault(account, Set.of())) {
+            if (holder == null || rank(associate) < rank(holder)) {
+                holder = associate;
+            }
+        }
+        return holder;
+    }
+
+    /**
+     * Maps every character as String.equalsIgnoreCase compares them.
+     */
+    private static String foldCase(final String alias) {
+        char[] folded = new char[alias.length()];
+        for (int i = 0; i < folded.length; i++) {
+            folded[i] = Character.toLowerCase(Character.toUpperCase(alias.charAt(i)));
+        }
+        return new String(folded);
+    }
+
+    private int rank(final User user) {
+        return userOrder.getOrDefault(user, Integer.MAX_VALUE);
+    }
+
+    /**
+     * Gets the open accounts matching a type, a currency and a plan, in the order
+     * they were opened. Each criterion can be null to accept any value.
+     *
+     * @param type the account type ("classic", "savings", "business") or null
+     * @param currency the currency or null
+     * @param plan the plan of the owner or null
+     * @return the matching accounts
+     */
+    public List<Account> select(final String type, final String currency,
+                                final String plan) {
+        lock.readLock().lock();
+        try {
+            // Iterate the smallest index, check the others on its accounts
+            Set<Account> smallest = null;
+            for (Set<Account> candidates : Arrays.asList(indexed(byType, type),
+                    indexed(byCurrency, currency), indexed(byPlan, plan))) {
+                if (candidates != null
+                        && (smallest == null || candidates.size() < smallest.size())) {
+                    smallest = candidates;
+                }
+            }
+
+            List<Account> selected = new ArrayList<>();
+            for (Account account : smallest != null ? smallest : accounts) {
+                if ((type == null || type.equals(account.getAccountType()))
+                        && (currency == null || currency.equals(account.getCurrency()))
+                        && (plan == null || plan.equals(owners.get(account).getAccountPlan()))) {
+                    selected.add(account);
+                }
+            }
+            return selected;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Calls an action for every holding recorded from a position on: an account with its
+     * owner when it was opened, or with a business associate it was added to. Holdings
+     * are never removed, a deleted account keeps them, so a caller can apply only the
+     * holdings recorded since its last call.
+     *
+     * @param from the number of holdings already seen
+     * @param action the action, called with the account and the user holding it
+     * @return the number of holdings recorded, the position of the next call
+     */
+    public int forEachHolding(final int from, final BiConsumer<Account, User> action) {
+        lock.readLock().lock();
+        try {
+            for (int i = from; i < heldAccounts.size(); i++) {
+                action.accept(heldAccounts.get(i), holders.get(i));
+            }
+            return heldAccounts.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Gets the number of open accounts.
+     *
+     * @return the number of accounts
+     */
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return owners.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private static Set<Account> indexed(final Map<String, Set<Account>> index,
+                                        final String key) {
+        if (key == null) {
+            return null;
+        }
+        return index.getOrDefault(key, Collections.emptySet());
+    }
+
+    private static <K> void add(final Map<K, Set<Account>> index, final K key,
+                                final Account account) {
+        index.computeIfAbsent(key, k -> new LinkedHashSet<>()).add(account);
+    }
+
+    private static <K> void remove(final Map<K, Set<Account>> index, final K key,
+                                   final Account account) {
+        Set<Account> accounts = index.get(key);
+        if (accounts != null) {
+            accounts.remove(account);
+            if (accounts.isEmpty()) {
+                index.remove(key);
+            }
+        }
+    }
+}
@@ -14,8 +14,8 @@ import java.util.List;
 public final class BusinessAccount extends Account {
     private List<String> managersEmails; // List of manager emails
     private List<String> employeesEmails; // List of employee emails
-    private double spendingLimit;
-    private double depositLimit;
+    private volatile double spendingLimit;
+    private volatile double depositLimit;
     private Map<String, List<TransactionDetail>> associateTransactions;
 
     private static final double INITIAL_LIMIT_IN_RON = 500.0;
@@ -0,0 +1,211 @@
+package org.poo.main.accounts;
+
+import org.poo.utils.SymbolTable;
+import org.poo.utils.Utils;
+
+import java.util.Random;
+import java.util.SplittableRandom;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Gives out the IBANs of new accounts and the numbers of new cards of one bank.
+ * <p>
+ * The compatible allocator draws them from the same two seeded sequences the bank
+ * always used, one digit at a time, so a run gives the same ids as before; it serves
+ * one request at a time. The sharded allocator splits the ids into shards by the email
+ * of the user they are for: each shard has its own deterministic stream and its own
+ * lock, so ids for different users can be drawn concurrently, and the ids of a user
+ * only depend on the requests of the users of its shard. The shard is encoded in the
+ * number (number modulo shards), so two shards never draw the same id; ids are
+ * generated a block at a time, and an id already taken by an account or card of the
+ * bank is skipped.
+ */
+public abstract class IdAllocator {
+    private static final int IBAN_SEED = 1;
+    private static final int CARD_SEED = 2;
+
+    private IdAllocator() {
+    }
+
+    /**
+     * Creates an allocator giving the ids of the original sequences, in order.
+     *
+     * @param symbols the symbol table of the bank, the ids given out are added to it
+     * @return the allocator
+     */
+    public static IdAllocator compatible(final SymbolTable symbols) {
+        return new CompatibleAllocator(symbols);
+    }
+
+    /**
+     * Creates an allocator with a deterministic stream per shard.
+     *
+     * @param seed the seed the streams derive from
+     * @param shards the number of shards
+     * @param blockSize the number of ids generated at once per shard
+     * @param registry the accounts and cards of the bank, whose ids are skipped; the ids
+     *                 given out are added to its symbol table
+     * @return the allocator
+     */
+    public static IdAllocator sharded(final long seed, final int shards, final int blockSize,
+                                      final AccountRegistry registry) {
+        if (shards <= 0 || blockSize <= 0) {
+            throw new IllegalArgumentException("Shards and block size must be positive");
+        }
+        return new ShardedAllocator(seed, shards, blockSize, registry);
+    }
+
+    /**
+     * Gives out the IBAN of a new account.
+     *
+     * @param owner the email of the user opening the account
+     * @return the IBAN
+     */
+    public abstract String nextIban(String owner);
+
+    /**
+     * Gives out the number of a new card.
+     *
+     * @param owner the email of the user the card is for
+     * @return the card number
+     */
+    public abstract String nextCardNumber(String owner);
+
+    /**
+     * Gets the number of generated ids skipped because an account or card had them.
+     *
+     * @return the number of collisions
+     */
+    public long getCollisions() {
+        return 0;
+    }
+
+    /**
+     * The two sequences of the original generators.
+     */
+    private static final class CompatibleAllocator extends IdAllocator {
+        private final Random ibanRandom = new Random(IBAN_SEED);
+        private final Random cardRandom = new Random(CARD_SEED);
+        private final SymbolTable symbols;
+
+        CompatibleAllocator(final SymbolTable symbols) {
+            this.symbols = symbols;
+        }
+
+        @Override
+        public synchronized String nextIban(final String owner) {
+            return symbols.canonical(Utils.generateIBAN(ibanRandom));
+        }
+
+        @Override
+        public synchronized String nextCardNumber(final String owner) {
+            return symbols.canonical(Utils.generateCardNumber(cardRandom));
+        }
+    }
+
+    /**
+     * A stream per shard, drawing blocks of ids.
+     */
+    private static final class ShardedAllocator extends IdAllocator {
+        private static final long NUMBER_BOUND = 10_000_000_000_000_000L;
+        private static final int CHECK_DIGITS_BOUND = 100;
+
+        private final Shard[] shards;
+        private final AccountRegistry registry;
+        private final AtomicLong collisions = new AtomicLong();
+
+        ShardedAllocator(final long seed, final int shardCount, final int blockSize,
+                         final AccountRegistry registry) {
+            this.registry = registry;
+            this.shards = new Shard[shardCount];
+            SplittableRandom root = new SplittableRandom(seed);
+            for (int i = 0; i < shardCount; i++) {
+                shards[i] = new Shard(i, shardCount, blockSize, root.split());
+            }
+        }
+
+        @Override
+        public String nextIban(final String owner) {
+            Shard shard = shardOf(owner);
+            synchronized (shard) {
+                String iban = shard.nextIban();
+                while (registry.findByIban(iban) != null) {
+                    collisions.incrementAndGet();
+                    iban = shard.nextIban();
+                }
+                return registry.getSymbols().canonical(iban);
+            }
+        }
+
+        @Override
+        public String nextCardNumber(final String owner) {
+            Shard shard = shardOf(owner);
+            synchronized (shard) {
+                String cardNumber = shard.nextCardNumber();
+                while (registry.findCard(cardNumber) != null) {
+                    collisions.incrementAndGet();
+                    cardNumber = shard.nextCardNumber();
+                }
+                return registry.getSymbols().canonical(cardNumber);
+            }
+        }
+
+        @Override
+        public long getCollisions() {
+            return collisions.get();
+        }
+
+        private Shard shardOf(final String owner) {
+            return shards[Math.floorMod(owner.hashCode(), shards.length)];
+        }
+
+        /**
+         * The stream of one shard and its current blocks of ids.
+         */
+        private static final class Shard {
+            private final int index;
+            private final int count;
+            private final SplittableRandom random;
+            private final String[] ibans;
+            private final String[] cardNumbers;
+            private int nextIban;
+            private int nextCardNumber;
+
+            Shard(final int index, final int count, final int blockSize,
+                  final SplittableRandom random) {
+                this.index = index;
+                this.count = count;
+                this.random = random;
+                this.ibans = new String[blockSize];
+                this.cardNumbers = new String[blockSize];
+                this.nextIban = blockSize;
+                this.nextCardNumber = blockSize;
+            }
+
+            String nextIban() {
+                if (nextIban == ibans.length) {
+                    for (int i = 0; i < ibans.length; i++) {
+                        ibans[i] = Utils.formatIBAN(random.nextInt(CHECK_DIGITS_BOUND),
+                                nextNumber());
+                    }
+                    nextIban = 0;
+                }
+                return ibans[nextIban++];
+            }
+
+            String nextCardNumber() {
+                if (nextCardNumber == cardNumbers.length) {
+                    for (int i = 0; i < cardNumbers.length; i++) {
+                        cardNumbers[i] = Utils.formatCardNumber(nextNumber());
+                    }
+                    nextCardNumber = 0;
+                }
+                return cardNumbers[nextCardNumber++];
+            }
+
+            private long nextNumber() {
+                return random.nextLong(NUMBER_BOUND / count) * count + index;
+            }
+        }
+    }
+}
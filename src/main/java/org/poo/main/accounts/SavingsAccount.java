@@ -5,7 +5,7 @@ package org.poo.main.accounts;
  * This account type includes an interest rate feature.
  */
 public final class SavingsAccount extends Account {
-    private double interestRate;
+    private volatile double interestRate;
 
     public SavingsAccount(final String currency, final String ownerEmail,
                           final double interestRate, final String iban) {
@@ -1,17 +1,29 @@
 package org.poo.main.bank;
 
+import org.poo.main.accounts.AccountRegistry;
+import org.poo.main.accounts.IdAllocator;
 import org.poo.main.commands.*;
 import org.poo.main.commerciant.Commerciant;
 import org.poo.main.exchange_rate.ExchangeRate;
+import org.poo.main.policy.PolicyEngine;
+import org.poo.main.split.SplitSettlementEngine;
+import org.poo.main.tools.ReportCache;
 import org.poo.main.transactions.*;
 import org.poo.main.user.User;
-import org.poo.utils.Utils;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.fasterxml.jackson.databind.node.ArrayNode;
 import org.poo.fileio.CommandInput;
+import org.poo.fileio.ObjectInput;
+import org.poo.fileio.PolicyInput;
+import org.poo.utils.SymbolTable;
 
+import java.time.Clock;
+import java.time.LocalDate;
 import java.util.*;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
 
 public final class BankSystem {
     private final ObjectMapper objectMapper = new ObjectMapper();
@@ -19,6 +31,15 @@ public final class BankSystem {
     private final List<ExchangeRate> exchangeRates = new ArrayList<>();
     private final List<Commerciant> commerciants = new ArrayList<>();
     private final TransactionService transactionService;
+    private final SplitSettlementEngine splitSettlementEngine;
+    private final PolicyEngine policyEngine;
+    private final AccountRegistry accountRegistry;
+    private final IdAllocator idAllocator;
+    private final ReportCache reportCache = new ReportCache();
+    private TransactionStore transactionStore;
+    private volatile Clock clock = Clock.systemDefaultZone();
+    private boolean tickStarted;
+    private int currentTick;
 
     private final Command printUsersCommand;
     private final Command addAccountCommand;
@@ -39,6 +60,7 @@ public final class BankSystem {
     private final Command reportCommand;
     private final Command spendingsReportCommand;
     private final Command addInterestCommand;
+    private final Command addInterestToAllCommand;
     private final Command changeInterestRateCommand;
     private final Command withdrawSavingsCommand;
     private final Command upgradePlanCommand;
@@ -48,92 +70,342 @@ public final class BankSystem {
     private final Command changeDepositLimitCommand;
     private final Command businessReportCommand;
 
+    /**
+     * Builds a bank system from the setup part of an input: the fee and cashback
+     * policies, the users, the exchange rates and the merchants. The commands are not run.
+     *
+     * @param inputData the parsed input
+     * @return the bank system, ready to process commands
+     */
+    public static BankSystem fromInput(final ObjectInput inputData) {
+        return fromInput(inputData, new SymbolTable());
+    }
+
+    /**
+     * Builds a bank system from the setup part of an input, with the symbol table the
+     * input was parsed into (see SymbolDeserializer.interning). The identifiers of the
+     * users, exchange rates and merchants are added to the table.
+     *
+     * @param inputData the parsed input
+     * @param symbols the symbol table of the new bank
+     * @return the bank system, ready to process commands
+     */
+    public static BankSystem fromInput(final ObjectInput inputData,
+                                       final SymbolTable symbols) {
+        BankSystem bankSystem = new BankSystem(symbols);
+
+        // Loading the fee and cashback policies (the built-in ones if the input has none)
+        bankSystem.loadPolicies(inputData.getPolicies());
+
+        // Parsing the users from input and adding them to the bank system
+        for (var userInput : inputData.getUsers()) {
+            User user = new User(
+                    userInput.getFirstName(),
+                    userInput.getLastName(),
+                    symbols.canonical(userInput.getEmail()),
+                    userInput.getBirthDate(),
+                    userInput.getOccupation());
+            bankSystem.addUser(user);
+        }
+
+        // Parsing the exchange rates from input and adding them to the bank system
+        for (var exchangeRateInput : inputData.getExchangeRates()) {
+            ExchangeRate exchangeRate = new ExchangeRate(
+                    symbols.canonical(exchangeRateInput.getFrom()),
+                    symbols.canonical(exchangeRateInput.getTo()),
+                    exchangeRateInput.getRate()
+            );
+            bankSystem.addExchangeRate(exchangeRate);
+        }
+
+        // Parsing the merchants from input and adding them to the bank system
+        for (var commerciantInput : inputData.getCommerciants()) {
+            Commerciant commerciant = new Commerciant(
+                    symbols.canonical(commerciantInput.getCommerciant()),
+                    commerciantInput.getId(),
+                    symbols.canonical(commerciantInput.getAccount()),
+                    commerciantInput.getType(),
+                    commerciantInput.getCashbackStrategy()
+            );
+            bankSystem.addCommerciant(commerciant);
+        }
+
+        return bankSystem;
+    }
+
     public void addUser(final User user) {
+        user.compilePlanWith(policyEngine);
+        accountRegistry.registerUser(user);
+        if (transactionStore != null) {
+            user.spillTransactionsTo(transactionStore);
+        }
         users.add(user);
     }
 
+    /**
+     * Keeps only the recent transactions of the users on the heap, the older ones
+     * are spilled to a store of pages on disk.
+     *
+     * @param store the store of the older transactions
+     */
+    public void spillTransactions(final TransactionStore store) {
+        this.transactionStore = store;
+        for (User user : users) {
+            user.spillTransactionsTo(store);
+        }
+    }
+
+    /**
+     * Sets the clock the commands read the current date from (the age check of
+     * withdrawSavings). The bank reads the system clock unless told otherwise.
+     *
+     * @param clock the clock of the bank
+     */
+    public void setClock(final Clock clock) {
+        this.clock = clock;
+    }
+
+    /**
+     * Gets the current date, as read from the clock of the bank.
+     *
+     * @return the current date
+     */
+    public LocalDate today() {
+        return LocalDate.now(clock);
+    }
+
+    public List<User> getUsers() {
+        return users;
+    }
+
+    public AccountRegistry getAccountRegistry() {
+        return accountRegistry;
+    }
+
+    public SymbolTable getSymbols() {
+        return accountRegistry.getSymbols();
+    }
+
+    public ReportCache getReportCache() {
+        return reportCache;
+    }
+
     public void addExchangeRate(final ExchangeRate exchangeRate) {
         exchangeRates.add(exchangeRate);
+        policyEngine.exchangeRatesChanged();
     }
 
     public void addCommerciant(final Commerciant commerciant) {
+        commerciant.setCashbackKind(policyEngine.cashbackKind(commerciant));
         commerciants.add(commerciant);
     }
 
+    /**
+     * Loads the fee and cashback policies of the bank. Without a definition the
+     * built-in policies are kept. Users and merchants already registered are
+     * compiled again against the new definitions.
+     *
+     * @param policies the policy definitions from the input, may be null
+     */
+    public void loadPolicies(final PolicyInput policies) {
+        policyEngine.load(policies);
+        for (User user : users) {
+            user.compilePlanWith(policyEngine);
+        }
+        for (Commerciant commerciant : commerciants) {
+            commerciant.setCashbackKind(policyEngine.cashbackKind(commerciant));
+        }
+    }
+
     public BankSystem() {
+        this(new SymbolTable());
+    }
+
+    /**
+     * Creates an empty bank system with the original IBAN and card number sequences.
+     *
+     * @param symbols the symbol table of the bank
+     */
+    public BankSystem(final SymbolTable symbols) {
+        this(new AccountRegistry(symbols), IdAllocator.compatible(symbols));
+    }
+
+    /**
+     * Creates an empty bank system.
+     *
+     * @param accountRegistry the index of the accounts and cards, empty
+     * @param idAllocator the allocator of IBANs and card numbers, serving only this bank
+     */
+    public BankSystem(final AccountRegistry accountRegistry, final IdAllocator idAllocator) {
+        this.accountRegistry = accountRegistry;
+        this.idAllocator = idAllocator;
         this.transactionService = new TransactionService(users);
+        this.policyEngine = new PolicyEngine();
+        this.splitSettlementEngine =
+                new SplitSettlementEngine(exchangeRates, transactionService, accountRegistry);
         this.printUsersCommand = new PrintUsersCommand(objectMapper, users);
-        this.addAccountCommand = new AddAccountCommand(users, exchangeRates, transactionService);
-        this.createCardCommand = new CreateCardCommand(users, transactionService);
-        this.createOneTimeCardCommand = new CreateOneTimeCardCommand(users, transactionService);
-        this.addFundsCommand = new AddFundsCommand(users);
+        this.addAccountCommand =
+                new AddAccountCommand(users, exchangeRates, transactionService,
+                        accountRegistry, idAllocator);
+        this.createCardCommand =
+                new CreateCardCommand(users, transactionService, accountRegistry, idAllocator);
+        this.createOneTimeCardCommand =
+                new CreateOneTimeCardCommand(users, transactionService, accountRegistry,
+                        idAllocator);
+        this.addFundsCommand = new AddFundsCommand(accountRegistry);
         this.deleteAccountCommand =
-                new DeleteAccountCommand(users, transactionService, objectMapper);
-        this.deleteCardCommand = new DeleteCardCommand(users, transactionService);
+                new DeleteAccountCommand(users, transactionService, objectMapper,
+                        accountRegistry);
+        this.deleteCardCommand =
+                new DeleteCardCommand(users, transactionService, accountRegistry);
         this.payOnlineCommand =
-                new PayOnlineCommand(users, exchangeRates, commerciants, transactionService);
+                new PayOnlineCommand(users, exchangeRates, commerciants, transactionService,
+                        policyEngine, accountRegistry, idAllocator);
         this.sendMoneyCommand =
-                new SendMoneyCommand(users, exchangeRates, commerciants, transactionService);
-        this.setAliasCommand = new SetAliasCommand(users);
+                new SendMoneyCommand(users, exchangeRates, commerciants, transactionService,
+                        policyEngine, accountRegistry);
+        this.setAliasCommand = new SetAliasCommand(users, accountRegistry);
         this.printTransactionsCommand = new PrintTransactionsCommand(objectMapper, users);
         this.setMinimumBalanceCommand = new SetMinimumBalanceCommand(users);
         this.checkCardStatusCommand =
                 new CheckCardStatusCommand(users, transactionService, objectMapper);
         this.splitPaymentCommand = new SplitPaymentCommand(users);
         this.acceptSplitPaymentCommand =
-                new AcceptSplitPaymentCommand(users, transactionService, exchangeRates);
-        this.rejectSplitPaymentCommand = new RejectSplitPaymentCommand(users, transactionService);
-        this.reportCommand = new ReportCommand(objectMapper, users, exchangeRates);
+                new AcceptSplitPaymentCommand(users, splitSettlementEngine);
+        this.rejectSplitPaymentCommand = new RejectSplitPaymentCommand(users, transactionService,
+                accountRegistry);
+        this.reportCommand =
+                new ReportCommand(objectMapper, users, exchangeRates, reportCache);
         this.spendingsReportCommand = new
-                SpendingsReportCommand(objectMapper, users, exchangeRates);
+                SpendingsReportCommand(objectMapper, users, exchangeRates, reportCache);
         this.addInterestCommand = new AddInterestCommand(users, transactionService);
+        this.addInterestToAllCommand =
+                new AddInterestToAllCommand(accountRegistry, transactionService,
+                        ForkJoinPool.commonPool());
         this.changeInterestRateCommand = new ChangeInterestRateCommand(users, transactionService);
         this.withdrawSavingsCommand =
-                new WithdrawSavingsCommand(users, exchangeRates, transactionService);
-        this.upgradePlanCommand = new UpgradePlanCommand(users, exchangeRates, transactionService);
+                new WithdrawSavingsCommand(users, exchangeRates, transactionService,
+                        this::today);
+        this.upgradePlanCommand =
+                new UpgradePlanCommand(users, exchangeRates, transactionService, policyEngine,
+                        accountRegistry);
         this.cashWithdrawalCommand =
-                new CashWithdrawalCommand(users, exchangeRates, transactionService);
-        this.addNewBusinessAssociateCommand = new AddNewBusinessAssociateCommand(users);
+                new CashWithdrawalCommand(users, exchangeRates, transactionService, policyEngine,
+                        accountRegistry);
+        this.addNewBusinessAssociateCommand =
+                new AddNewBusinessAssociateCommand(users, accountRegistry);
         this.changeSpendingLimitCommand = new ChangeSpendingLimitCommand(users);
         this.changeDepositLimitCommand = new ChangeDepositLimitCommand(users);
         this.businessReportCommand = new BusinessReportCommand(users);
     }
 
+    /**
+     * Executes the commands in order. Split payments completed during a timestamp tick
+     * are settled together once the tick ends.
+     *
+     * @param commands the commands to execute
+     * @param output   the JSON array collecting the results
+     */
     public void processCommands(final CommandInput[] commands, final ArrayNode output) {
         for (CommandInput command : commands) {
-            switch (command.getCommand()) {
-                case "printUsers" -> printUsersCommand.execute(command, output);
-                case "addAccount" -> addAccountCommand.execute(command, output);
-                case "createCard" -> createCardCommand.execute(command, output);
-                case "createOneTimeCard" -> createOneTimeCardCommand.execute(command, output);
-                case "addFunds" -> addFundsCommand.execute(command, output);
-                case "deleteAccount" -> deleteAccountCommand.execute(command, output);
-                case "deleteCard" -> deleteCardCommand.execute(command, output);
-                case "payOnline" -> payOnlineCommand.execute(command, output);
-                case "sendMoney" -> sendMoneyCommand.execute(command, output);
-                case "setAlias" -> setAliasCommand.execute(command, output);
-                case "printTransactions" -> printTransactionsCommand.execute(command, output);
-                case "setMinimumBalance" -> setMinimumBalanceCommand.execute(command, output);
-                case "checkCardStatus" -> checkCardStatusCommand.execute(command, output);
-                case "splitPayment" -> splitPaymentCommand.execute(command, output);
-                case "acceptSplitPayment" -> acceptSplitPaymentCommand.execute(command, output);
-                case "rejectSplitPayment" -> rejectSplitPaymentCommand.execute(command, output);
-                case "report" -> reportCommand.execute(command, output);
-                case "spendingsReport" -> spendingsReportCommand.execute(command, output);
-                case "addInterest" -> addInterestCommand.execute(command, output);
-                case "changeInterestRate" -> changeInterestRateCommand.execute(command, output);
-                case "withdrawSavings" -> withdrawSavingsCommand.execute(command, output);
-                case "upgradePlan" -> upgradePlanCommand.execute(command, output);
-                case "cashWithdrawal" -> cashWithdrawalCommand.execute(command, output);
-                case "addNewBusinessAssociate" ->
-                        addNewBusinessAssociateCommand.execute(command, output);
-                case "changeSpendingLimit" -> changeSpendingLimitCommand.execute(command, output);
-                case "changeDepositLimit" -> changeDepositLimitCommand.execute(command, output);
-                case "businessReport" -> businessReportCommand.execute(command, output);
-                default -> {
-                }
+            process(command, output);
+        }
+        finish();
+    }
+
+    /**
+     * Processes the next command of the stream. Settles the split payments of the
+     * previous timestamp tick first, if the command starts a new one.
+     *
+     * @param command the command to execute
+     * @param output  the JSON array collecting the result
+     */
+    public void process(final CommandInput command, final ArrayNode output) {
+        if (tickStarted && currentTick != command.getTimestamp()) {
+            splitSettlementEngine.settlePending();
+        }
+        tickStarted = true;
+        currentTick = command.getTimestamp();
+
+        execute(command, output);
+    }
+
+    /**
+     * Ends the command stream: settles the split payments of the last tick.
+     */
+    public void finish() {
+        endTick();
+    }
+
+    /**
+     * Ends the current timestamp tick: settles its split payments. The stream can go on
+     * with the commands of a later tick.
+     */
+    public void endTick() {
+        splitSettlementEngine.settlePending();
+        tickStarted = false;
+    }
+
+    /**
+     * Executes the commands like processCommands, on the given number of worker threads.
+     * Commands touching unrelated users and accounts run concurrently; the output is
+     * the same as the one of the sequential run.
+     *
+     * @param commands the commands to execute
+     * @param output   the JSON array collecting the results
+     * @param threads  the number of worker threads
+     */
+    public void processCommandsInParallel(final CommandInput[] commands,
+                                          final ArrayNode output, final int threads) {
+        ExecutorService workers = Executors.newFixedThreadPool(threads);
+        try {
+            new ParallelCommandExecutor(this::execute, users, accountRegistry,
+                    splitSettlementEngine, workers, threads).execute(commands, output);
+        } finally {
+            workers.shutdown();
+        }
+        finish();
+    }
+
+    /**
+     * Executes a single command.
+     *
+     * @param command the command to execute
+     * @param output  the JSON array collecting the result
+     */
+    public void execute(final CommandInput command, final ArrayNode output) {
+        switch (command.getCommand()) {
+            case "printUsers" -> printUsersCommand.execute(command, output);
+            case "addAccount" -> addAccountCommand.execute(command, output);
+            case "createCard" -> createCardCommand.execute(command, output);
+            case "createOneTimeCard" -> createOneTimeCardCommand.execute(command, output);
+            case "addFunds" -> addFundsCommand.execute(command, output);
+            case "deleteAccount" -> deleteAccountCommand.execute(command, output);
+            case "deleteCard" -> deleteCardCommand.execute(command, output);
+            case "payOnline" -> payOnlineCommand.execute(command, output);
+            case "sendMoney" -> sendMoneyCommand.execute(command, output);
+            case "setAlias" -> setAliasCommand.execute(command, output);
+            case "printTransactions" -> printTransactionsCommand.execute(command, output);
+            case "setMinimumBalance" -> setMinimumBalanceCommand.execute(command, output);
+            case "checkCardStatus" -> checkCardStatusCommand.execute(command, output);
+            case "splitPayment" -> splitPaymentCommand.execute(command, output);
+            case "acceptSplitPayment" -> acceptSplitPaymentCommand.execute(command, output);
+            case "rejectSplitPayment" -> rejectSplitPaymentCommand.execute(command, output);
+            case "report" -> reportCommand.execute(command, output);
+            case "spendingsReport" -> spendingsReportCommand.execute(command, output);
+            case "addInterest" -> addInterestCommand.execute(command, output);
+            case "addInterestToAll" -> addInterestToAllCommand.execute(command, output);
+            case "changeInterestRate" -> changeInterestRateCommand.execute(command, output);
+            case "withdrawSavings" -> withdrawSavingsCommand.execute(command, output);
+            case "upgradePlan" -> upgradePlanCommand.execute(command, output);
+            case "cashWithdrawal" -> cashWithdrawalCommand.execute(command, output);
+            case "addNewBusinessAssociate" ->
+                    addNewBusinessAssociateCommand.execute(command, output);
+            case "changeSpendingLimit" -> changeSpendingLimitCommand.execute(command, output);
+            case "changeDepositLimit" -> changeDepositLimitCommand.execute(command, output);
+            case "businessReport" -> businessReportCommand.execute(command, output);
+            default -> {
             }
         }
-        Utils.resetRandom();
     }
 }
@@ -0,0 +1,297 @@
+package org.poo.main.bank;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import org.poo.fileio.CommandInput;
+import org.poo.main.accounts.Account;
+import org.poo.main.accounts.AccountRegistry;
+import org.poo.main.cards.Card;
+import org.poo.main.commands.Command;
+import org.poo.main.split.SplitSettlementEngine;
+import org.poo.main.user.User;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+
+/**
+ * Executes the commands of a bank system on a pool of workers.
+ * The commands are cut into windows by the barrier commands, which change the
+ * accounts, cards or aliases other commands look up (or read the whole bank).
+ * Inside a window, commands are partitioned by the users and accounts they touch:
+ * an account is always in the same partition as the users holding it and its owner,
+ * so a transfer between two accounts joins their partitions.
+ * <p>
+ * The links between accounts and their holders are kept in a union-find that lives as
+ * long as the executor: before a window, only the holdings the AccountRegistry recorded
+ * since the previous window are added to it. The links a window adds between the
+ * resulting groups (a transfer, a payment of an associate) are kept apart and dropped
+ * with the window. The users, accounts and cards of a command are found through the
+ * registry and an index of the users by email, without scanning the bank.
+ * <p>
+ * Each partition runs its
+ * commands in input order on one worker, every command writes to its own output
+ * buffer, and the buffers are appended in input order, so the output is the same as
+ * the one of the sequential run.
+ */
+final class ParallelCommandExecutor {
+    private static final Set<String> PARTITIONED_COMMANDS = Set.of(
+            "addFunds", "payOnline", "sendMoney", "printTransactions", "setMinimumBalance",
+            "checkCardStatus", "report", "spendingsReport", "addInterest",
+            "changeInterestRate", "withdrawSavings", "upgradePlan", "cashWithdrawal",
+            "changeSpendingLimit", "changeDepositLimit");
+
+    private final Command dispatcher;
+    private final AccountRegistry accountRegistry;
+    private final SplitSettlementEngine splitSettlementEngine;
+    private final ExecutorService workers;
+    private final int workerCount;
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final Map<String, User> usersByEmail = new HashMap<>();
+    private final Map<Object, Object> holdings = new IdentityHashMap<>(); // Union-find
+    private int holdingsSeen;
+
+    ParallelCommandExecutor(final Command dispatcher, final List<User> users,
+                            final AccountRegistry accountRegistry,
+                            final SplitSettlementEngine splitSettlementEngine,
+                            final ExecutorService workers, final int workerCount) {
+        this.dispatcher = dispatcher;
+        this.accountRegistry = accountRegistry;
+        this.splitSettlementEngine = splitSettlementEngine;
+        this.workers = workers;
+        this.workerCount = workerCount;
+
+        // No command adds users or changes their emails, the first user wins like a scan
+        for (User user : users) {
+            usersByEmail.putIfAbsent(user.getEmail(), user);
+        }
+    }
+
+    /**
+     * Executes the commands and appends their results to the output, in input order.
+     *
+     * @param commands the commands to execute
+     * @param output the JSON array collecting the results
+     */
+    void execute(final CommandInput[] commands, final ArrayNode output) {
+        int start = 0;
+        while (start < commands.length) {
+            if (isBarrier(commands[start])) {
+                dispatcher.execute(commands[start], output);
+                // Completed splits can only come from a barrier, settle them right away
+                splitSettlementEngine.settlePending();
+                start++;
+                continue;
+            }
+
+            int end = start;
+            while (end < commands.length && !isBarrier(commands[end])) {
+                end++;
+            }
+            executeWindow(commands, start, end, output);
+            start = end;
+        }
+    }
+
+    private void executeWindow(final CommandInput[] commands, final int start, final int end,
+                               final ArrayNode output) {
+        // The barriers before this window may have opened accounts or added associates
+        holdingsSeen = accountRegistry.forEachHolding(holdingsSeen, (account, holder) -> {
+            union(holdings, holder, account);
+            User owner = usersByEmail.get(account.getOwnerEmail());
+            if (owner != null) {
+                union(holdings, owner, account);
+            }
+        });
+
+        // Group the commands of the window by the partition they touch, joining the
+        // groups of holdings they use in a union-find of this window only
+        Map<Object, Object> parents = new IdentityHashMap<>();
+        Map<Object, List<Integer>> partitions = new LinkedHashMap<>();
+        for (int i = start; i < end; i++) {
+            Object root = null;
+            for (Object entity : footprint(commands[i])) {
+                Object group = find(holdings, entity);
+                if (root == null) {
+                    root = find(parents, group);
+                } else {
+                    root = union(parents, root, group);
+                }
+            }
+            partitions.computeIfAbsent(root == null ? Integer.valueOf(i) : root,
+                    key -> new ArrayList<>()).add(i);
+        }
+
+        // A later command may have merged the partitions of earlier ones
+        Map<Object, List<Integer>> merged = new LinkedHashMap<>();
+        for (Map.Entry<Object, List<Integer>> partition : partitions.entrySet()) {
+            Object key = partition.getKey() instanceof Integer
+                    ? partition.getKey() : find(parents, partition.getKey());
+            merged.computeIfAbsent(key, k -> new ArrayList<>()).addAll(partition.getValue());
+        }
+
+        // A single partition is the whole window, run it in order without handing it off
+        if (merged.size() == 1) {
+            for (int i = start; i < end; i++) {
+                dispatcher.execute(commands[i], output);
+            }
+            return;
+        }
+
+        // Most partitions hold a few commands, hand them off in one batch per worker; the
+        // calling thread runs the last batch instead of waiting for the others
+        List<List<List<Integer>>> batches = batch(merged.values(), workerCount + 1);
+        ArrayNode[] buffers = new ArrayNode[end - start];
+        List<Future<?>> futures = new ArrayList<>();
+        for (int b = 0; b < batches.size() - 1; b++) {
+            List<List<Integer>> batch = batches.get(b);
+            futures.add(workers.submit(() -> execute(commands, batch, start, buffers)));
+        }
+        execute(commands, batches.get(batches.size() - 1), start, buffers);
+
+        for (Future<?> future : futures) {
+            try {
+                future.get();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IllegalStateException("Interrupted while executing commands", e);
+            } catch (ExecutionException e) {
+                if (e.getCause() instanceof RuntimeException runtimeException) {
+                    throw runtimeException;
+                }
+                throw new IllegalStateException(e.getCause());
+            }
+        }
+
+        for (ArrayNode buffer : buffers) {
+            output.addAll(buffer);
+        }
+    }
+
+    private void execute(final CommandInput[] commands, final List<List<Integer>> batch,
+                         final int start, final ArrayNode[] buffers) {
+        for (List<Integer> partition : batch) {
+            partition.sort(null);
+            for (int index : partition) {
+                ArrayNode buffer = objectMapper.createArrayNode();
+                dispatcher.execute(commands[index], buffer);
+                buffers[index - start] = buffer;
+            }
+        }
+    }
+
+    /**
+     * Spreads the partitions over at most a number of batches, each partition going to
+     * the batch with the fewest commands so far, the largest partitions first.
+     */
+    private static List<List<List<Integer>>> batch(final Collection<List<Integer>> partitions,
+                                                   final int maxBatches) {
+        List<List<Integer>> bySize = new ArrayList<>(partitions);
+        bySize.sort((first, second) -> Integer.compare(second.size(), first.size()));
+
+        int batchCount = Math.min(maxBatches, bySize.size());
+        List<List<List<Integer>>> batches = new ArrayList<>(batchCount);
+        int[] sizes = new int[batchCount];
+        for (int b = 0; b < batchCount; b++) {
+            batches.add(new ArrayList<>());
+        }
+        for (List<Integer> partition : bySize) {
+            int smallest = 0;
+            for (int b = 1; b < batchCount; b++) {
+                if (sizes[b] < sizes[smallest]) {
+                    smallest = b;
+                }
+            }
+            batches.get(smallest).add(partition);
+            sizes[smallest] += partition.size();
+        }
+        return batches;
+    }
+
+    /**
+     * Checks if a command has to run alone, after everything before it and
+     * before everything after it.
+     */
+    private boolean isBarrier(final CommandInput command) {
+        if (!PARTITIONED_COMMANDS.contains(command.getCommand())) {
+            return true;
+        }
+        // Paying with a one time card replaces the card
+        if (command.getCommand().equals("payOnline")) {
+            Card card = accountRegistry.findCard(command.getCardNumber());
+            return card != null && card.isOneTimeCard();
+        }
+        return false;
+    }
+
+    /**
+     * Collects the users and accounts a command can look up. The lookups are the same
+     * the commands do, so a command never touches an entity outside its partition.
+     */
+    private List<Object> footprint(final CommandInput command) {
+        List<Object> entities = new ArrayList<>();
+        if (command.getEmail() != null) {
+            addIfFound(entities, usersByEmail.get(command.getEmail()));
+        }
+        if (command.getAccount() != null) {
+            addIfFound(entities, findAccount(command.getAccount()));
+        }
+        if (command.getReceiver() != null) {
+            addIfFound(entities, findAccount(command.getReceiver()));
+        }
+        if (command.getCardNumber() != null) {
+            Card card = accountRegistry.findCard(command.getCardNumber());
+            if (card != null) {
+                addIfFound(entities, card.getAccount());
+            }
+        }
+        return entities;
+    }
+
+    private Account findAccount(final String ibanOrAlias) {
+        Account account = accountRegistry.findByIban(ibanOrAlias);
+        return account != null ? account : accountRegistry.findByAlias(ibanOrAlias);
+    }
+
+    private static void addIfFound(final List<Object> entities, final Object entity) {
+        if (entity != null) {
+            entities.add(entity);
+        }
+    }
+
+    private static Object find(final Map<Object, Object> parents, final Object entity) {
+        Object root = entity;
+        Object parent = parents.get(root);
+        while (parent != null) {
+            root = parent;
+            parent = parents.get(root);
+        }
+
+        // Path compression
+        Object current = entity;
+        while (current != root) {
+            Object next = parents.get(current);
+            parents.put(current, root);
+            current = next;
+        }
+        return root;
+    }
+
+    private static Object union(final Map<Object, Object> parents, final Object first,
+                                final Object second) {
+        Object firstRoot = find(parents, first);
+        Object secondRoot = find(parents, second);
+        if (firstRoot != secondRoot) {
+            parents.put(secondRoot, firstRoot);
+        }
+        return firstRoot;
+    }
+}
@@ -72,5 +72,6 @@ public class Card {
      */
     public void freezeCard() {
         this.status = STATUS_INACTIVE;
+        account.markChanged();
     }
 }
@@ -0,0 +1,97 @@
+package org.poo.main.cashback;
+
+import java.util.Arrays;
+
+/**
+ * Per-account cashback state, keyed by merchant id.
+ * Keeps the number of payments made to every merchant in parallel primitive arrays
+ * (open addressing, linear probing), so recording a payment or reading a count back
+ * does not allocate once the table has grown to its size. The arrays are allocated by
+ * the first payment, an account that never pays a merchant holds none.
+ */
+public final class MerchantCashbackState {
+    private static final int INITIAL_CAPACITY = 16;
+    private static final int EMPTY = Integer.MIN_VALUE; // Marks a free slot
+
+    private int[] merchantIds;
+    private int[] transactionCounts;
+    private int size;
+
+    /**
+     * Records a payment made to a merchant.
+     *
+     * @param merchantId the id of the merchant
+     */
+    public void recordPayment(final int merchantId) {
+        if (merchantIds == null) {
+            allocate(INITIAL_CAPACITY);
+        }
+        int slot = findSlot(merchantId);
+        if (merchantIds[slot] == EMPTY) {
+            if ((size + 1) * 4 > merchantIds.length * 3) {
+                grow();
+                slot = findSlot(merchantId);
+            }
+            merchantIds[slot] = merchantId;
+            size++;
+        }
+        transactionCounts[slot]++;
+    }
+
+    /**
+     * Gets the number of payments made to a merchant.
+     *
+     * @param merchantId the id of the merchant
+     * @return the number of payments, 0 if the merchant was never paid
+     */
+    public int getTransactionCount(final int merchantId) {
+        if (merchantIds == null) {
+            return 0;
+        }
+        int slot = findSlot(merchantId);
+        return merchantIds[slot] == EMPTY ? 0 : transactionCounts[slot];
+    }
+
+    /**
+     * Gets the number of merchants this account has paid.
+     *
+     * @return the number of merchants
+     */
+    public int size() {
+        return size;
+    }
+
+    private int findSlot(final int merchantId) {
+        int mask = merchantIds.length - 1;
+        int slot = mix(merchantId) & mask;
+        while (merchantIds[slot] != EMPTY && merchantIds[slot] != merchantId) {
+            slot = (slot + 1) & mask;
+        }
+        return slot;
+    }
+
+    private void grow() {
+        int[] oldIds = merchantIds;
+        int[] oldCounts = transactionCounts;
+
+        allocate(oldIds.length * 2);
+        for (int i = 0; i < oldIds.length; i++) {
+            if (oldIds[i] != EMPTY) {
+                int slot = findSlot(oldIds[i]);
+                merchantIds[slot] = oldIds[i];
+                transactionCounts[slot] = oldCounts[i];
+            }
+        }
+    }
+
+    private void allocate(final int capacity) {
+        merchantIds = new int[capacity];
+        Arrays.fill(merchantIds, EMPTY);
+        transactionCounts = new int[capacity];
+    }
+
+    private static int mix(final int key) {
+        int h = key * 0x9E3779B9;
+        return h ^ (h >>> 16);
+    }
+}
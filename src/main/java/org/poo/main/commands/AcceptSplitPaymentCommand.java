@@ -3,27 +3,22 @@ package org.poo.main.commands;
 import com.fasterxml.jackson.databind.node.ArrayNode;
 import com.fasterxml.jackson.databind.node.ObjectNode;
 import org.poo.fileio.CommandInput;
-import org.poo.main.exchange_rate.ExchangeRate;
 import org.poo.main.split.SplitPayment;
+import org.poo.main.split.SplitSettlementEngine;
 import org.poo.main.tools.Tools;
 import org.poo.main.user.User;
-import org.poo.main.accounts.Account;
-import org.poo.main.transactions.TransactionService;
 
 import java.util.List;
 import java.util.Map;
 
 public final class AcceptSplitPaymentCommand implements Command {
     private final List<User> users;
-    private final TransactionService transactionService;
-    private final List<ExchangeRate> exchangeRates;
+    private final SplitSettlementEngine settlementEngine;
 
     public AcceptSplitPaymentCommand(final List<User> users,
-                                     final TransactionService transactionService,
-                                     final List<ExchangeRate> exchangeRates) {
+                                     final SplitSettlementEngine settlementEngine) {
         this.users = users;
-        this.transactionService = transactionService;
-        this.exchangeRates = exchangeRates;
+        this.settlementEngine = settlementEngine;
     }
 
     @Override
@@ -56,70 +51,9 @@ public final class AcceptSplitPaymentCommand implements Command {
         // Mark the user's acceptance for the split payment
         splitPayment.setStatus(userIban, true);
 
-        // Check if all users have accepted
+        // Once everyone accepted, hand the split over to be settled at the end of the tick
         if (splitPayment.allAccepted()) {
-            String insufficientFundsIBAN = Tools.verifyAmounts(splitPayment, exchangeRates, users);
-
-            if (insufficientFundsIBAN != null) {
-                handleErrorSplitPayment(splitPayment, insufficientFundsIBAN);
-            } else {
-                processSplitPayment(splitPayment);
-            }
-        }
-    }
-
-    private void processSplitPayment(final SplitPayment splitPayment) {
-        // Create and add success transactions for all involved users
-        for (String iban : splitPayment.getAccounts()) {
-            User involvedUser = Tools.findUserByAccount(iban, users);
-            if (involvedUser != null) {
-                transactionService.addSuccessSplitTransaction(
-                        splitPayment.getTimestamp(),
-                        splitPayment.getAmounts().stream().mapToDouble(Double::doubleValue).sum(),
-                        splitPayment.getAmounts(),
-                        splitPayment.getCurrency(),
-                        splitPayment.getAccounts(),
-                        splitPayment.getSplitPaymentType(),
-                        involvedUser
-                );
-            }
-        }
-
-        // Deduct the amounts from each account
-        for (int i = 0; i < splitPayment.getAccounts().size(); i++) {
-            String iban = splitPayment.getAccounts().get(i);
-            Account account = Tools.findAccountByIBAN(iban, users);
-            double amount = splitPayment.getAmounts().get(i);
-            String currency = splitPayment.getCurrency();
-            double convertedAmount =
-                    Tools.calculateFinalAmount(account, amount, exchangeRates, currency);
-            account.spend(convertedAmount);
+            settlementEngine.submit(splitPayment);
         }
-
-        // Remove the completed split payment from all users
-        Tools.removeSplitPaymentFromUsers(splitPayment, users);
-    }
-
-    private void handleErrorSplitPayment(final SplitPayment splitPayment,
-                                         final String insufficientFundsIBAN) {
-        // Create and add error transactions for all involved users
-        for (String iban : splitPayment.getAccounts()) {
-            User involvedUser = Tools.findUserByAccount(iban, users);
-            if (involvedUser != null) {
-                transactionService.addSplitErrorTransaction(
-                        splitPayment.getTimestamp(),
-                        splitPayment.getAmounts().stream().mapToDouble(Double::doubleValue).sum(),
-                        splitPayment.getAmounts(),
-                        splitPayment.getCurrency(),
-                        insufficientFundsIBAN,
-                        splitPayment.getAccounts(),
-                        splitPayment.getSplitPaymentType(),
-                        involvedUser
-                );
-            }
-        }
-
-        // Remove the failed split payment from all users
-        Tools.removeSplitPaymentFromUsers(splitPayment, users);
     }
 }
@@ -2,12 +2,13 @@ package org.poo.main.commands;
 
 import org.poo.main.accounts.Account;
 import org.poo.main.accounts.AccountFactory;
+import org.poo.main.accounts.AccountRegistry;
+import org.poo.main.accounts.IdAllocator;
 import org.poo.main.exchange_rate.ExchangeRate;
 import org.poo.main.transactions.TransactionService;
 import org.poo.main.tools.Tools;
 import org.poo.main.user.User;
 import org.poo.fileio.CommandInput;
-import org.poo.utils.Utils;
 
 import com.fasterxml.jackson.databind.node.ArrayNode;
 
@@ -17,12 +18,18 @@ public final class AddAccountCommand implements Command {
     private final List<User> users;
     private final List<ExchangeRate> exchangeRates;
     private final TransactionService transactionService;
+    private final AccountRegistry accountRegistry;
+    private final IdAllocator idAllocator;
 
     public AddAccountCommand(final List<User> users, final List<ExchangeRate> exchangeRates,
-                                                final TransactionService transactionService) {
+                             final TransactionService transactionService,
+                             final AccountRegistry accountRegistry,
+                             final IdAllocator idAllocator) {
         this.users = users;
         this.exchangeRates = exchangeRates;
         this.transactionService = transactionService;
+        this.accountRegistry = accountRegistry;
+        this.idAllocator = idAllocator;
     }
 
     @Override
@@ -36,7 +43,7 @@ public final class AddAccountCommand implements Command {
         int timestamp = command.getTimestamp();
         String accountType = command.getAccountType();
         String currency = command.getCurrency();
-        String iban = Utils.generateIBAN();
+        String iban = idAllocator.nextIban(user.getEmail());
 
         Account account = null;
 
@@ -86,8 +93,9 @@ public final class AddAccountCommand implements Command {
             return;
         }
 
-        // Add the account to the user's list of accounts
+        // Add the account to the user's list of accounts and to the indexes of the bank
         user.addAccount(account);
+        accountRegistry.register(account, user);
 
         // Add the transaction to the user's transaction list
         if (!account.isBusinessAccount()) {
@@ -2,23 +2,20 @@ package org.poo.main.commands;
 
 import org.poo.fileio.CommandInput;
 import org.poo.main.accounts.Account;
-import org.poo.main.tools.Tools;
-import org.poo.main.user.User;
+import org.poo.main.accounts.AccountRegistry;
 import com.fasterxml.jackson.databind.node.ArrayNode;
 
-import java.util.List;
-
 public final class AddFundsCommand implements Command {
 
-    private final List<User> users;
+    private final AccountRegistry accountRegistry;
 
-    public AddFundsCommand(final List<User> users) {
-        this.users = users;
+    public AddFundsCommand(final AccountRegistry accountRegistry) {
+        this.accountRegistry = accountRegistry;
     }
 
     @Override
     public void execute(final CommandInput command, final ArrayNode output) {
-        Account account = Tools.findAccountByIBAN(command.getAccount(), users);
+        Account account = accountRegistry.findByIban(command.getAccount());
         String email = command.getEmail();
         double amount = command.getAmount();
 
@@ -0,0 +1,112 @@
+package org.poo.main.commands;
+
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import org.poo.fileio.CommandInput;
+import org.poo.main.accounts.Account;
+import org.poo.main.accounts.AccountRegistry;
+import org.poo.main.accounts.SavingsAccount;
+import org.poo.main.transactions.TransactionService;
+import org.poo.main.user.User;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * Adds the interest to every savings account in one pass, like an addInterest command
+ * for each of them, without looking every account up by its IBAN. The accounts can be
+ * restricted to a currency and/or to a list of IBANs.
+ * <p>
+ * The savings accounts come from the index of the account registry and are grouped by
+ * owner. The owners are split between the workers of a fork/join pool. All the accounts
+ * of an owner are handled by the same worker, in order, so its "Interest rate income"
+ * transactions are the same as with one addInterest command per account.
+ */
+public final class AddInterestToAllCommand implements Command {
+    private static final int USERS_PER_TASK = 256;
+
+    private final AccountRegistry accountRegistry;
+    private final TransactionService transactionService;
+    private final ForkJoinPool pool;
+
+    public AddInterestToAllCommand(final AccountRegistry accountRegistry,
+                                   final TransactionService transactionService,
+                                   final ForkJoinPool pool) {
+        this.accountRegistry = accountRegistry;
+        this.transactionService = transactionService;
+        this.pool = pool;
+    }
+
+    @Override
+    public void execute(final CommandInput command, final ArrayNode output) {
+        Set<String> ibans = command.getAccounts() == null
+                ? null : new HashSet<>(command.getAccounts());
+
+        Map<User, List<SavingsAccount>> byOwner = new LinkedHashMap<>();
+        for (Account account : accountRegistry.select("savings", command.getCurrency(), null)) {
+            if (ibans == null || ibans.contains(account.getIban())) {
+                byOwner.computeIfAbsent(accountRegistry.getOwner(account),
+                        owner -> new ArrayList<>()).add((SavingsAccount) account);
+            }
+        }
+
+        List<Map.Entry<User, List<SavingsAccount>>> owners = new ArrayList<>(byOwner.entrySet());
+        pool.invoke(new InterestTask(command.getTimestamp(), owners, 0, owners.size()));
+    }
+
+    /**
+     * Adds the interest to the savings accounts of a range of owners.
+     */
+    private final class InterestTask extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+
+        private final int timestamp;
+        // Tasks are never serialized, the owners are only shared with the pool
+        private final transient List<Map.Entry<User, List<SavingsAccount>>> owners;
+        private final int from;
+        private final int to;
+
+        InterestTask(final int timestamp,
+                     final List<Map.Entry<User, List<SavingsAccount>>> owners,
+                     final int from, final int to) {
+            this.timestamp = timestamp;
+            this.owners = owners;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from > USERS_PER_TASK) {
+                int middle = (from + to) >>> 1;
+                invokeAll(new InterestTask(timestamp, owners, from, middle),
+                        new InterestTask(timestamp, owners, middle, to));
+                return;
+            }
+
+            for (int i = from; i < to; i++) {
+                for (SavingsAccount account : owners.get(i).getValue()) {
+                    addInterest(account, owners.get(i).getKey());
+                }
+            }
+        }
+
+        private void addInterest(final SavingsAccount account, final User user) {
+            double interestRate = account.getInterestRate();
+            double balance = account.getBalance();
+            account.deposit(interestRate * balance);
+
+            transactionService.addInterestTransaction(
+                    timestamp,
+                    interestRate * balance,
+                    account.getCurrency(),
+                    user
+            );
+        }
+    }
+}
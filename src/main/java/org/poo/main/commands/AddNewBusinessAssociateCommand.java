@@ -3,6 +3,7 @@ package org.poo.main.commands;
 import com.fasterxml.jackson.databind.node.ArrayNode;
 import org.poo.fileio.CommandInput;
 import org.poo.main.accounts.Account;
+import org.poo.main.accounts.AccountRegistry;
 import org.poo.main.tools.Tools;
 import org.poo.main.user.User;
 
@@ -10,9 +11,12 @@ import java.util.List;
 
 public final class AddNewBusinessAssociateCommand implements Command {
     private final List<User> users;
+    private final AccountRegistry accountRegistry;
 
-    public AddNewBusinessAssociateCommand(final List<User> users) {
+    public AddNewBusinessAssociateCommand(final List<User> users,
+                                          final AccountRegistry accountRegistry) {
         this.users = users;
+        this.accountRegistry = accountRegistry;
     }
 
     @Override
@@ -34,6 +38,7 @@ public final class AddNewBusinessAssociateCommand implements Command {
 
         // Add the account to the user's list of accounts
         user.addAccount(businessAccount);
+        accountRegistry.registerAssociate(businessAccount, user);
 
         // Synchronize all existing cards in the business account with the new user's account
         for (var card : businessAccount.getCards()) {
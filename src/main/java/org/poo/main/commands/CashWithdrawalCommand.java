@@ -4,8 +4,10 @@ import com.fasterxml.jackson.databind.node.ArrayNode;
 import com.fasterxml.jackson.databind.node.ObjectNode;
 import org.poo.fileio.CommandInput;
 import org.poo.main.accounts.Account;
+import org.poo.main.accounts.AccountRegistry;
 import org.poo.main.cards.Card;
 import org.poo.main.exchange_rate.ExchangeRate;
+import org.poo.main.policy.PolicyEngine;
 import org.poo.main.tools.Tools;
 import org.poo.main.transactions.TransactionService;
 import org.poo.main.user.User;
@@ -16,13 +18,19 @@ public final class CashWithdrawalCommand implements Command {
     private final List<User> users;
     private final List<ExchangeRate> exchangeRates;
     private final TransactionService transactionService;
+    private final PolicyEngine policies;
+    private final AccountRegistry accountRegistry;
 
     public CashWithdrawalCommand(final List<User> users,
                                  final List<ExchangeRate> exchangeRates,
-                                 final TransactionService transactionService) {
+                                 final TransactionService transactionService,
+                                 final PolicyEngine policies,
+                                 final AccountRegistry accountRegistry) {
         this.users = users;
         this.exchangeRates = exchangeRates;
         this.transactionService = transactionService;
+        this.policies = policies;
+        this.accountRegistry = accountRegistry;
     }
 
     @Override
@@ -36,7 +44,7 @@ public final class CashWithdrawalCommand implements Command {
         }
 
         String cardNumber = command.getCardNumber();
-        Card card = Tools.findCardByCardNumber(cardNumber, users);
+        Card card = accountRegistry.findCard(cardNumber);
 
         if (card == null) {
             addErrorOutput("cashWithdrawal", "Card not found", timestamp, output);
@@ -53,7 +61,7 @@ public final class CashWithdrawalCommand implements Command {
 
         // Calculate and add commission (still in "RON")
         double commission =
-                Tools.calculateComision(user, amountInRON, "RON", exchangeRates);
+                policies.commission(user.getPlanId(), amountInRON, "RON", exchangeRates);
         amountInRON += commission;
 
         // Convert the amount + commission to the account's currency
@@ -61,9 +69,8 @@ public final class CashWithdrawalCommand implements Command {
                 ExchangeRate.getExchangeRate("RON", account.getCurrency(), exchangeRates);
         double amountInAccountCurrency = amountInRON * exchangeRate;
 
-        // Check if there are sufficient funds to perform withdrawal
-        if (account.getBalance() >= amountInAccountCurrency) {
-            account.spend(amountInAccountCurrency);
+        // Check the funds and withdraw in a single atomic step
+        if (account.tryDebit(amountInAccountCurrency)) {
             transactionService.addWithdrawalTransaction(timestamp, user, amountInRON - commission);
         } else {
             transactionService.addInsufficientFundsTransaction(timestamp,
@@ -2,6 +2,8 @@ package org.poo.main.commands;
 
 import org.poo.fileio.CommandInput;
 import org.poo.main.accounts.Account;
+import org.poo.main.accounts.AccountRegistry;
+import org.poo.main.accounts.IdAllocator;
 import org.poo.main.cards.Card;
 import org.poo.main.cards.CardFactory;
 import org.poo.main.transactions.TransactionService;
@@ -15,10 +17,16 @@ public final class CreateCardCommand implements Command {
 
     private final List<User> users;
     private final TransactionService transactionService;
+    private final AccountRegistry accountRegistry;
+    private final IdAllocator idAllocator;
 
-    public CreateCardCommand(final List<User> users, final TransactionService transactionService) {
+    public CreateCardCommand(final List<User> users, final TransactionService transactionService,
+                             final AccountRegistry accountRegistry,
+                             final IdAllocator idAllocator) {
         this.users = users;
         this.transactionService = transactionService;
+        this.accountRegistry = accountRegistry;
+        this.idAllocator = idAllocator;
     }
 
     @Override
@@ -37,7 +45,7 @@ public final class CreateCardCommand implements Command {
             String iban = account.getIban();
 
             // Generate a unique card number
-            String cardNumber = org.poo.utils.Utils.generateCardNumber();
+            String cardNumber = idAllocator.nextCardNumber(user.getEmail());
 
             // Use the factory to create a standard card
             Card card =
@@ -49,6 +57,7 @@ public final class CreateCardCommand implements Command {
 
             // Synchronize the card across all instances
             Tools.addCardToAllInstances(card, iban, users);
+            accountRegistry.registerCard(card);
 
             // Add the transaction to the user's transaction list
             transactionService.addCardTransaction(command.getTimestamp(), card, account, user);
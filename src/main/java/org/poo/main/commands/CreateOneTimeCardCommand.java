@@ -2,6 +2,8 @@ package org.poo.main.commands;
 
 import org.poo.fileio.CommandInput;
 import org.poo.main.accounts.Account;
+import org.poo.main.accounts.AccountRegistry;
+import org.poo.main.accounts.IdAllocator;
 import org.poo.main.cards.Card;
 import org.poo.main.cards.CardFactory;
 import org.poo.main.transactions.TransactionService;
@@ -15,11 +17,17 @@ public final class CreateOneTimeCardCommand implements Command {
 
     private final List<User> users;
     private final TransactionService transactionService;
+    private final AccountRegistry accountRegistry;
+    private final IdAllocator idAllocator;
 
     public CreateOneTimeCardCommand(final List<User> users,
-                                    final TransactionService transactionService) {
+                                    final TransactionService transactionService,
+                                    final AccountRegistry accountRegistry,
+                                    final IdAllocator idAllocator) {
         this.users = users;
         this.transactionService = transactionService;
+        this.accountRegistry = accountRegistry;
+        this.idAllocator = idAllocator;
     }
 
     @Override
@@ -38,7 +46,7 @@ public final class CreateOneTimeCardCommand implements Command {
             String iban = account.getIban();
 
             // Generate a unique card number
-            String cardNumber = org.poo.utils.Utils.generateCardNumber();
+            String cardNumber = idAllocator.nextCardNumber(user.getEmail());
 
             // Use the factory to create a one-time card
             Card oneTimeCard =
@@ -50,6 +58,7 @@ public final class CreateOneTimeCardCommand implements Command {
 
             // Synchronize the card across all instances
             Tools.addCardToAllInstances(oneTimeCard, iban, users);
+            accountRegistry.registerCard(oneTimeCard);
 
             // Add the transaction to the user's transaction list
             transactionService.addCardTransaction(command.getTimestamp(),
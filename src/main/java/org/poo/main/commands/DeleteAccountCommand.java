@@ -5,6 +5,7 @@ import com.fasterxml.jackson.databind.node.ArrayNode;
 import com.fasterxml.jackson.databind.node.ObjectNode;
 import org.poo.fileio.CommandInput;
 import org.poo.main.accounts.Account;
+import org.poo.main.accounts.AccountRegistry;
 import org.poo.main.cards.Card;
 import org.poo.main.transactions.TransactionService;
 import org.poo.main.tools.Tools;
@@ -17,13 +18,16 @@ public final class DeleteAccountCommand implements Command {
     private final List<User> users;
     private final TransactionService transactionService;
     private final ObjectMapper objectMapper;
+    private final AccountRegistry accountRegistry;
 
     public DeleteAccountCommand(final List<User> users,
                                 final TransactionService transactionService,
-                                final ObjectMapper objectMapper) {
+                                final ObjectMapper objectMapper,
+                                final AccountRegistry accountRegistry) {
         this.users = users;
         this.transactionService = transactionService;
         this.objectMapper = objectMapper;
+        this.accountRegistry = accountRegistry;
     }
 
     @Override
@@ -56,6 +60,7 @@ public final class DeleteAccountCommand implements Command {
             }
 
             // Remove all cards and the account
+            accountRegistry.unregister(foundAccount);
             foundAccount.clearCards();
             user.removeAccount(foundAccount);
 
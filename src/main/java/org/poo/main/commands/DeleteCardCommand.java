@@ -3,6 +3,7 @@ package org.poo.main.commands;
 import com.fasterxml.jackson.databind.node.ArrayNode;
 import org.poo.fileio.CommandInput;
 import org.poo.main.accounts.Account;
+import org.poo.main.accounts.AccountRegistry;
 import org.poo.main.cards.Card;
 import org.poo.main.transactions.TransactionService;
 import org.poo.main.user.User;
@@ -13,11 +14,14 @@ public final class DeleteCardCommand implements Command {
 
     private final List<User> users;
     private final TransactionService transactionService;
+    private final AccountRegistry accountRegistry;
 
     public DeleteCardCommand(final List<User> users,
-                             final TransactionService transactionService) {
+                             final TransactionService transactionService,
+                             final AccountRegistry accountRegistry) {
         this.users = users;
         this.transactionService = transactionService;
+        this.accountRegistry = accountRegistry;
     }
 
     @Override
@@ -47,6 +51,7 @@ public final class DeleteCardCommand implements Command {
 
                         // Remove the card from the account
                         account.removeCard(card);
+                        accountRegistry.unregisterCard(card);
                         return;
                     }
                 }
@@ -5,14 +5,16 @@ import com.fasterxml.jackson.databind.node.ArrayNode;
 import com.fasterxml.jackson.databind.node.ObjectNode;
 import org.poo.fileio.CommandInput;
 import org.poo.main.accounts.Account;
+import org.poo.main.accounts.AccountRegistry;
+import org.poo.main.accounts.IdAllocator;
 import org.poo.main.cards.Card;
 import org.poo.main.cards.OneTimeCard;
 import org.poo.main.exchange_rate.ExchangeRate;
+import org.poo.main.policy.PolicyEngine;
 import org.poo.main.transactions.TransactionService;
 import org.poo.main.tools.Tools;
 import org.poo.main.user.User;
 import org.poo.main.commerciant.Commerciant;
-import org.poo.utils.Utils;
 
 import java.util.List;
 
@@ -21,16 +23,25 @@ public final class PayOnlineCommand implements Command {
     private final List<ExchangeRate> exchangeRates;
     private final List<Commerciant> commerciants;
     private final TransactionService transactionService;
+    private final PolicyEngine policies;
+    private final AccountRegistry accountRegistry;
+    private final IdAllocator idAllocator;
     private final ObjectMapper objectMapper = new ObjectMapper();
 
     public PayOnlineCommand(final List<User> users,
                             final List<ExchangeRate> exchangeRates,
                             final List<Commerciant> commerciants,
-                            final TransactionService transactionService) {
+                            final TransactionService transactionService,
+                            final PolicyEngine policies,
+                            final AccountRegistry accountRegistry,
+                            final IdAllocator idAllocator) {
         this.users = users;
         this.exchangeRates = exchangeRates;
         this.commerciants = commerciants;
         this.transactionService = transactionService;
+        this.policies = policies;
+        this.accountRegistry = accountRegistry;
+        this.idAllocator = idAllocator;
     }
 
     @Override
@@ -122,11 +133,18 @@ public final class PayOnlineCommand implements Command {
                 }
             }
 
-            account.spend(finalAmount);
-            if (commerciant.getCashbackStrategy().equals("spendingThreshold")) {
+            // The balance may have changed since it was read, check it again atomically
+            if (!account.tryDebit(finalAmount)) {
+                transactionService.addInsufficientFundsTransaction(timestamp,
+                        "Insufficient funds", user, account.getIban());
+                return;
+            }
+            account.recordMerchantPayment(commerciant);
+            if (commerciant.getCashbackKind() == PolicyEngine.CASHBACK_SPENDING_THRESHOLD) {
                 account.addToTotalSpendingThreshold(finalAmount);
             }
-            double commission = Tools.calculateComision(user, finalAmount, currency, exchangeRates);
+            double commission =
+                    policies.commission(user.getPlanId(), finalAmount, currency, exchangeRates);
 
             // Substract the calculated commision from the account
             account.spend((commission));
@@ -140,10 +158,12 @@ public final class PayOnlineCommand implements Command {
 
             String accountCurrency = account.getCurrency(); // Moneda contului
 
-            if (account.isApplyingCashback(commerciant, accountCurrency, exchangeRates) != null) {
+            int applicableCashback = account.isApplyingCashback(commerciant, accountCurrency,
+                    exchangeRates, policies);
+            if (applicableCashback != PolicyEngine.CASHBACK_NONE) {
                 double cashback = account.applyCashbackForTransaction(commerciant, amount,
-                        account.isApplyingCashback(commerciant, accountCurrency, exchangeRates),
-                        accountCurrency, commandCurrency, exchangeRates, user);
+                        applicableCashback, accountCurrency, commandCurrency, exchangeRates, user,
+                        policies);
 
                 account.deposit(cashback);
             }
@@ -174,15 +194,17 @@ public final class PayOnlineCommand implements Command {
         // Now the card being used, remove it and create a new one
         if (oneTimeCard.isUsed()) {
             account.removeCard(oneTimeCard);
+            accountRegistry.unregisterCard(oneTimeCard);
             // Add the transaction to the user's transaction list
             transactionService.addDeletedCardTransaction(timestamp, account, card, user);
 
             // Creating a new card after payment
-            String newCardNumber = Utils.generateCardNumber();
+            String newCardNumber = idAllocator.nextCardNumber(user.getEmail());
             OneTimeCard newOneTimeCard = new OneTimeCard(user, account, newCardNumber);
 
             // Adding the new card in account
             account.addCard(newOneTimeCard);
+            accountRegistry.registerCard(newOneTimeCard);
 
             // Add the new card transaction to the user's transaction list
             transactionService.addCardTransaction(timestamp, newOneTimeCard, account, user);
@@ -6,9 +6,9 @@ import com.fasterxml.jackson.databind.node.ObjectNode;
 import org.poo.fileio.CommandInput;
 import org.poo.main.tools.Tools;
 import org.poo.main.transactions.Transaction;
+import org.poo.main.transactions.TransactionPage;
 import org.poo.main.user.User;
 
-import java.util.ArrayList;
 import java.util.List;
 
 public final class PrintTransactionsCommand implements Command {
@@ -37,12 +37,31 @@ public final class PrintTransactionsCommand implements Command {
         resultNode.put("command", "printTransactions");
         resultNode.put("timestamp", timestamp);
 
-        // Get all transactions for the user
-        List<Transaction> transactions = new ArrayList<>(user.getTransactions());
+        TransactionPage page;
+        try {
+            page = TransactionPage.of(command);
+        } catch (IllegalArgumentException e) {
+            ObjectNode errorOutput = resultNode.putObject("output");
+            errorOutput.put("description", e.getMessage());
+            errorOutput.put("timestamp", timestamp);
+            output.add(resultNode);
+            return;
+        }
 
-        // Generate the nodes representing the transactions
-        ArrayNode transactionsArray = Tools.getTransactions(transactions);
-        resultNode.set("output", transactionsArray);
+        List<Transaction> transactions = user.getTransactions();
+        if (page == null) {
+            // Generate the nodes representing all the transactions of the user
+            resultNode.set("output", Tools.getTransactions(transactions));
+        } else {
+            // Generate the nodes of one page, with the cursor of the next one
+            int first = page.first(transactions);
+            int end = (int) Math.min((long) first + page.getLimit(), transactions.size());
+            resultNode.set("output", Tools.getTransactions(transactions.subList(first, end)));
+            if (end < transactions.size()) {
+                page.continueAt(transactions, end);
+                resultNode.put("cursor", page.getNextCursor());
+            }
+        }
 
         // Add the final result node to the output array
         output.add(resultNode);
@@ -27,10 +27,10 @@ public final class PrintUsersCommand implements Command {
         // Create an array to hold the users
         ArrayNode usersArray = objectMapper.createArrayNode();
 
-        // Iterate over all users in the bank system to print each user's info
+        // Iterate over all users in the bank system to print each user's info,
+        // only the users changed since the last print are rendered again
         for (User user : users) {
-            ObjectNode userNode = Tools.printUser(user);
-            usersArray.add(userNode);
+            usersArray.addPOJO(Tools.renderUser(user));
         }
 
         commandResultNode.set("output", usersArray);
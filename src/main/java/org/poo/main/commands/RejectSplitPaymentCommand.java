@@ -3,6 +3,7 @@ package org.poo.main.commands;
 import com.fasterxml.jackson.databind.node.ArrayNode;
 import com.fasterxml.jackson.databind.node.ObjectNode;
 import org.poo.fileio.CommandInput;
+import org.poo.main.accounts.AccountRegistry;
 import org.poo.main.split.SplitPayment;
 import org.poo.main.tools.Tools;
 import org.poo.main.transactions.TransactionService;
@@ -13,11 +14,14 @@ import java.util.List;
 public final class RejectSplitPaymentCommand implements Command {
     private final List<User> users;
     private final TransactionService transactionService;
+    private final AccountRegistry accountRegistry;
 
     public RejectSplitPaymentCommand(final List<User> users,
-                                     final TransactionService transactionService) {
+                                     final TransactionService transactionService,
+                                     final AccountRegistry accountRegistry) {
         this.users = users;
         this.transactionService = transactionService;
+        this.accountRegistry = accountRegistry;
     }
 
     @Override
@@ -48,22 +52,12 @@ public final class RejectSplitPaymentCommand implements Command {
         }
 
         // Process rejection for all involved users
-        for (String iban : splitPayment.getAccounts()) {
-            User involvedUser = Tools.findUserByAccount(iban, users);
-            if (involvedUser != null) {
-                transactionService.addSplitRejectTransaction(
-                        splitPayment.getTimestamp(),
-                        splitPayment.getAmounts().stream().mapToDouble(Double::doubleValue).sum(),
-                        splitPayment.getAmounts(),
-                        splitPayment.getCurrency(),
-                        splitPayment.getAccounts(),
-                        splitPayment.getSplitPaymentType(),
-                        involvedUser
-                );
-            }
-        }
+        List<User> involvedUsers = Tools.findInvolvedUsers(splitPayment, accountRegistry);
+        transactionService.addSplitRejectTransaction(splitPayment, involvedUsers);
 
         // Remove the rejected split payment from all users
-        Tools.removeSplitPaymentFromUsers(splitPayment, users);
+        for (User involvedUser : involvedUsers) {
+            involvedUser.removePendingSplitPayment(splitPayment);
+        }
     }
 }
@@ -6,6 +6,7 @@ import com.fasterxml.jackson.databind.node.ObjectNode;
 import org.poo.fileio.CommandInput;
 import org.poo.main.transactions.ReportTransactionFilter;
 import org.poo.main.transactions.TransactionFilter;
+import org.poo.main.tools.ReportCache;
 import org.poo.main.tools.Tools;
 import org.poo.main.user.User;
 import org.poo.main.exchange_rate.ExchangeRate;
@@ -16,12 +17,15 @@ public final class ReportCommand implements Command {
     private final ObjectMapper objectMapper;
     private final List<User> users;
     private final List<ExchangeRate> exchangeRates;
+    private final ReportCache reportCache;
 
     public ReportCommand(final ObjectMapper objectMapper,
-                         final List<User> users, final List<ExchangeRate> exchangeRates) {
+                         final List<User> users, final List<ExchangeRate> exchangeRates,
+                         final ReportCache reportCache) {
         this.objectMapper = objectMapper;
         this.users = users;
         this.exchangeRates = exchangeRates;
+        this.reportCache = reportCache;
     }
 
     @Override
@@ -34,7 +38,8 @@ public final class ReportCommand implements Command {
 
         // Generate the data for the report using a utility method from Tools
         ObjectNode outputNode =
-                Tools.generateReportData(command, filter, false, users, exchangeRates);
+                Tools.generateReportData(command, filter, false, users, exchangeRates,
+                        reportCache);
 
         reportNode.set("output", outputNode);
         reportNode.put("timestamp", command.getTimestamp());
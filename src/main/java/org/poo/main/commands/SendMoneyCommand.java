@@ -5,8 +5,11 @@ import com.fasterxml.jackson.databind.node.ArrayNode;
 import com.fasterxml.jackson.databind.node.ObjectNode;
 import org.poo.fileio.CommandInput;
 import org.poo.main.accounts.Account;
+import org.poo.main.accounts.AccountRegistry;
+import org.poo.main.accounts.AccountLocks;
 import org.poo.main.commerciant.Commerciant;
 import org.poo.main.exchange_rate.ExchangeRate;
+import org.poo.main.policy.PolicyEngine;
 import org.poo.main.tools.Tools;
 import org.poo.main.transactions.TransactionService;
 import org.poo.main.user.User;
@@ -18,16 +21,22 @@ public final class SendMoneyCommand implements Command {
     private final List<ExchangeRate> exchangeRates;
     private final List<Commerciant> commerciants;
     private final TransactionService transactionService;
+    private final PolicyEngine policies;
+    private final AccountRegistry accountRegistry;
     private final ObjectMapper objectMapper = new ObjectMapper();
 
     public SendMoneyCommand(final List<User> users,
                             final List<ExchangeRate> exchangeRates,
                             final List<Commerciant> commerciants,
-                            final TransactionService transactionService) {
+                            final TransactionService transactionService,
+                            final PolicyEngine policies,
+                            final AccountRegistry accountRegistry) {
         this.users = users;
         this.exchangeRates = exchangeRates;
         this.commerciants = commerciants;
         this.transactionService = transactionService;
+        this.policies = policies;
+        this.accountRegistry = accountRegistry;
     }
 
     @Override
@@ -41,13 +50,13 @@ public final class SendMoneyCommand implements Command {
 
         boolean isMerchant = Tools.isCommerciantIban(receiverIBAN, commerciants);
 
-        Account senderAccount = Tools.findAccountByIBAN(senderIBAN, users);
-        Account receiverAccount = Tools.findAccountByIBAN(receiverIBAN, users);
+        Account senderAccount = accountRegistry.findByIban(senderIBAN);
+        Account receiverAccount = accountRegistry.findByIban(receiverIBAN);
 
         if (!isMerchant) {
             if (senderAccount == null) {
                 // Try with alias
-                senderAccount = Tools.findAccountByAlias(senderIBAN, users);
+                senderAccount = accountRegistry.findByAlias(senderIBAN);
                 if (senderAccount == null) {
                     sendMoneyError("User not found", timestamp, output);
                     return;
@@ -55,7 +64,7 @@ public final class SendMoneyCommand implements Command {
             }
             if (receiverAccount == null) {
                 // Try with alias
-                receiverAccount = Tools.findAccountByAlias(receiverIBAN, users);
+                receiverAccount = accountRegistry.findByAlias(receiverIBAN);
                 if (receiverAccount == null) {
                     sendMoneyError("User not found", timestamp, output);
                     return;
@@ -68,22 +77,23 @@ public final class SendMoneyCommand implements Command {
 
         // Calculate commission in sender's currency
         double commission =
-                Tools.calculateComision(senderUser, amount,
-                                        senderAccount.getCurrency(), exchangeRates);
+                policies.commission(senderUser.getPlanId(), amount,
+                                    senderAccount.getCurrency(), exchangeRates);
 
         if (isMerchant) {
             Commerciant commerciant = Tools.findCommerciantByIBAN(receiverIBAN, commerciants);
             senderAccount.spend(amount + commission); // Include commission
+            senderAccount.recordMerchantPayment(commerciant);
 
-            if (commerciant.getCashbackStrategy().equals("spendingThreshold")) {
+            if (commerciant.getCashbackKind() == PolicyEngine.CASHBACK_SPENDING_THRESHOLD) {
                 senderAccount.addToTotalSpendingThreshold(amount);
             }
 
             String senderCurrency = senderAccount.getCurrency();
-            String applicableCashback =
-                    senderAccount.isApplyingCashback(commerciant, senderCurrency, exchangeRates);
+            int applicableCashback = senderAccount.isApplyingCashback(commerciant,
+                    senderCurrency, exchangeRates, policies);
 
-            if (applicableCashback != null) {
+            if (applicableCashback != PolicyEngine.CASHBACK_NONE) {
                 double cashback = senderAccount.applyCashbackForTransaction(
                         commerciant,
                         amount,
@@ -91,7 +101,8 @@ public final class SendMoneyCommand implements Command {
                         senderAccount.getCurrency(),
                         senderAccount.getCurrency(),
                         exchangeRates,
-                        senderUser
+                        senderUser,
+                        policies
                 );
 
                 senderAccount.deposit(cashback);
@@ -134,18 +145,14 @@ public final class SendMoneyCommand implements Command {
             }
         }
 
-        // Check if the sender has enough funds for the transfer including commission
-        if (senderAccount.getBalance() < totalAmount) {
+        // Move the funds if the sender has enough for the transfer including commission
+        if (!AccountLocks.transfer(senderAccount, totalAmount, receiverAccount, finalAmount)) {
             // Add the transaction to the user's transaction list
             transactionService.addInsufficientFundsTransaction(timestamp,
                     "Insufficient funds", senderUser, senderIBAN);
             return;
         }
 
-        // Perform the transfer
-        senderAccount.spend(totalAmount); // Include commission
-        receiverAccount.deposit(finalAmount);
-
         // Add transactions for both the sender and the receiver
         transactionService.addSendMoneyTransaction(timestamp, senderAccount,
                 receiverAccount, amount, senderAccount.getCurrency(), description);
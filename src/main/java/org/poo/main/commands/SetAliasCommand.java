@@ -3,6 +3,7 @@ package org.poo.main.commands;
 import com.fasterxml.jackson.databind.node.ArrayNode;
 import org.poo.fileio.CommandInput;
 import org.poo.main.accounts.Account;
+import org.poo.main.accounts.AccountRegistry;
 import org.poo.main.tools.Tools;
 import org.poo.main.user.User;
 
@@ -10,9 +11,11 @@ import java.util.List;
 
 public final class SetAliasCommand implements Command {
     private final List<User> users;
+    private final AccountRegistry accountRegistry;
 
-    public SetAliasCommand(final List<User> users) {
+    public SetAliasCommand(final List<User> users, final AccountRegistry accountRegistry) {
         this.users = users;
+        this.accountRegistry = accountRegistry;
     }
 
     @Override
@@ -34,6 +37,6 @@ public final class SetAliasCommand implements Command {
         }
 
         // Set the alias for the account
-        account.setAlias(alias);
+        accountRegistry.setAlias(account, alias);
     }
 }
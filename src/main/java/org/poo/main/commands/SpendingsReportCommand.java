@@ -7,6 +7,7 @@ import org.poo.fileio.CommandInput;
 import org.poo.main.accounts.Account;
 import org.poo.main.transactions.SpendingsTransactionFilter;
 import org.poo.main.transactions.TransactionFilter;
+import org.poo.main.tools.ReportCache;
 import org.poo.main.tools.Tools;
 import org.poo.main.user.User;
 import org.poo.main.exchange_rate.ExchangeRate;
@@ -17,12 +18,15 @@ public final class SpendingsReportCommand implements Command {
     private final ObjectMapper objectMapper;
     private final List<User> users;
     private final List<ExchangeRate> exchangeRates;
+    private final ReportCache reportCache;
 
     public SpendingsReportCommand(final ObjectMapper objectMapper,
-                                  final List<User> users, final List<ExchangeRate> exchangeRates) {
+                                  final List<User> users, final List<ExchangeRate> exchangeRates,
+                                  final ReportCache reportCache) {
         this.objectMapper = objectMapper;
         this.users = users;
         this.exchangeRates = exchangeRates;
+        this.reportCache = reportCache;
     }
 
     @Override
@@ -57,7 +61,8 @@ public final class SpendingsReportCommand implements Command {
 
         // Generate the report data using the filter and provided parameters
         ObjectNode outputNode =
-                Tools.generateReportData(command, filter, true, users, exchangeRates);
+                Tools.generateReportData(command, filter, true, users, exchangeRates,
+                        reportCache);
 
         reportNode.set("output", outputNode);
         reportNode.put("timestamp", timestamp);
@@ -26,13 +26,6 @@ public final class SplitPaymentCommand implements Command {
         String currency = command.getCurrency();
         int timestamp = command.getTimestamp();
 
-        SplitPayment splitPayment = new SplitPayment(splitType, currency, timestamp);
-
-        // Add IBANs to the SplitPayment
-        for (String iban : ibans) {
-            splitPayment.addAccount(iban);
-        }
-
         // Choose the appropriate strategy based on the split type
         SplitStrategy strategy;
         switch (splitType) {
@@ -42,12 +35,10 @@ public final class SplitPaymentCommand implements Command {
         }
 
         // Calculate the amounts using the chosen strategy
-        List<Double> amounts = strategy.calculateSplit(totalAmount, ibans, command);
+        double[] amounts = strategy.calculateSplit(totalAmount, ibans, command);
 
-        // Add the calculated amounts to the SplitPayment
-        for (double amount : amounts) {
-            splitPayment.addAmount(amount);
-        }
+        SplitPayment splitPayment =
+                new SplitPayment(splitType, currency, timestamp, ibans, amounts);
 
         // Add the transaction to the pending list for each user
         for (String iban : ibans) {
@@ -4,7 +4,9 @@ import com.fasterxml.jackson.databind.node.ArrayNode;
 import com.fasterxml.jackson.databind.node.ObjectNode;
 import org.poo.fileio.CommandInput;
 import org.poo.main.accounts.Account;
+import org.poo.main.accounts.AccountRegistry;
 import org.poo.main.exchange_rate.ExchangeRate;
+import org.poo.main.policy.PolicyEngine;
 import org.poo.main.tools.Tools;
 import org.poo.main.transactions.TransactionService;
 import org.poo.main.user.User;
@@ -15,16 +17,18 @@ public final class UpgradePlanCommand implements Command {
     private final List<User> users;
     private final List<ExchangeRate> exchangeRates;
     private final TransactionService transactionService;
-
-    private static final double STANDARD_TO_SILVER_FEE = 100.0;
-    private static final double STANDARD_TO_GOLD_FEE = 350.0;
-    private static final double SILVER_TO_GOLD_FEE = 250.0;
+    private final PolicyEngine policies;
+    private final AccountRegistry accountRegistry;
 
     public UpgradePlanCommand(final List<User> users, final List<ExchangeRate> exchangeRates,
-                                            final TransactionService transactionService) {
+                                            final TransactionService transactionService,
+                                            final PolicyEngine policies,
+                                            final AccountRegistry accountRegistry) {
         this.users = users;
         this.exchangeRates = exchangeRates;
         this.transactionService = transactionService;
+        this.policies = policies;
+        this.accountRegistry = accountRegistry;
     }
 
     @Override
@@ -64,31 +68,17 @@ public final class UpgradePlanCommand implements Command {
             String description = "The user already has the " + newPlan + " plan.";
             transactionService.addErrorTransaction(timestamp, description, user);
         }
+
+        int currentPlanId = user.getPlanId();
+        int newPlanId = policies.planId(newPlan);
         double upgradeFeeInRON = 0;
 
-        // Find the upgrade fee needed in RON
-        switch (currentPlan) {
-            case "standard", "student" -> {
-                if (newPlan.equals("silver")) {
-                    upgradeFeeInRON = STANDARD_TO_SILVER_FEE;
-                } else if (newPlan.equals("gold")) {
-                    upgradeFeeInRON = STANDARD_TO_GOLD_FEE;
-                } else {
-                    return;
-                }
-            }
-            case "silver" -> {
-                if (newPlan.equals("gold")) {
-                    upgradeFeeInRON = SILVER_TO_GOLD_FEE;
-                } else {
-                    return;
-                }
-            }
-            case "gold" -> {
+        // Find the upgrade fee needed in RON (users on an unknown plan upgrade for free)
+        if (currentPlanId != PolicyEngine.UNKNOWN_PLAN) {
+            upgradeFeeInRON = policies.upgradeFee(currentPlanId, newPlanId);
+            if (Double.isNaN(upgradeFeeInRON)) {
                 return;
             }
-            default -> {
-            }
         }
 
         double upgradeFee = upgradeFeeInRON;
@@ -100,17 +90,15 @@ public final class UpgradePlanCommand implements Command {
             upgradeFee = ((upgradeFeeInRON / exchangeRate) * 100.0) / 100.0;
         }
 
-        // Check if the account has enough funds to upgrade plan
-        if (account.getBalance() < upgradeFee) {
+        // Check if the account has enough funds and substract the upgrade fee from it
+        if (!account.tryDebit(upgradeFee)) {
             transactionService.addInsufficientFundsTransaction(timestamp,
                     "Insufficient funds for upgrade", user, accountIBAN);
             return;
         }
 
-        // Substract the upgrade fee from account
-        account.spend(upgradeFee);
-
         // Upgrade the plan for given account and for all other accounts of that user
+        accountRegistry.changePlan(user, newPlan);
         user.setAccountPlan(newPlan);
         for (Account acc : user.getAccounts()) {
             acc.setAccountPlan(newPlan);
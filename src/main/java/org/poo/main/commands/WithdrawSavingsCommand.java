@@ -3,6 +3,7 @@ package org.poo.main.commands;
 import com.fasterxml.jackson.databind.node.ArrayNode;
 import org.poo.fileio.CommandInput;
 import org.poo.main.accounts.Account;
+import org.poo.main.accounts.AccountLocks;
 import org.poo.main.accounts.ClassicAccount;
 import org.poo.main.accounts.SavingsAccount;
 import org.poo.main.exchange_rate.ExchangeRate;
@@ -10,19 +11,24 @@ import org.poo.main.tools.Tools;
 import org.poo.main.transactions.TransactionService;
 import org.poo.main.user.User;
 
+import java.time.LocalDate;
 import java.util.List;
+import java.util.function.Supplier;
 
 public final class WithdrawSavingsCommand implements Command {
     private final List<User> users;
     private final List<ExchangeRate> exchangeRates;
     private final TransactionService transactionService;
+    private final Supplier<LocalDate> today;
 
     public WithdrawSavingsCommand(final List<User> users,
                                   final List<ExchangeRate> exchangeRates,
-                                  final TransactionService transactionService) {
+                                  final TransactionService transactionService,
+                                  final Supplier<LocalDate> today) {
         this.users = users;
         this.exchangeRates = exchangeRates;
         this.transactionService = transactionService;
+        this.today = today;
     }
 
     @Override
@@ -49,7 +55,7 @@ public final class WithdrawSavingsCommand implements Command {
 
         SavingsAccount savings = (SavingsAccount) savingsAccount;
 
-        if (!user.hasMinAge()) {
+        if (!user.hasMinAge(today.get())) {
             String description = "You don't have the minimum age required.";
             transactionService.addErrorTransaction(timestamp, description, user);
             return;
@@ -75,15 +81,12 @@ public final class WithdrawSavingsCommand implements Command {
                 ExchangeRate.getExchangeRate(savings.getCurrency(), currency, exchangeRates);
         double requiredAmount = amount / exchangeRate; // Convert to the savings account currency
 
-        if (savings.getBalance() < requiredAmount) {
+        // Transfer funds if the savings account covers them
+        if (!AccountLocks.transfer(savings, requiredAmount, classicAccount, amount)) {
             transactionService.addErrorTransaction(timestamp, "Insufficient funds", user);
             return;
         }
 
-        // Transfer funds
-        savings.spend(requiredAmount);
-        classicAccount.deposit(amount);
-
         // Add transactions for both accounts
         transactionService.addSavingsWithdrawalTransaction(timestamp,
                 amount, savings.getIban(), classicAccount.getIban(), user);
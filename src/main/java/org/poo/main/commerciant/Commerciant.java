@@ -10,6 +10,7 @@ public final class Commerciant {
     private String account; // IBAN
     private String type;
     private String cashbackStrategy;
+    private int cashbackKind; // Compiled cashback strategy, see PolicyEngine
 
     public Commerciant(final String name, final int id, final String account,
                        final String type, final String cashbackStrategy) {
@@ -55,4 +56,12 @@ public final class Commerciant {
     public void setCashbackStrategy(final String cashbackStrategy) {
         this.cashbackStrategy = cashbackStrategy;
     }
+
+    public int getCashbackKind() {
+        return cashbackKind;
+    }
+
+    public void setCashbackKind(final int cashbackKind) {
+        this.cashbackKind = cashbackKind;
+    }
 }
@@ -0,0 +1,52 @@
+package org.poo.main.events;
+
+import org.poo.fileio.CommandInput;
+
+import java.time.LocalDate;
+
+/**
+ * An event of the journal: a state-changing command, as the bank received it, and the
+ * date the bank executed it on. The event records the command, not its effects (the
+ * amounts moved, the accounts created): applying an event runs its command through a
+ * bank again, with the clock of that bank fixed at the recorded date, so the command
+ * takes the same decisions as it did the first time. Applying the events in sequence
+ * order to the initial bank rebuilds its state.
+ * <p>
+ * The command belongs to the journal once appended and must not be modified.
+ */
+public final class BankEvent {
+    private final long sequence;
+    private final int timestamp;
+    private final EventKind kind;
+    private final CommandInput command;
+    private final LocalDate date;
+
+    BankEvent(final long sequence, final EventKind kind, final CommandInput command,
+              final LocalDate date) {
+        this.sequence = sequence;
+        this.timestamp = command.getTimestamp();
+        this.kind = kind;
+        this.command = command;
+        this.date = date;
+    }
+
+    public long getSequence() {
+        return sequence;
+    }
+
+    public int getTimestamp() {
+        return timestamp;
+    }
+
+    public EventKind getKind() {
+        return kind;
+    }
+
+    public CommandInput getCommand() {
+        return command;
+    }
+
+    public LocalDate getDate() {
+        return date;
+    }
+}
@@ -0,0 +1,80 @@
+package org.poo.main.events;
+
+import org.poo.fileio.CommandInput;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Append-only, timestamp-ordered journal of the events of a bank.
+ */
+public final class EventJournal {
+    private final List<BankEvent> events = new ArrayList<>();
+
+    /**
+     * Appends the event of a state-changing command.
+     *
+     * @param kind the kind of event
+     * @param command the command
+     * @param date the date the bank executed the command on
+     * @return the event
+     * @throws IllegalArgumentException if the command is older than the last event
+     */
+    public BankEvent append(final EventKind kind, final CommandInput command,
+                            final LocalDate date) {
+        checkTimestamp(command.getTimestamp());
+
+        BankEvent event = new BankEvent(events.size(), kind, command, date);
+        events.add(event);
+        return event;
+    }
+
+    /**
+     * Checks that an event at a timestamp could be appended.
+     *
+     * @param timestamp the timestamp of the event
+     * @throws IllegalArgumentException if the timestamp is older than the last event
+     */
+    public void checkTimestamp(final int timestamp) {
+        if (!events.isEmpty() && timestamp < events.get(events.size() - 1).getTimestamp()) {
+            throw new IllegalArgumentException("Event at timestamp " + timestamp
+                    + " appended after timestamp "
+                    + events.get(events.size() - 1).getTimestamp());
+        }
+    }
+
+    public int size() {
+        return events.size();
+    }
+
+    /**
+     * Gets an event by its sequence number.
+     *
+     * @param sequence the position of the event in the journal
+     * @return the event
+     */
+    public BankEvent get(final int sequence) {
+        return events.get(sequence);
+    }
+
+    /**
+     * Gets the number of events up to a timestamp, the last one included.
+     *
+     * @param timestamp the timestamp
+     * @return the position right after the last event at or before the timestamp
+     */
+    public int positionAfter(final int timestamp) {
+        int low = 0;
+        int high = events.size();
+        while (low < high) {
+            int middle = (low + high) >>> 1;
+            if (events.get(middle).getTimestamp() <= timestamp) {
+                low = middle + 1;
+            } else {
+                high = middle;
+            }
+        }
+        return low;
+    }
+}
@@ -0,0 +1,62 @@
+package org.poo.main.events;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * The kinds of journal events, one per command changing the state of the bank.
+ * Queries (printUsers, printTransactions, the reports) produce no event.
+ */
+public enum EventKind {
+    ACCOUNT_OPENED("addAccount"),
+    ACCOUNT_CLOSED("deleteAccount"),
+    CARD_CREATED("createCard"),
+    ONE_TIME_CARD_CREATED("createOneTimeCard"),
+    CARD_DELETED("deleteCard"),
+    CARD_STATUS_CHECKED("checkCardStatus"),
+    FUNDS_ADDED("addFunds"),
+    PAYMENT_MADE("payOnline"),
+    MONEY_SENT("sendMoney"),
+    ALIAS_SET("setAlias"),
+    MINIMUM_BALANCE_SET("setMinimumBalance"),
+    SPLIT_REQUESTED("splitPayment"),
+    SPLIT_ACCEPTED("acceptSplitPayment"),
+    SPLIT_REJECTED("rejectSplitPayment"),
+    INTEREST_ADDED("addInterest"),
+    INTEREST_ADDED_TO_ALL("addInterestToAll"),
+    INTEREST_RATE_CHANGED("changeInterestRate"),
+    SAVINGS_WITHDRAWN("withdrawSavings"),
+    PLAN_UPGRADED("upgradePlan"),
+    CASH_WITHDRAWN("cashWithdrawal"),
+    ASSOCIATE_ADDED("addNewBusinessAssociate"),
+    SPENDING_LIMIT_CHANGED("changeSpendingLimit"),
+    DEPOSIT_LIMIT_CHANGED("changeDepositLimit");
+
+    private static final Map<String, EventKind> BY_COMMAND = new HashMap<>();
+
+    static {
+        for (EventKind kind : values()) {
+            BY_COMMAND.put(kind.command, kind);
+        }
+    }
+
+    private final String command;
+
+    EventKind(final String command) {
+        this.command = command;
+    }
+
+    public String getCommand() {
+        return command;
+    }
+
+    /**
+     * Gets the kind of event produced by a command.
+     *
+     * @param command the command name
+     * @return the event kind, or null for queries and unknown commands
+     */
+    public static EventKind of(final String command) {
+        return BY_COMMAND.get(command);
+    }
+}
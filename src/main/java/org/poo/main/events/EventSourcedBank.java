@@ -0,0 +1,207 @@
+package org.poo.main.events;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import org.poo.fileio.CommandInput;
+import org.poo.fileio.ObjectInput;
+import org.poo.main.bank.BankSystem;
+
+import java.time.Clock;
+import java.time.LocalDate;
+import java.time.ZoneOffset;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * A bank whose history is kept as a journal of events, so that its state can be
+ * rebuilt at any past timestamp. The live bank executes the commands as usual, every
+ * state-changing one it executed is then appended to the journal, and the state at a
+ * timestamp is the initial bank with the events up to that timestamp applied in order.
+ * The events are the commands themselves, so rebuilding a state replays them through
+ * the bank rather than applying recorded effects. The only input of a command besides
+ * the bank state is the current date (the age check of withdrawSavings): the live bank
+ * runs every command with its clock fixed at the date read from the clock of this bank,
+ * the event records that date and a rebuilt bank runs the event with its clock fixed
+ * at it, so a past state does not depend on the day it is rebuilt on.
+ * <p>
+ * Rebuilt banks are kept as checkpoints, positioned after the last event they applied.
+ * A query at a timestamp starts from the nearest checkpoint before it instead of from
+ * the initial bank, and leaves the checkpoint at its new position. When there are too
+ * many, the checkpoint closest to its predecessor is dropped, which keeps the remaining
+ * ones spread over the history. Every rebuilt bank has its own IBAN and card number
+ * generators, so it draws the same ids as the live bank did.
+ */
+public final class EventSourcedBank {
+    private static final int DEFAULT_MAX_CHECKPOINTS = 16;
+
+    private final ObjectInput setup;
+    private final BankSystem live;
+    private final EventJournal journal = new EventJournal();
+    private final TreeMap<Integer, BankSystem> checkpoints = new TreeMap<>();
+    private final int maxCheckpoints;
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final Clock clock;
+    private LocalDate liveDate;
+    private long replayedEvents;
+
+    public EventSourcedBank(final ObjectInput setup) {
+        this(setup, DEFAULT_MAX_CHECKPOINTS);
+    }
+
+    public EventSourcedBank(final ObjectInput setup, final int maxCheckpoints) {
+        this(setup, maxCheckpoints, Clock.systemDefaultZone());
+    }
+
+    /**
+     * Builds the live bank from the setup part of an input.
+     *
+     * @param setup the users, exchange rates, merchants and policies
+     * @param maxCheckpoints the number of rebuilt banks kept to speed up later queries
+     * @param clock the clock the dates of the events are read from
+     */
+    public EventSourcedBank(final ObjectInput setup, final int maxCheckpoints,
+                            final Clock clock) {
+        if (maxCheckpoints < 0) {
+            throw new IllegalArgumentException("Negative number of checkpoints");
+        }
+        this.setup = setup;
+        this.maxCheckpoints = maxCheckpoints;
+        this.clock = clock;
+        this.live = BankSystem.fromInput(setup);
+    }
+
+    /**
+     * Executes a command on the live bank and records its event, if it changes the state.
+     * A command the live bank throws on is not recorded.
+     *
+     * @param command the command to execute
+     * @param output the JSON array collecting the result
+     * @throws IllegalArgumentException if the command is older than the last event
+     */
+    public synchronized void process(final CommandInput command, final ArrayNode output) {
+        EventKind kind = EventKind.of(command.getCommand());
+        if (kind != null) {
+            // Rejected before the live bank runs it, as the journal would reject it after
+            journal.checkTimestamp(command.getTimestamp());
+        }
+        LocalDate date = LocalDate.now(clock);
+        if (!date.equals(liveDate)) {
+            liveDate = date;
+            live.setClock(fixedAt(date));
+        }
+        live.process(command, output);
+        if (kind != null) {
+            journal.append(kind, command, liveDate);
+        }
+    }
+
+    /**
+     * Ends the command stream of the live bank.
+     */
+    public synchronized void finish() {
+        live.finish();
+    }
+
+    /**
+     * Runs a query on the bank as it was at the end of a timestamp.
+     *
+     * @param timestamp the timestamp, the events at that timestamp included
+     * @param query a query command (printUsers, printTransactions, report...)
+     * @param output the JSON array collecting the result
+     * @throws IllegalArgumentException if the command changes the state of the bank
+     */
+    public synchronized void queryAt(final int timestamp, final CommandInput query,
+                                     final ArrayNode output) {
+        if (EventKind.of(query.getCommand()) != null) {
+            throw new IllegalArgumentException(query.getCommand() + " is not a query");
+        }
+
+        int position = journal.positionAfter(timestamp);
+        BankSystem replica = replicaAt(position);
+        replica.execute(query, output);
+
+        // A bank rebuilt up to the end of the journal may miss events of the current tick
+        if (position < journal.size()) {
+            park(position, replica);
+        }
+    }
+
+    public EventJournal getJournal() {
+        return journal;
+    }
+
+    /**
+     * Gets the number of events applied so far to rebuild past states.
+     *
+     * @return the number of replayed events
+     */
+    public synchronized long getReplayedEvents() {
+        return replayedEvents;
+    }
+
+    public synchronized int getCheckpointCount() {
+        return checkpoints.size();
+    }
+
+    private BankSystem replicaAt(final int position) {
+        Map.Entry<Integer, BankSystem> nearest = checkpoints.floorEntry(position);
+        if (nearest == null) {
+            BankSystem genesis = BankSystem.fromInput(setup);
+            replay(genesis, 0, position);
+            return genesis;
+        }
+
+        checkpoints.remove(nearest.getKey());
+        replay(nearest.getValue(), nearest.getKey(), position);
+        return nearest.getValue();
+    }
+
+    private void replay(final BankSystem replica, final int from, final int to) {
+        if (from == to) {
+            return;
+        }
+
+        ArrayNode discarded = objectMapper.createArrayNode();
+        LocalDate date = null;
+        for (int i = from; i < to; i++) {
+            BankEvent event = journal.get(i);
+            if (!event.getDate().equals(date)) {
+                date = event.getDate();
+                replica.setClock(fixedAt(date));
+            }
+            replica.process(event.getCommand(), discarded);
+            discarded.removeAll();
+        }
+        // The next event belongs to a later tick, the splits of this one are settled
+        replica.endTick();
+        replayedEvents += to - from;
+    }
+
+    private static Clock fixedAt(final LocalDate date) {
+        return Clock.fixed(date.atStartOfDay(ZoneOffset.UTC).toInstant(), ZoneOffset.UTC);
+    }
+
+    private void park(final int position, final BankSystem replica) {
+        if (maxCheckpoints == 0) {
+            return;
+        }
+
+        checkpoints.put(position, replica);
+        if (checkpoints.size() <= maxCheckpoints) {
+            return;
+        }
+
+        // Drop the checkpoint with the smallest gap to the one before it
+        int dropped = checkpoints.firstKey();
+        int smallestGap = dropped;
+        int previous = 0;
+        for (int checkpoint : checkpoints.keySet()) {
+            if (checkpoint - previous < smallestGap) {
+                smallestGap = checkpoint - previous;
+                dropped = checkpoint;
+            }
+            previous = checkpoint;
+        }
+        checkpoints.remove(dropped);
+    }
+}
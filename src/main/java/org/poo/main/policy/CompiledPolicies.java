@@ -0,0 +1,226 @@
+package org.poo.main.policy;
+
+import org.poo.fileio.CashbackStrategyInput;
+import org.poo.fileio.PlanPolicyInput;
+import org.poo.fileio.PolicyInput;
+import org.poo.fileio.UpgradeFeeInput;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * The policy definitions compiled into flat arrays indexed by plan id and cashback tier.
+ * Instances are immutable; loading new definitions compiles a new instance.
+ */
+final class CompiledPolicies {
+    private final Map<String, Integer> planIds;
+    private final double[] commissionRates; // [plan]
+    private final double[] commissionThresholds; // [plan], in RON, 0 means always
+    private final double[] tierThresholds; // [tier], in RON, ascending
+    private final double[][] cashbackRates; // [plan][tier]
+    private final double cashbackEligibility; // in RON
+    private final double[][] upgradeFees; // [from][to], in RON, NaN if not allowed
+    private final Map<String, Integer> strategyKinds;
+    private final Map<String, Set<String>> strategyCategories; // null means any category
+
+    private CompiledPolicies(final PolicyInput input) {
+        PlanPolicyInput[] plans = input.getPlans();
+        if (plans == null || plans.length == 0) {
+            throw new IllegalArgumentException("At least one plan must be declared.");
+        }
+        this.tierThresholds = input.getCashbackThresholds() == null
+                ? new double[0] : input.getCashbackThresholds().clone();
+        for (int tier = 1; tier < tierThresholds.length; tier++) {
+            if (tierThresholds[tier] < tierThresholds[tier - 1]) {
+                throw new IllegalArgumentException("Cashback thresholds must be ascending.");
+            }
+        }
+        this.cashbackEligibility = input.getCashbackEligibility();
+
+        this.planIds = new HashMap<>();
+        this.commissionRates = new double[plans.length];
+        this.commissionThresholds = new double[plans.length];
+        this.cashbackRates = new double[plans.length][];
+        for (PlanPolicyInput plan : plans) {
+            if (planIds.containsKey(plan.getName())) {
+                throw new IllegalArgumentException("Plan declared twice: " + plan.getName());
+            }
+            int id = planIds.size();
+            planIds.put(plan.getName(), id);
+            commissionRates[id] = plan.getCommissionRate();
+            commissionThresholds[id] = plan.getCommissionThreshold();
+
+            double[] rates = plan.getCashbackRates() == null
+                    ? new double[0] : plan.getCashbackRates();
+            if (rates.length != tierThresholds.length) {
+                throw new IllegalArgumentException("Plan " + plan.getName()
+                        + " must declare one cashback rate per threshold.");
+            }
+            cashbackRates[id] = rates.clone();
+        }
+
+        this.upgradeFees = new double[plans.length][plans.length];
+        for (double[] row : upgradeFees) {
+            Arrays.fill(row, Double.NaN);
+        }
+        if (input.getUpgradeFees() != null) {
+            for (UpgradeFeeInput upgrade : input.getUpgradeFees()) {
+                Integer from = planIds.get(upgrade.getFrom());
+                Integer to = planIds.get(upgrade.getTo());
+                if (from == null || to == null) {
+                    throw new IllegalArgumentException("Upgrade between unknown plans: "
+                            + upgrade.getFrom() + " -> " + upgrade.getTo());
+                }
+                upgradeFees[from][to] = upgrade.getFee();
+            }
+        }
+
+        this.strategyKinds = new HashMap<>();
+        this.strategyCategories = new HashMap<>();
+        if (input.getCashbackStrategies() != null) {
+            for (CashbackStrategyInput strategy : input.getCashbackStrategies()) {
+                strategyKinds.put(strategy.getName(), kindOf(strategy.getType()));
+                if (strategy.getCategories() != null) {
+                    Set<String> categories = new HashSet<>();
+                    for (String category : strategy.getCategories()) {
+                        categories.add(category.toLowerCase(Locale.ROOT));
+                    }
+                    strategyCategories.put(strategy.getName(), categories);
+                }
+            }
+        }
+    }
+
+    /**
+     * Compiles the given policy definitions.
+     *
+     * @param input the definitions
+     * @return the compiled policies
+     * @throws IllegalArgumentException if the definitions are inconsistent
+     */
+    static CompiledPolicies compile(final PolicyInput input) {
+        return new CompiledPolicies(input);
+    }
+
+    /**
+     * Builds the definitions the bank used before policies could be configured.
+     *
+     * @return the default policy definitions
+     */
+    static PolicyInput defaults() {
+        PolicyInput input = new PolicyInput();
+        input.setPlans(new PlanPolicyInput[] {
+            plan("standard", 0.002, 0.0, 0.001, 0.002, 0.0025),
+            plan("student", 0.0, 0.0, 0.001, 0.002, 0.0025),
+            plan("silver", 0.001, 500.0, 0.003, 0.004, 0.005),
+            plan("gold", 0.0, 0.0, 0.005, 0.0055, 0.007),
+        });
+        input.setCashbackThresholds(new double[] {100.0, 300.0, 500.0});
+        input.setCashbackEligibility(100.0);
+        input.setUpgradeFees(new UpgradeFeeInput[] {
+            upgrade("standard", "silver", 100.0),
+            upgrade("standard", "gold", 350.0),
+            upgrade("student", "silver", 100.0),
+            upgrade("student", "gold", 350.0),
+            upgrade("silver", "gold", 250.0),
+        });
+        input.setCashbackStrategies(new CashbackStrategyInput[] {
+            strategy("spendingThreshold", "spendingThreshold"),
+            strategy("nrOfTransactions", "nrOfTransactions", "Food", "Clothes", "Tech"),
+        });
+        return input;
+    }
+
+    int planId(final String plan) {
+        Integer id = plan == null ? null : planIds.get(plan);
+        return id == null ? PolicyEngine.UNKNOWN_PLAN : id;
+    }
+
+    int cashbackKind(final String strategy, final String category) {
+        Integer kind = strategy == null ? null : strategyKinds.get(strategy);
+        if (kind == null) {
+            return PolicyEngine.CASHBACK_NONE;
+        }
+        Set<String> categories = strategyCategories.get(strategy);
+        if (categories != null
+                && (category == null || !categories.contains(category.toLowerCase(Locale.ROOT)))) {
+            return PolicyEngine.CASHBACK_NONE;
+        }
+        return kind;
+    }
+
+    int planCount() {
+        return commissionRates.length;
+    }
+
+    int tierCount() {
+        return tierThresholds.length;
+    }
+
+    double commissionRate(final int plan) {
+        return commissionRates[plan];
+    }
+
+    double commissionThreshold(final int plan) {
+        return commissionThresholds[plan];
+    }
+
+    double tierThreshold(final int tier) {
+        return tierThresholds[tier];
+    }
+
+    double cashbackRate(final int plan, final int tier) {
+        return cashbackRates[plan][tier];
+    }
+
+    double cashbackEligibility() {
+        return cashbackEligibility;
+    }
+
+    double upgradeFee(final int from, final int to) {
+        return upgradeFees[from][to];
+    }
+
+    private static int kindOf(final String type) {
+        if ("spendingThreshold".equals(type)) {
+            return PolicyEngine.CASHBACK_SPENDING_THRESHOLD;
+        }
+        if ("nrOfTransactions".equals(type)) {
+            return PolicyEngine.CASHBACK_NR_OF_TRANSACTIONS;
+        }
+        throw new IllegalArgumentException("Unknown cashback strategy type: " + type);
+    }
+
+    private static PlanPolicyInput plan(final String name, final double commissionRate,
+                                        final double commissionThreshold,
+                                        final double... cashbackRates) {
+        PlanPolicyInput plan = new PlanPolicyInput();
+        plan.setName(name);
+        plan.setCommissionRate(commissionRate);
+        plan.setCommissionThreshold(commissionThreshold);
+        plan.setCashbackRates(cashbackRates);
+        return plan;
+    }
+
+    private static UpgradeFeeInput upgrade(final String from, final String to,
+                                           final double fee) {
+        UpgradeFeeInput upgrade = new UpgradeFeeInput();
+        upgrade.setFrom(from);
+        upgrade.setTo(to);
+        upgrade.setFee(fee);
+        return upgrade;
+    }
+
+    private static CashbackStrategyInput strategy(final String name, final String type,
+                                                  final String... categories) {
+        CashbackStrategyInput strategy = new CashbackStrategyInput();
+        strategy.setName(name);
+        strategy.setType(type);
+        strategy.setCategories(categories.length == 0 ? null : categories);
+        return strategy;
+    }
+}
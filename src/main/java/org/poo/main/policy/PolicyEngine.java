@@ -0,0 +1,146 @@
+package org.poo.main.policy;
+
+import org.poo.fileio.PolicyInput;
+import org.poo.main.commerciant.Commerciant;
+import org.poo.main.exchange_rate.ExchangeRate;
+
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Evaluates the fee and cashback policies of the bank.
+ * Plans, fee tiers, upgrade fees and cashback strategies are declared as data
+ * (the optional "policies" section of the input, or the built-in defaults) and compiled
+ * when they are loaded: plans become int ids stored on the users, merchant strategies
+ * become int kinds stored on the merchants, and the thresholds are converted per currency
+ * once per version of the exchange rates. Payments then only index into arrays.
+ * <p>
+ * The version of the exchange rates is a counter bumped by exchangeRatesChanged, which
+ * the owner of the list calls after every change to it.
+ */
+public final class PolicyEngine {
+    public static final int UNKNOWN_PLAN = -1;
+
+    public static final int CASHBACK_NONE = 0;
+    public static final int CASHBACK_SPENDING_THRESHOLD = 1;
+    public static final int CASHBACK_NR_OF_TRANSACTIONS = 2;
+
+    private volatile CompiledPolicies policies;
+    private volatile PolicyTable table;
+    private final AtomicInteger ratesVersion = new AtomicInteger();
+
+    public PolicyEngine() {
+        this.policies = CompiledPolicies.compile(CompiledPolicies.defaults());
+    }
+
+    /**
+     * Replaces the policy definitions. A null input keeps the current definitions.
+     * Plan ids and merchant kinds compiled before must be compiled again.
+     *
+     * @param input the policy definitions
+     * @throws IllegalArgumentException if the definitions are inconsistent
+     */
+    public void load(final PolicyInput input) {
+        if (input == null) {
+            return;
+        }
+        this.policies = CompiledPolicies.compile(input);
+        this.table = null;
+    }
+
+    /**
+     * Marks the exchange rates as changed, the thresholds are converted again with the
+     * new rates by the next payment.
+     */
+    public void exchangeRatesChanged() {
+        ratesVersion.incrementAndGet();
+    }
+
+    /**
+     * Compiles a plan name into its id.
+     *
+     * @param plan the plan name
+     * @return the plan id, or UNKNOWN_PLAN
+     */
+    public int planId(final String plan) {
+        return policies.planId(plan);
+    }
+
+    /**
+     * Compiles the cashback strategy of a merchant into its kind.
+     *
+     * @param commerciant the merchant
+     * @return the cashback kind, CASHBACK_NONE if the merchant gives no cashback
+     */
+    public int cashbackKind(final Commerciant commerciant) {
+        return policies.cashbackKind(commerciant.getCashbackStrategy(), commerciant.getType());
+    }
+
+    /**
+     * Calculates the commission of a payment.
+     *
+     * @param plan the plan id of the user
+     * @param amount the amount paid
+     * @param currency the currency of the amount
+     * @param exchangeRates the list of exchange rates
+     * @return the commission, in the same currency
+     */
+    public double commission(final int plan, final double amount, final String currency,
+                             final List<ExchangeRate> exchangeRates) {
+        return tableFor(exchangeRates).commission(plan, amount, currency);
+    }
+
+    /**
+     * Checks if the total spent by an account is enough for spending cashback.
+     *
+     * @param totalSpent the total spent by the account
+     * @param currency the currency of the account
+     * @param exchangeRates the list of exchange rates
+     * @return true if spending cashback applies
+     */
+    public boolean reachesCashbackThreshold(final double totalSpent, final String currency,
+                                            final List<ExchangeRate> exchangeRates) {
+        return tableFor(exchangeRates).reachesCashbackThreshold(totalSpent, currency);
+    }
+
+    /**
+     * Gets the spending cashback rate for a plan and a total spent.
+     *
+     * @param plan the plan id of the user
+     * @param totalSpent the total spent by the account
+     * @param currency the currency of the account
+     * @param exchangeRates the list of exchange rates
+     * @return the cashback rate, 0 if no tier is reached
+     */
+    public double spendingCashbackRate(final int plan, final double totalSpent,
+                                       final String currency,
+                                       final List<ExchangeRate> exchangeRates) {
+        return tableFor(exchangeRates).spendingCashbackRate(plan, totalSpent, currency);
+    }
+
+    /**
+     * Gets the fee, in RON, for upgrading between two plans.
+     *
+     * @param from the current plan id
+     * @param to the new plan id
+     * @return the fee, or NaN if the upgrade is not allowed
+     */
+    public double upgradeFee(final int from, final int to) {
+        if (from == UNKNOWN_PLAN || to == UNKNOWN_PLAN) {
+            return Double.NaN;
+        }
+        return policies.upgradeFee(from, to);
+    }
+
+    private PolicyTable tableFor(final List<ExchangeRate> exchangeRates) {
+        CompiledPolicies compiled = policies;
+        // Read before building, a change made during the build makes the table stale
+        int version = ratesVersion.get();
+        PolicyTable current = table;
+        if (current == null || !current.isBuiltFor(compiled, exchangeRates, version)) {
+            current = new PolicyTable(compiled, exchangeRates, version);
+            table = current;
+        }
+        return current;
+    }
+}
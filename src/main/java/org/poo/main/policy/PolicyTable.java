@@ -0,0 +1,119 @@
+package org.poo.main.policy;
+
+import org.poo.main.exchange_rate.ExchangeRate;
+
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Fee and cashback thresholds precomputed for every (plan, currency) pair.
+ * The RON thresholds of the compiled policies are converted once per version of the
+ * exchange rates (see PolicyEngine.exchangeRatesChanged), so deciding the commission
+ * or the cashback of a payment only reads a few array slots.
+ */
+final class PolicyTable {
+    private final CompiledPolicies policies;
+    private final List<ExchangeRate> source;
+    private final int version;
+    private final Map<String, Integer> currencyIndex;
+    private final double[] cashbackEligibility; // [currency], not rounded
+    private final double[][] tierThresholds; // [currency][tier], rounded to 2 decimals
+    private final double[][] commissionThresholds; // [currency][plan], rounded to 2 decimals
+    private final double[] noConversionTiers; // Currencies missing from the rates
+    private final double[] noConversionCommissions;
+
+    PolicyTable(final CompiledPolicies policies, final List<ExchangeRate> exchangeRates,
+                final int version) {
+        this.policies = policies;
+        this.source = exchangeRates;
+        this.version = version;
+
+        Set<String> currencies = new HashSet<>();
+        for (ExchangeRate rate : exchangeRates) {
+            currencies.add(rate.getFrom());
+            currencies.add(rate.getTo());
+        }
+        currencies.add("RON");
+
+        this.currencyIndex = new HashMap<>();
+        this.cashbackEligibility = new double[currencies.size()];
+        this.tierThresholds = new double[currencies.size()][];
+        this.commissionThresholds = new double[currencies.size()][];
+
+        for (String currency : currencies) {
+            int index = currencyIndex.size();
+            currencyIndex.put(currency, index);
+
+            double rate = 1.0;
+            if (!currency.equals("RON")) {
+                rate = ExchangeRate.getExchangeRate("RON", currency, exchangeRates);
+            }
+            cashbackEligibility[index] = currency.equals("RON")
+                    ? policies.cashbackEligibility() : policies.cashbackEligibility() * rate;
+            tierThresholds[index] = new double[policies.tierCount()];
+            for (int tier = 0; tier < policies.tierCount(); tier++) {
+                tierThresholds[index][tier] =
+                        convert(policies.tierThreshold(tier), currency, rate);
+            }
+            commissionThresholds[index] = new double[policies.planCount()];
+            for (int plan = 0; plan < policies.planCount(); plan++) {
+                commissionThresholds[index][plan] =
+                        convert(policies.commissionThreshold(plan), currency, rate);
+            }
+        }
+
+        this.noConversionTiers = new double[policies.tierCount()];
+        this.noConversionCommissions = new double[policies.planCount()];
+    }
+
+    boolean isBuiltFor(final CompiledPolicies compiled, final List<ExchangeRate> exchangeRates,
+                       final int ratesVersion) {
+        return policies == compiled && source == exchangeRates && version == ratesVersion;
+    }
+
+    double commission(final int plan, final double amount, final String currency) {
+        if (plan == PolicyEngine.UNKNOWN_PLAN) {
+            return 0;
+        }
+        if (policies.commissionThreshold(plan) > 0) {
+            Integer index = currencyIndex.get(currency);
+            double threshold = index == null
+                    ? noConversionCommissions[plan] : commissionThresholds[index][plan];
+            if (amount < threshold) {
+                return 0;
+            }
+        }
+        return amount * policies.commissionRate(plan);
+    }
+
+    boolean reachesCashbackThreshold(final double totalSpent, final String currency) {
+        Integer index = currencyIndex.get(currency);
+        double threshold = index == null ? 0.0 : cashbackEligibility[index];
+        return totalSpent >= threshold;
+    }
+
+    double spendingCashbackRate(final int plan, final double totalSpent, final String currency) {
+        if (plan == PolicyEngine.UNKNOWN_PLAN) {
+            return 0.0;
+        }
+        Integer index = currencyIndex.get(currency);
+        double[] thresholds = index == null ? noConversionTiers : tierThresholds[index];
+        for (int tier = thresholds.length - 1; tier >= 0; tier--) {
+            if (totalSpent >= thresholds[tier]) {
+                return policies.cashbackRate(plan, tier);
+            }
+        }
+        return 0.0;
+    }
+
+    private static double convert(final double amountInRON, final String currency,
+                                  final double rate) {
+        if (currency.equals("RON")) {
+            return amountInRON;
+        }
+        return Math.round((amountInRON * rate) * 100.0) / 100.0;
+    }
+}
@@ -0,0 +1,104 @@
+package org.poo.main.replay;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.poo.fileio.CommandInput;
+import org.poo.fileio.CommerciantInput;
+import org.poo.fileio.ExchangeInput;
+import org.poo.fileio.ObjectInput;
+import org.poo.fileio.PolicyInput;
+import org.poo.fileio.UserInput;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+
+/**
+ * Converts a JSON input file to a binary command log. The commands are streamed out of
+ * the file one at a time, so inputs larger than the memory can be converted.
+ * <p>
+ * As for ReplayPipeline, the setup (users, exchange rates, merchants, policies) must
+ * come before the commands in the input.
+ */
+public final class CommandLogConverter {
+    private CommandLogConverter() {
+        // Utility class
+    }
+
+    /**
+     * Converts a JSON input file to a command log.
+     *
+     * @param input the JSON input file
+     * @param log the command log to write
+     * @return the number of commands converted
+     * @throws IOException if a file cannot be read or written
+     */
+    public static long convert(final File input, final File log) throws IOException {
+        ObjectMapper objectMapper = new ObjectMapper();
+        ObjectInput setup = new ObjectInput();
+        CommandLogWriter writer = null;
+
+        try (JsonParser parser = objectMapper.getFactory().createParser(input)) {
+            if (parser.nextToken() != JsonToken.START_OBJECT) {
+                throw new IOException("The input must be a JSON object");
+            }
+            while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                String field = parser.currentName();
+                parser.nextToken();
+                if (writer != null && !field.equals("commands")) {
+                    throw new IOException("\"" + field + "\" must come before the commands");
+                }
+                switch (field) {
+                    case "users" -> setup.setUsers(
+                            objectMapper.readValue(parser, UserInput[].class));
+                    case "exchangeRates" -> setup.setExchangeRates(
+                            objectMapper.readValue(parser, ExchangeInput[].class));
+                    case "commerciants" -> setup.setCommerciants(
+                            objectMapper.readValue(parser, CommerciantInput[].class));
+                    case "policies" -> setup.setPolicies(
+                            objectMapper.readValue(parser, PolicyInput.class));
+                    case "commands" -> {
+                        writer = new CommandLogWriter(new FileOutputStream(log), setup);
+                        if (parser.currentToken() != JsonToken.START_ARRAY) {
+                            parser.skipChildren();
+                            continue;
+                        }
+                        while (parser.nextToken() == JsonToken.START_OBJECT) {
+                            writer.write(objectMapper.readValue(parser, CommandInput.class));
+                        }
+                    }
+                    default -> parser.skipChildren();
+                }
+            }
+
+            if (writer == null) {
+                writer = new CommandLogWriter(new FileOutputStream(log), setup);
+            }
+            return writer.getCommandCount();
+        } finally {
+            if (writer != null) {
+                writer.close();
+            }
+        }
+    }
+
+    /**
+     * Converts a JSON input file to a command log and prints the sizes of both.
+     *
+     * @param args the JSON input file and the command log to write
+     * @throws IOException if a file cannot be read or written
+     */
+    public static void main(final String[] args) throws IOException {
+        if (args.length != 2) {
+            System.err.println("Usage: CommandLogConverter <input file> <command log>");
+            return;
+        }
+
+        File input = new File(args[0]);
+        File log = new File(args[1]);
+        long commands = convert(input, log);
+        System.out.printf("%d commands: %d bytes of JSON, %d bytes of command log%n",
+                commands, input.length(), log.length());
+    }
+}
@@ -0,0 +1,99 @@
+package org.poo.main.replay;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Layout of the binary command log, shared by CommandLogWriter and CommandLogReader.
+ * <p>
+ * A log starts with MAGIC, the format version (varint) and the setup of the bank
+ * (users, exchange rates, merchants, policies) as a length-prefixed JSON document.
+ * Then every command is:
+ * <ul>
+ *     <li>its type, one byte: the position of its name in COMMAND_NAMES plus one, or
+ *     OTHER_COMMAND followed by the name as a string;</li>
+ *     <li>the difference to the timestamp of the previous command (zigzag varint);</li>
+ *     <li>a bit mask (varint) of the fields that are set: the strings, in the order
+ *     they are declared in CommandInput, then the FIELD_* bits;</li>
+ *     <li>the fields that are set: strings through the dictionary, ints as zigzag
+ *     varints, doubles as 8 bytes, lists as a varint length followed by their
+ *     elements.</li>
+ * </ul>
+ * A string is the varint id of a string already in the dictionary, or the next free id
+ * followed by the UTF-8 length (varint) and bytes of a new one, which joins the
+ * dictionary. The log ends with an END_OF_LOG byte.
+ * <p>
+ * Version 2 added the paging fields (FIELD_CURSOR to FIELD_FROM_TIMESTAMP). A mask bit
+ * that the version of a log does not define makes the log unreadable. Version 3 made
+ * the list elements nullable: each one is preceded by a byte, 0 for null and 1 for a
+ * value.
+ */
+final class CommandLogFormat {
+    static final byte[] MAGIC = {'B', 'K', 'C', 'L'};
+    static final int VERSION = 3;
+    static final int OLDEST_VERSION = 1;
+    static final int NULLABLE_ELEMENTS_VERSION = 3;
+
+    static final int END_OF_LOG = 0;
+    static final int OTHER_COMMAND = 0xFF;
+
+    static final List<String> COMMAND_NAMES = List.of(
+            "printUsers", "addAccount", "createCard", "createOneTimeCard", "addFunds",
+            "deleteAccount", "deleteCard", "payOnline", "sendMoney", "setAlias",
+            "printTransactions", "setMinimumBalance", "checkCardStatus", "splitPayment",
+            "acceptSplitPayment", "rejectSplitPayment", "report", "spendingsReport",
+            "addInterest", "changeInterestRate", "withdrawSavings", "upgradePlan",
+            "cashWithdrawal", "addNewBusinessAssociate", "changeSpendingLimit",
+            "changeDepositLimit", "businessReport", "addInterestToAll");
+
+    static final Map<String, Integer> COMMAND_TYPES = new HashMap<>();
+
+    static {
+        for (int i = 0; i < COMMAND_NAMES.size(); i++) {
+            COMMAND_TYPES.put(COMMAND_NAMES.get(i), i + 1);
+        }
+    }
+
+    // The first STRING_FIELDS bits of the mask are the string fields, in the order
+    // they are declared in CommandInput
+    static final int STRING_FIELDS = 15;
+
+    // Int fields
+    static final int FIELD_START_TIMESTAMP = 15;
+    static final int FIELD_END_TIMESTAMP = 16;
+
+    // Double fields
+    static final int FIELD_INTEREST_RATE = 17;
+    static final int FIELD_SPENDING_LIMIT = 18;
+    static final int FIELD_DEPOSIT_LIMIT = 19;
+    static final int FIELD_AMOUNT = 20;
+    static final int FIELD_MIN_BALANCE = 21;
+
+    // List fields
+    static final int FIELD_ACCOUNTS = 22;
+    static final int FIELD_AMOUNT_FOR_USERS = 23;
+
+    // Paging fields: a string and optional ints
+    static final int FIELD_CURSOR = 24;
+    static final int FIELD_LIMIT = 25;
+    static final int FIELD_FROM_TIMESTAMP = 26;
+
+    private static final int VERSION_1_FIELDS = FIELD_CURSOR;
+    private static final int VERSION_2_FIELDS = FIELD_FROM_TIMESTAMP + 1;
+
+    private CommandLogFormat() {
+        // Utility class
+    }
+
+    /**
+     * Gets the mask bits defined by a version of the format.
+     *
+     * @param version a version from OLDEST_VERSION to VERSION
+     * @return the mask of the fields of that version
+     */
+    static int fieldMask(final int version) {
+        int fields = version == 1 ? VERSION_1_FIELDS : VERSION_2_FIELDS;
+        return (1 << fields) - 1;
+    }
+}
@@ -0,0 +1,284 @@
+package org.poo.main.replay;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import org.poo.fileio.CommandInput;
+import org.poo.fileio.ObjectInput;
+import org.poo.fileio.SymbolDeserializer;
+import org.poo.main.bank.BankSystem;
+import org.poo.utils.SymbolTable;
+
+import java.io.BufferedInputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Reads a binary command log (see CommandLogFormat) written by CommandLogWriter:
+ * the setup of the bank, then the commands one by one, decoded to the CommandInput
+ * the JSON input would have given.
+ */
+public final class CommandLogReader implements Closeable {
+    private final DataInputStream in;
+    private final ObjectInput setup;
+    private final List<String> dictionary = new ArrayList<>();
+    private final SymbolTable symbols = new SymbolTable();
+    private final int version;
+    private final int knownFields;
+    private int lastTimestamp;
+    private boolean ended;
+
+    /**
+     * Creates a reader and reads the header and the setup of the log.
+     *
+     * @param input the stream to read from, closed with the reader
+     * @throws IOException if the stream cannot be read or is not a command log
+     */
+    public CommandLogReader(final InputStream input) throws IOException {
+        this.in = new DataInputStream(new BufferedInputStream(input));
+
+        byte[] magic = new byte[CommandLogFormat.MAGIC.length];
+        in.readFully(magic);
+        if (!Arrays.equals(magic, CommandLogFormat.MAGIC)) {
+            throw new IOException("Not a command log");
+        }
+        this.version = readVarint();
+        if (version < CommandLogFormat.OLDEST_VERSION || version > CommandLogFormat.VERSION) {
+            throw new IOException("Unsupported command log version " + version);
+        }
+        this.knownFields = CommandLogFormat.fieldMask(version);
+
+        byte[] setupJson = readBytes(readLength());
+        this.setup = SymbolDeserializer.interning(new ObjectMapper(), symbols)
+                .readValue(setupJson, ObjectInput.class);
+    }
+
+    /**
+     * Gets the setup of the bank: users, exchange rates, merchants and policies.
+     *
+     * @return the setup, without commands
+     */
+    public ObjectInput getSetup() {
+        return setup;
+    }
+
+    /**
+     * Gets the symbol table the identifiers of the log are read into, to build the bank
+     * replaying it with (see BankSystem.fromInput).
+     *
+     * @return the symbol table
+     */
+    public SymbolTable getSymbols() {
+        return symbols;
+    }
+
+    /**
+     * Reads the next command.
+     *
+     * @return the command, or null at the end of the log
+     * @throws IOException if the stream cannot be read, the log is truncated or a command
+     *                     has fields its version does not define
+     */
+    public CommandInput next() throws IOException {
+        if (ended) {
+            return null;
+        }
+        int type = in.readUnsignedByte();
+        if (type == CommandLogFormat.END_OF_LOG) {
+            ended = true;
+            return null;
+        }
+
+        CommandInput command = new CommandInput();
+        if (type == CommandLogFormat.OTHER_COMMAND) {
+            command.setCommand(readString());
+        } else if (type <= CommandLogFormat.COMMAND_NAMES.size()) {
+            command.setCommand(CommandLogFormat.COMMAND_NAMES.get(type - 1));
+        } else {
+            throw new IOException("Unknown command type " + type);
+        }
+
+        lastTimestamp += unzigzag(readVarint());
+        command.setTimestamp(lastTimestamp);
+
+        int mask = readVarint();
+        if ((mask & ~knownFields) != 0) {
+            throw new IOException("Unknown field mask " + Integer.toHexString(mask)
+                    + " in a version " + version + " command log");
+        }
+        String[] strings = new String[CommandLogFormat.STRING_FIELDS];
+        for (int field = 0; field < CommandLogFormat.STRING_FIELDS; field++) {
+            if ((mask & 1 << field) != 0) {
+                strings[field] = readString();
+            }
+        }
+        // The identifiers are canonical, as when the JSON input is parsed
+        command.setEmail(symbols.canonical(strings[0]));
+        command.setAccount(symbols.canonical(strings[1]));
+        command.setNewPlanType(strings[2]);
+        command.setRole(strings[3]);
+        command.setCurrency(symbols.canonical(strings[4]));
+        command.setTarget(strings[5]);
+        command.setDescription(strings[6]);
+        command.setCardNumber(symbols.canonical(strings[7]));
+        command.setCommerciant(symbols.canonical(strings[8]));
+        command.setReceiver(symbols.canonical(strings[9]));
+        command.setAlias(strings[10]);
+        command.setAccountType(strings[11]);
+        command.setSplitPaymentType(strings[12]);
+        command.setType(strings[13]);
+        command.setLocation(strings[14]);
+
+        if ((mask & 1 << CommandLogFormat.FIELD_START_TIMESTAMP) != 0) {
+            command.setStartTimestamp(unzigzag(readVarint()));
+        }
+        if ((mask & 1 << CommandLogFormat.FIELD_END_TIMESTAMP) != 0) {
+            command.setEndTimestamp(unzigzag(readVarint()));
+        }
+        command.setInterestRate(readDouble(mask, CommandLogFormat.FIELD_INTEREST_RATE));
+        command.setSpendingLimit(readDouble(mask, CommandLogFormat.FIELD_SPENDING_LIMIT));
+        command.setDepositLimit(readDouble(mask, CommandLogFormat.FIELD_DEPOSIT_LIMIT));
+        command.setAmount(readDouble(mask, CommandLogFormat.FIELD_AMOUNT));
+        command.setMinBalance(readDouble(mask, CommandLogFormat.FIELD_MIN_BALANCE));
+
+        if ((mask & 1 << CommandLogFormat.FIELD_ACCOUNTS) != 0) {
+            int size = readLength();
+            List<String> accounts = new ArrayList<>();
+            for (int i = 0; i < size; i++) {
+                accounts.add(readElement() ? symbols.canonical(readString()) : null);
+            }
+            command.setAccounts(accounts);
+        }
+        if ((mask & 1 << CommandLogFormat.FIELD_AMOUNT_FOR_USERS) != 0) {
+            int size = readLength();
+            List<Double> amounts = new ArrayList<>();
+            for (int i = 0; i < size; i++) {
+                amounts.add(readElement() ? in.readDouble() : null);
+            }
+            command.setAmountForUsers(amounts);
+        }
+        if ((mask & 1 << CommandLogFormat.FIELD_CURSOR) != 0) {
+            command.setCursor(readString());
+        }
+        if ((mask & 1 << CommandLogFormat.FIELD_LIMIT) != 0) {
+            command.setLimit(unzigzag(readVarint()));
+        }
+        if ((mask & 1 << CommandLogFormat.FIELD_FROM_TIMESTAMP) != 0) {
+            command.setFromTimestamp(unzigzag(readVarint()));
+        }
+        return command;
+    }
+
+    /**
+     * Replays every command left in the log through a bank system, one by one.
+     *
+     * @param bankSystem the bank system, built from the setup of the log
+     * @param output the array the results are added to
+     * @return the number of commands replayed
+     * @throws IOException if the stream cannot be read
+     */
+    public long replayInto(final BankSystem bankSystem, final ArrayNode output)
+            throws IOException {
+        long count = 0;
+        for (CommandInput command = next(); command != null; command = next()) {
+            bankSystem.process(command, output);
+            count++;
+        }
+        return count;
+    }
+
+    /**
+     * Replays a command log on a new bank system, like Main.action does a JSON input.
+     *
+     * @param log the command log
+     * @param output the array the results are added to
+     * @throws IOException if the log cannot be read
+     */
+    public static void replay(final File log, final ArrayNode output) throws IOException {
+        try (CommandLogReader reader = new CommandLogReader(new FileInputStream(log))) {
+            BankSystem bankSystem = BankSystem.fromInput(reader.getSetup(),
+                    reader.getSymbols());
+            reader.replayInto(bankSystem, output);
+            bankSystem.finish();
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        in.close();
+    }
+
+    private static int unzigzag(final int value) {
+        return (value >>> 1) ^ -(value & 1);
+    }
+
+    private double readDouble(final int mask, final int field) throws IOException {
+        return (mask & 1 << field) != 0 ? in.readDouble() : 0.0;
+    }
+
+    private String readString() throws IOException {
+        int id = readVarint();
+        if (id < dictionary.size()) {
+            return dictionary.get(id);
+        }
+        if (id != dictionary.size()) {
+            throw new IOException("Unknown string " + id);
+        }
+
+        byte[] bytes = readBytes(readLength());
+        String value = new String(bytes, StandardCharsets.UTF_8);
+        dictionary.add(value);
+        return value;
+    }
+
+    // Tells if the next list element is set; the elements of the older versions always are
+    private boolean readElement() throws IOException {
+        if (version < CommandLogFormat.NULLABLE_ELEMENTS_VERSION) {
+            return true;
+        }
+        int present = in.readUnsignedByte();
+        if (present > 1) {
+            throw new IOException("Malformed list element " + present);
+        }
+        return present == 1;
+    }
+
+    private int readLength() throws IOException {
+        int length = readVarint();
+        if (length < 0) {
+            throw new IOException("Negative length " + length);
+        }
+        return length;
+    }
+
+    // Reads the bytes in chunks, so a corrupt length fails at the end of the stream
+    // instead of allocating the whole array up front
+    private byte[] readBytes(final int length) throws IOException {
+        byte[] bytes = in.readNBytes(length);
+        if (bytes.length != length) {
+            throw new EOFException("Truncated command log: " + bytes.length + " of "
+                    + length + " bytes");
+        }
+        return bytes;
+    }
+
+    private int readVarint() throws IOException {
+        int value = 0;
+        for (int shift = 0; shift < Integer.SIZE; shift += 7) {
+            int b = in.readUnsignedByte();
+            value |= (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) {
+                return value;
+            }
+        }
+        throw new IOException("Malformed varint");
+    }
+}
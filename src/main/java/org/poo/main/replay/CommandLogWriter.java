@@ -0,0 +1,209 @@
+package org.poo.main.replay;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.poo.fileio.CommandInput;
+import org.poo.fileio.ObjectInput;
+
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Writes a binary command log (see CommandLogFormat): the setup of the bank when it is
+ * created, then the commands one by one as they are given.
+ */
+public final class CommandLogWriter implements Closeable {
+    private final DataOutputStream out;
+    private final Map<String, Integer> dictionary = new HashMap<>();
+    private int lastTimestamp;
+    private long commands;
+
+    /**
+     * Creates a writer and writes the header and the setup of the log.
+     *
+     * @param output the stream to write to, closed with the writer
+     * @param setup the users, exchange rates, merchants and policies of the bank;
+     *              its commands are not written
+     * @throws IOException if the stream cannot be written
+     */
+    public CommandLogWriter(final OutputStream output, final ObjectInput setup)
+            throws IOException {
+        this.out = new DataOutputStream(new BufferedOutputStream(output));
+
+        ObjectInput setupOnly = new ObjectInput();
+        setupOnly.setUsers(setup.getUsers());
+        setupOnly.setExchangeRates(setup.getExchangeRates());
+        setupOnly.setCommerciants(setup.getCommerciants());
+        setupOnly.setPolicies(setup.getPolicies());
+        byte[] setupJson = new ObjectMapper().writeValueAsBytes(setupOnly);
+
+        out.write(CommandLogFormat.MAGIC);
+        writeVarint(CommandLogFormat.VERSION);
+        writeVarint(setupJson.length);
+        out.write(setupJson);
+    }
+
+    /**
+     * Appends a command to the log.
+     *
+     * @param command the command
+     * @throws IOException if the stream cannot be written
+     */
+    public void write(final CommandInput command) throws IOException {
+        Integer type = CommandLogFormat.COMMAND_TYPES.get(command.getCommand());
+        if (type != null) {
+            out.writeByte(type);
+        } else {
+            out.writeByte(CommandLogFormat.OTHER_COMMAND);
+            writeString(command.getCommand());
+        }
+
+        writeVarint(zigzag(command.getTimestamp() - lastTimestamp));
+        lastTimestamp = command.getTimestamp();
+
+        String[] strings = {
+                command.getEmail(), command.getAccount(), command.getNewPlanType(),
+                command.getRole(), command.getCurrency(), command.getTarget(),
+                command.getDescription(), command.getCardNumber(), command.getCommerciant(),
+                command.getReceiver(), command.getAlias(), command.getAccountType(),
+                command.getSplitPaymentType(), command.getType(), command.getLocation()
+        };
+
+        int mask = 0;
+        for (int field = 0; field < CommandLogFormat.STRING_FIELDS; field++) {
+            mask |= flag(strings[field] != null, field);
+        }
+        mask |= flag(command.getStartTimestamp() != 0, CommandLogFormat.FIELD_START_TIMESTAMP);
+        mask |= flag(command.getEndTimestamp() != 0, CommandLogFormat.FIELD_END_TIMESTAMP);
+        mask |= flag(isSet(command.getInterestRate()), CommandLogFormat.FIELD_INTEREST_RATE);
+        mask |= flag(isSet(command.getSpendingLimit()), CommandLogFormat.FIELD_SPENDING_LIMIT);
+        mask |= flag(isSet(command.getDepositLimit()), CommandLogFormat.FIELD_DEPOSIT_LIMIT);
+        mask |= flag(isSet(command.getAmount()), CommandLogFormat.FIELD_AMOUNT);
+        mask |= flag(isSet(command.getMinBalance()), CommandLogFormat.FIELD_MIN_BALANCE);
+        mask |= flag(command.getAccounts() != null, CommandLogFormat.FIELD_ACCOUNTS);
+        mask |= flag(command.getAmountForUsers() != null, CommandLogFormat.FIELD_AMOUNT_FOR_USERS);
+        mask |= flag(command.getCursor() != null, CommandLogFormat.FIELD_CURSOR);
+        mask |= flag(command.getLimit() != null, CommandLogFormat.FIELD_LIMIT);
+        mask |= flag(command.getFromTimestamp() != null, CommandLogFormat.FIELD_FROM_TIMESTAMP);
+        writeVarint(mask);
+
+        for (int field = 0; field < CommandLogFormat.STRING_FIELDS; field++) {
+            if (strings[field] != null) {
+                writeString(strings[field]);
+            }
+        }
+        if ((mask & 1 << CommandLogFormat.FIELD_START_TIMESTAMP) != 0) {
+            writeVarint(zigzag(command.getStartTimestamp()));
+        }
+        if ((mask & 1 << CommandLogFormat.FIELD_END_TIMESTAMP) != 0) {
+            writeVarint(zigzag(command.getEndTimestamp()));
+        }
+        writeDouble(mask, CommandLogFormat.FIELD_INTEREST_RATE, command.getInterestRate());
+        writeDouble(mask, CommandLogFormat.FIELD_SPENDING_LIMIT, command.getSpendingLimit());
+        writeDouble(mask, CommandLogFormat.FIELD_DEPOSIT_LIMIT, command.getDepositLimit());
+        writeDouble(mask, CommandLogFormat.FIELD_AMOUNT, command.getAmount());
+        writeDouble(mask, CommandLogFormat.FIELD_MIN_BALANCE, command.getMinBalance());
+
+        if (command.getAccounts() != null) {
+            List<String> accounts = command.getAccounts();
+            writeVarint(accounts.size());
+            for (String account : accounts) {
+                out.writeBoolean(account != null);
+                if (account != null) {
+                    writeString(account);
+                }
+            }
+        }
+        if (command.getAmountForUsers() != null) {
+            List<Double> amounts = command.getAmountForUsers();
+            writeVarint(amounts.size());
+            for (Double amount : amounts) {
+                out.writeBoolean(amount != null);
+                if (amount != null) {
+                    out.writeDouble(amount);
+                }
+            }
+        }
+        if (command.getCursor() != null) {
+            writeString(command.getCursor());
+        }
+        if (command.getLimit() != null) {
+            writeVarint(zigzag(command.getLimit()));
+        }
+        if (command.getFromTimestamp() != null) {
+            writeVarint(zigzag(command.getFromTimestamp()));
+        }
+        commands++;
+    }
+
+    /**
+     * Gets the number of commands written.
+     *
+     * @return the number of commands
+     */
+    public long getCommandCount() {
+        return commands;
+    }
+
+    /**
+     * Ends the log and closes the stream.
+     *
+     * @throws IOException if the stream cannot be written
+     */
+    @Override
+    public void close() throws IOException {
+        try {
+            out.writeByte(CommandLogFormat.END_OF_LOG);
+        } finally {
+            out.close();
+        }
+    }
+
+    private static int flag(final boolean set, final int field) {
+        return set ? 1 << field : 0;
+    }
+
+    private static boolean isSet(final double value) {
+        return Double.doubleToRawLongBits(value) != 0;
+    }
+
+    private static int zigzag(final int value) {
+        return (value << 1) ^ (value >> (Integer.SIZE - 1));
+    }
+
+    private void writeDouble(final int mask, final int field, final double value)
+            throws IOException {
+        if ((mask & 1 << field) != 0) {
+            out.writeDouble(value);
+        }
+    }
+
+    private void writeString(final String value) throws IOException {
+        Integer id = dictionary.get(value);
+        if (id != null) {
+            writeVarint(id);
+            return;
+        }
+
+        writeVarint(dictionary.size());
+        dictionary.put(value, dictionary.size());
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        writeVarint(bytes.length);
+        out.write(bytes);
+    }
+
+    private void writeVarint(final int value) throws IOException {
+        int rest = value;
+        while ((rest & ~0x7F) != 0) {
+            out.writeByte((rest & 0x7F) | 0x80);
+            rest >>>= 7;
+        }
+        out.writeByte(rest);
+    }
+}
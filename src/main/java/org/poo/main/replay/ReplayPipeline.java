@@ -0,0 +1,336 @@
+package org.poo.main.replay;
+
+import com.fasterxml.jackson.core.JsonEncoding;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.core.util.DefaultPrettyPrinter;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import org.poo.fileio.CommandInput;
+import org.poo.fileio.CommerciantInput;
+import org.poo.fileio.ExchangeInput;
+import org.poo.fileio.ObjectInput;
+import org.poo.fileio.PolicyInput;
+import org.poo.fileio.SymbolDeserializer;
+import org.poo.fileio.UserInput;
+import org.poo.main.bank.BankSystem;
+import org.poo.utils.SymbolTable;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Replays an input file through three stages connected by bounded queues:
+ * a parser thread streaming the commands out of the file, the bank system executing them
+ * one by one on the calling thread, and a serializer thread writing the results to the
+ * output file as they come. The output is byte for byte the one of Main.action.
+ * <p>
+ * The setup (users, exchange rates, merchants, policies) must come before the commands
+ * in the input, as it does in every test file, so the bank can be built before the first
+ * command is parsed. As in Main.action, the identifiers of the input are interned into
+ * the symbol table of the bank.
+ * <p>
+ * A pipeline runs one replay at a time; every replay starts from fresh queues, metrics
+ * and failure state, so the instance can be reused, also after a failed replay.
+ */
+public final class ReplayPipeline {
+    private static final int DEFAULT_QUEUE_CAPACITY = 1024;
+    private static final CommandInput END_OF_COMMANDS = new CommandInput();
+    private static final ArrayNode END_OF_RESULTS = new ObjectMapper().createArrayNode();
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final int queueCapacity;
+
+    // The state of the current (or last) replay, replaced at the start of every replay
+    private BlockingQueue<CommandInput> commands;
+    private BlockingQueue<ArrayNode> results;
+    private CompletableFuture<ObjectInput> setup;
+    private AtomicReference<Throwable> failure;
+    private SymbolTable symbols;
+    private Thread parser;
+    private Thread serializer;
+
+    private StageMetrics parserMetrics;
+    private StageMetrics executorMetrics;
+    private StageMetrics serializerMetrics;
+
+    public ReplayPipeline() {
+        this(DEFAULT_QUEUE_CAPACITY);
+    }
+
+    public ReplayPipeline(final int queueCapacity) {
+        this.queueCapacity = queueCapacity;
+        reset();
+    }
+
+    /**
+     * Replays an input file and writes the results to the output file.
+     *
+     * @param input the input file
+     * @param output the output file
+     * @throws IOException if a file cannot be read or written
+     */
+    public void replay(final File input, final File output) throws IOException {
+        reset();
+        parser = new Thread(() -> runStage(() -> parse(input)), "replay-parser");
+        serializer = new Thread(() -> runStage(() -> serialize(output)), "replay-serializer");
+        parser.start();
+        serializer.start();
+
+        runStage(this::execute);
+
+        try {
+            parser.join();
+            serializer.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            fail(e);
+        }
+
+        Throwable error = failure.get();
+        if (error instanceof IOException ioException) {
+            throw ioException;
+        }
+        if (error instanceof RuntimeException runtimeException) {
+            throw runtimeException;
+        }
+        if (error != null) {
+            throw new IllegalStateException("Replay failed", error);
+        }
+    }
+
+    /**
+     * Gets the metrics of the last replay: items, throughput and queue depths per stage.
+     *
+     * @return a human readable report
+     */
+    public String getMetrics() {
+        return parserMetrics + "\n" + executorMetrics + "\n" + serializerMetrics;
+    }
+
+    private void reset() {
+        commands = new ArrayBlockingQueue<>(queueCapacity);
+        results = new ArrayBlockingQueue<>(queueCapacity);
+        setup = new CompletableFuture<>();
+        failure = new AtomicReference<>();
+        symbols = new SymbolTable();
+        parserMetrics = new StageMetrics("parse");
+        executorMetrics = new StageMetrics("execute");
+        serializerMetrics = new StageMetrics("serialize");
+    }
+
+    private void parse(final File input) throws IOException, InterruptedException {
+        ObjectInput setupInput = new ObjectInput();
+        ObjectReader reader = SymbolDeserializer.interning(objectMapper, symbols);
+        boolean commandsStarted = false;
+
+        try (JsonParser parser = objectMapper.getFactory().createParser(input)) {
+            parserMetrics.start();
+            if (parser.nextToken() != JsonToken.START_OBJECT) {
+                throw new IOException("The input must be a JSON object");
+            }
+            while (parser.nextToken() == JsonToken.FIELD_NAME && failure.get() == null) {
+                String field = parser.currentName();
+                parser.nextToken();
+                if (commandsStarted && !field.equals("commands")) {
+                    throw new IOException("\"" + field + "\" must come before the commands");
+                }
+                switch (field) {
+                    case "users" -> setupInput.setUsers(
+                            reader.readValue(parser, UserInput[].class));
+                    case "exchangeRates" -> setupInput.setExchangeRates(
+                            reader.readValue(parser, ExchangeInput[].class));
+                    case "commerciants" -> setupInput.setCommerciants(
+                            reader.readValue(parser, CommerciantInput[].class));
+                    case "policies" -> setupInput.setPolicies(
+                            reader.readValue(parser, PolicyInput.class));
+                    case "commands" -> {
+                        commandsStarted = true;
+                        setup.complete(setupInput);
+                        streamCommands(parser, reader);
+                    }
+                    default -> parser.skipChildren();
+                }
+            }
+        } finally {
+            setup.complete(setupInput);
+            if (failure.get() == null) {
+                commands.put(END_OF_COMMANDS);
+            }
+            parserMetrics.stop();
+        }
+    }
+
+    private void streamCommands(final JsonParser parser, final ObjectReader reader)
+            throws IOException, InterruptedException {
+        if (parser.currentToken() != JsonToken.START_ARRAY) {
+            parser.skipChildren();
+            return;
+        }
+        while (parser.nextToken() == JsonToken.START_OBJECT && failure.get() == null) {
+            long begin = System.nanoTime();
+            CommandInput command = reader.readValue(parser, CommandInput.class);
+            parserMetrics.busy(System.nanoTime() - begin);
+            commands.put(command);
+            parserMetrics.item(commands.size());
+        }
+    }
+
+    private void execute() throws IOException, InterruptedException {
+        ObjectInput setupInput;
+        try {
+            setupInput = setup.get();
+        } catch (ExecutionException e) {
+            throw new IllegalStateException(e.getCause());
+        }
+
+        try {
+            BankSystem bankSystem = BankSystem.fromInput(setupInput, symbols);
+            executorMetrics.start();
+            CommandInput command = commands.take();
+            while (command != END_OF_COMMANDS && failure.get() == null) {
+                long begin = System.nanoTime();
+                ArrayNode commandResults = objectMapper.createArrayNode();
+                bankSystem.process(command, commandResults);
+                executorMetrics.busy(System.nanoTime() - begin);
+                results.put(commandResults);
+                executorMetrics.item(results.size());
+                command = commands.take();
+            }
+            bankSystem.finish();
+        } finally {
+            if (failure.get() == null) {
+                results.put(END_OF_RESULTS);
+            }
+            executorMetrics.stop();
+        }
+    }
+
+    private void serialize(final File output) throws IOException, InterruptedException {
+        try (JsonGenerator generator =
+                     objectMapper.getFactory().createGenerator(output, JsonEncoding.UTF8)) {
+            serializerMetrics.start();
+            generator.setPrettyPrinter(new DefaultPrettyPrinter());
+            generator.writeStartArray();
+            ArrayNode commandResults = results.take();
+            while (commandResults != END_OF_RESULTS) {
+                long begin = System.nanoTime();
+                for (JsonNode result : commandResults) {
+                    objectMapper.writeTree(generator, result);
+                }
+                serializerMetrics.busy(System.nanoTime() - begin);
+                serializerMetrics.item(results.size());
+                commandResults = results.take();
+            }
+            generator.writeEndArray();
+        } finally {
+            serializerMetrics.stop();
+        }
+    }
+
+    private void runStage(final Stage stage) {
+        try {
+            stage.run();
+        } catch (IOException | InterruptedException | RuntimeException e) {
+            fail(e);
+        }
+    }
+
+    private void fail(final Throwable error) {
+        if (failure.compareAndSet(null, error)) {
+            // Unblock the other stages: the executor waits on the queues, the threads
+            // may be blocked handing an item over
+            setup.completeExceptionally(error);
+            commands.clear();
+            results.clear();
+            commands.offer(END_OF_COMMANDS);
+            results.offer(END_OF_RESULTS);
+            parser.interrupt();
+            serializer.interrupt();
+        }
+    }
+
+    /**
+     * A stage body, run on its own thread.
+     */
+    private interface Stage {
+        void run() throws IOException, InterruptedException;
+    }
+
+    /**
+     * Throughput and queue depth of one stage. The depth is the one of the queue
+     * the stage feeds, sampled every time it hands an item over.
+     */
+    private static final class StageMetrics {
+        private static final double NANOS_PER_SECOND = 1_000_000_000.0;
+
+        private final String name;
+        private long items;
+        private long busyNanos;
+        private long startNanos;
+        private long elapsedNanos;
+        private long depthSum;
+        private int maxDepth;
+
+        StageMetrics(final String name) {
+            this.name = name;
+        }
+
+        void start() {
+            startNanos = System.nanoTime();
+        }
+
+        void stop() {
+            if (startNanos != 0) {
+                elapsedNanos = System.nanoTime() - startNanos;
+            }
+        }
+
+        void busy(final long nanos) {
+            busyNanos += nanos;
+        }
+
+        void item(final int queueDepth) {
+            items++;
+            depthSum += queueDepth;
+            maxDepth = Math.max(maxDepth, queueDepth);
+        }
+
+        @Override
+        public String toString() {
+            double seconds = elapsedNanos / NANOS_PER_SECOND;
+            return String.format("%-9s %8d items  %10.0f items/s  busy %5.1f%%  "
+                            + "queue depth avg %.1f max %d", name, items,
+                    seconds == 0 ? 0.0 : items / seconds,
+                    elapsedNanos == 0 ? 0.0 : 100.0 * busyNanos / elapsedNanos,
+                    items == 0 ? 0.0 : (double) depthSum / items, maxDepth);
+        }
+    }
+
+    /**
+     * Replays an input file and prints the metrics of the stages.
+     *
+     * @param args the input file and the output file
+     * @throws IOException if a file cannot be read or written
+     */
+    public static void main(final String[] args) throws IOException {
+        if (args.length != 2) {
+            System.err.println("Usage: ReplayPipeline <input file> <output file>");
+            return;
+        }
+
+        ReplayPipeline pipeline = new ReplayPipeline();
+        long start = System.nanoTime();
+        pipeline.replay(new File(args[0]), new File(args[1]));
+        System.out.printf("replayed in %.1f ms%n", (System.nanoTime() - start) / 1e6);
+        System.out.println(pipeline.getMetrics());
+    }
+}
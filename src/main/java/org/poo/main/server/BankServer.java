@@ -0,0 +1,340 @@
+package org.poo.main.server;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import org.poo.fileio.CommandInput;
+import org.poo.fileio.ObjectInput;
+import org.poo.fileio.SymbolDeserializer;
+import org.poo.main.bank.BankSystem;
+
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.SocketAddress;
+import java.net.StandardProtocolFamily;
+import java.net.UnixDomainSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayDeque;
+import java.util.Iterator;
+
+/**
+ * Long-running front end of a bank system. Clients send commands as newline-delimited
+ * JSON (one CommandInput per line) over a loopback TCP or Unix domain socket; every
+ * command is answered, in order, by one line holding the JSON array of its results.
+ * <p>
+ * A single selector thread accepts the connections, reads them, executes the commands
+ * through the bank system (so they run one at a time, in arrival order) and writes the
+ * answers. A connection whose client does not read its answers stops being read once
+ * HIGH_WATER_MARK bytes are waiting to be sent, and is read again when they drop
+ * under LOW_WATER_MARK. A line longer than MAX_LINE_LENGTH bytes is answered with an
+ * error and its connection is closed once the answers before it have been sent.
+ * <p>
+ * The split payments completed during a timestamp tick are settled when a command of a
+ * later timestamp arrives, as in a replay. The answer to the command completing a split
+ * therefore does not include its settlement, and a split completed by the last command
+ * sent stays pending until the server is closed.
+ */
+public final class BankServer implements Closeable {
+    private static final int READ_BUFFER_SIZE = 64 * 1024;
+    private static final int HIGH_WATER_MARK = 1024 * 1024;
+    private static final int LOW_WATER_MARK = 256 * 1024;
+    private static final String UNIX_PREFIX = "unix:";
+
+    /** Longest command line accepted, without its newline. */
+    static final int MAX_LINE_LENGTH = 64 * 1024;
+    /** Error answered to a longer line before closing its connection. */
+    static final String LINE_TOO_LONG = "Line longer than " + MAX_LINE_LENGTH + " bytes";
+
+    private final BankSystem bankSystem;
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final ObjectReader commandReader; // Shares the identifiers the bank knows
+    private final Selector selector;
+    private final ServerSocketChannel serverChannel;
+    private final ByteBuffer readBuffer = ByteBuffer.allocate(READ_BUFFER_SIZE);
+    private volatile boolean running;
+
+    /**
+     * Opens the server socket.
+     *
+     * @param bankSystem the bank system executing the commands
+     * @param address a loopback TCP address or a Unix domain socket address
+     * @throws IOException if the socket cannot be opened
+     */
+    public BankServer(final BankSystem bankSystem, final SocketAddress address)
+            throws IOException {
+        this.bankSystem = bankSystem;
+        this.commandReader = SymbolDeserializer.sharing(objectMapper, bankSystem.getSymbols())
+                .forType(CommandInput.class);
+        this.selector = Selector.open();
+        this.serverChannel = address instanceof UnixDomainSocketAddress
+                ? ServerSocketChannel.open(StandardProtocolFamily.UNIX)
+                : ServerSocketChannel.open();
+        this.serverChannel.bind(address);
+        this.serverChannel.configureBlocking(false);
+        this.serverChannel.register(selector, SelectionKey.OP_ACCEPT);
+        this.running = true;
+    }
+
+    /**
+     * Gets the address the server listens on (with the actual port for TCP port 0).
+     *
+     * @return the local address
+     * @throws IOException if the socket is closed
+     */
+    public SocketAddress getLocalAddress() throws IOException {
+        return serverChannel.getLocalAddress();
+    }
+
+    /**
+     * Runs the event loop until the server is closed.
+     *
+     * @throws IOException if the selector fails
+     */
+    public void serve() throws IOException {
+        try {
+            while (running) {
+                selector.select();
+                Iterator<SelectionKey> keys = selector.selectedKeys().iterator();
+                while (keys.hasNext()) {
+                    SelectionKey key = keys.next();
+                    keys.remove();
+                    if (!key.isValid()) {
+                        continue;
+                    }
+                    try {
+                        if (key.isAcceptable()) {
+                            accept();
+                            continue;
+                        }
+                        if (key.isReadable()) {
+                            read(key);
+                        }
+                        if (key.isValid() && key.isWritable()) {
+                            write(key);
+                        }
+                    } catch (IOException e) {
+                        // The client went away, only its connection is dropped
+                        closeConnection(key);
+                    }
+                }
+            }
+        } finally {
+            bankSystem.finish();
+            for (SelectionKey key : selector.keys()) {
+                key.channel().close();
+            }
+            selector.close();
+        }
+    }
+
+    /**
+     * Stops the event loop. Safe to call from any thread.
+     */
+    @Override
+    public void close() {
+        running = false;
+        selector.wakeup();
+    }
+
+    private void accept() throws IOException {
+        SocketChannel channel = serverChannel.accept();
+        if (channel == null) {
+            return;
+        }
+        channel.configureBlocking(false);
+        channel.register(selector, SelectionKey.OP_READ, new Connection());
+    }
+
+    private void read(final SelectionKey key) throws IOException {
+        SocketChannel channel = (SocketChannel) key.channel();
+        Connection connection = (Connection) key.attachment();
+
+        readBuffer.clear();
+        int read = channel.read(readBuffer);
+        if (read < 0) {
+            // The client is done sending, answer what is left and close
+            connection.inputClosed = true;
+            key.interestOps(key.interestOps() & ~SelectionKey.OP_READ);
+            if (connection.pendingWrites.isEmpty()) {
+                closeConnection(key);
+            }
+            return;
+        }
+
+        readBuffer.flip();
+        byte[] bytes = readBuffer.array();
+        int lineStart = 0;
+        for (int i = 0; i < readBuffer.limit(); i++) {
+            if (bytes[i] == '\n') {
+                if (connection.partialLine.size() + i - lineStart > MAX_LINE_LENGTH) {
+                    rejectLine(key, connection);
+                    return;
+                }
+                connection.partialLine.write(bytes, lineStart, i - lineStart);
+                handleLine(connection, connection.partialLine.toByteArray());
+                connection.partialLine.reset();
+                lineStart = i + 1;
+            }
+        }
+        if (connection.partialLine.size() + readBuffer.limit() - lineStart > MAX_LINE_LENGTH) {
+            rejectLine(key, connection);
+            return;
+        }
+        connection.partialLine.write(bytes, lineStart, readBuffer.limit() - lineStart);
+
+        flush(key, connection);
+        if (connection.pendingBytes > HIGH_WATER_MARK) {
+            // Backpressure: stop reading until the client catches up
+            key.interestOps(key.interestOps() & ~SelectionKey.OP_READ);
+        }
+    }
+
+    private void handleLine(final Connection connection, final byte[] line) throws IOException {
+        if (isBlank(line)) {
+            return;
+        }
+
+        ArrayNode results = objectMapper.createArrayNode();
+        try {
+            CommandInput command = commandReader.readValue(line);
+            bankSystem.process(command, results);
+        } catch (IOException | RuntimeException e) {
+            results.removeAll();
+            ObjectNode error = results.addObject();
+            error.put("error", String.valueOf(e.getMessage()));
+        }
+        enqueue(connection, results);
+    }
+
+    private void rejectLine(final SelectionKey key, final Connection connection)
+            throws IOException {
+        // Nothing after an oversized line can be trusted to start a command, stop reading
+        connection.partialLine.reset();
+        ArrayNode results = objectMapper.createArrayNode();
+        results.addObject().put("error", LINE_TOO_LONG);
+        enqueue(connection, results);
+        connection.inputClosed = true;
+        key.interestOps(key.interestOps() & ~SelectionKey.OP_READ);
+        flush(key, connection);
+    }
+
+    private void enqueue(final Connection connection, final ArrayNode results)
+            throws IOException {
+        byte[] answer = objectMapper.writeValueAsBytes(results);
+        ByteBuffer buffer = ByteBuffer.allocate(answer.length + 1);
+        buffer.put(answer).put((byte) '\n').flip();
+        connection.pendingWrites.add(buffer);
+        connection.pendingBytes += buffer.remaining();
+    }
+
+    private void write(final SelectionKey key) throws IOException {
+        Connection connection = (Connection) key.attachment();
+        flush(key, connection);
+        if (key.isValid() && connection.pendingBytes < LOW_WATER_MARK
+                && !connection.inputClosed) {
+            key.interestOps(key.interestOps() | SelectionKey.OP_READ);
+        }
+    }
+
+    private void flush(final SelectionKey key, final Connection connection) throws IOException {
+        SocketChannel channel = (SocketChannel) key.channel();
+        while (!connection.pendingWrites.isEmpty()) {
+            ByteBuffer buffer = connection.pendingWrites.peek();
+            int written = channel.write(buffer);
+            connection.pendingBytes -= written;
+            if (buffer.hasRemaining()) {
+                // The socket is full, continue when it becomes writable
+                key.interestOps(key.interestOps() | SelectionKey.OP_WRITE);
+                return;
+            }
+            connection.pendingWrites.poll();
+        }
+
+        key.interestOps(key.interestOps() & ~SelectionKey.OP_WRITE);
+        if (connection.inputClosed) {
+            closeConnection(key);
+        }
+    }
+
+    private static void closeConnection(final SelectionKey key) {
+        key.cancel();
+        try {
+            key.channel().close();
+        } catch (IOException e) {
+            // Already closed
+        }
+    }
+
+    /**
+     * Checks if a received line holds nothing but whitespace.
+     *
+     * @param line the line, without its newline
+     * @return true if the line is blank
+     */
+    static boolean isBlank(final byte[] line) {
+        for (byte b : line) {
+            if (!Character.isWhitespace(b)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Parses a listening address: "unix:/path/to/socket" or a TCP port on loopback.
+     *
+     * @param address the address given on the command line
+     * @return the socket address
+     */
+    public static SocketAddress parseAddress(final String address) {
+        if (address.startsWith(UNIX_PREFIX)) {
+            return UnixDomainSocketAddress.of(address.substring(UNIX_PREFIX.length()));
+        }
+        return new InetSocketAddress("127.0.0.1", Integer.parseInt(address));
+    }
+
+    /**
+     * Starts a server. The users, exchange rates, merchants and policies are loaded
+     * from an input file in the usual format; its commands are ignored.
+     *
+     * @param args the input file and the address ("unix:/path" or a TCP port)
+     * @throws IOException if the input cannot be read or the socket cannot be opened
+     */
+    public static void main(final String[] args) throws IOException {
+        if (args.length != 2) {
+            System.err.println("Usage: BankServer <setup input file> <port | unix:path>");
+            return;
+        }
+
+        ObjectInput setup = new ObjectMapper().readValue(new File(args[0]), ObjectInput.class);
+        SocketAddress address = parseAddress(args[1]);
+        if (address instanceof UnixDomainSocketAddress unixAddress) {
+            Files.deleteIfExists(Path.of(unixAddress.getPath().toString()));
+        }
+
+        BankServer server = new BankServer(BankSystem.fromInput(setup), address);
+        Runtime.getRuntime().addShutdownHook(new Thread(server::close));
+        System.out.println("Listening on " + server.getLocalAddress());
+        server.serve();
+    }
+
+    /**
+     * Per-connection state: the line being received and the answers waiting to be sent.
+     */
+    private static final class Connection {
+        private final ByteArrayOutputStream partialLine = new ByteArrayOutputStream();
+        private final ArrayDeque<ByteBuffer> pendingWrites = new ArrayDeque<>();
+        private long pendingBytes;
+        private boolean inputClosed;
+    }
+}
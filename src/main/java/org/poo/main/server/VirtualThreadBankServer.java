@@ -0,0 +1,292 @@
+package org.poo.main.server;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import org.poo.fileio.CommandInput;
+import org.poo.fileio.ObjectInput;
+import org.poo.fileio.SymbolDeserializer;
+import org.poo.main.bank.BankSystem;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.net.SocketAddress;
+import java.net.StandardProtocolFamily;
+import java.net.UnixDomainSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Connection-per-thread front end of a bank system, speaking the same newline-delimited
+ * JSON protocol as BankServer. Every session is served by its own thread, a virtual one
+ * by default, so idle sessions only cost a small heap object each. As in BankServer, a
+ * line longer than BankServer.MAX_LINE_LENGTH bytes is answered with an error and ends
+ * its session.
+ * <p>
+ * The sessions block on plain channel reads and writes, and the commands run one at a
+ * time under a ReentrantLock. What the sessions share outside of it (the report cache,
+ * the rendered users and transactions) is guarded by ReentrantLocks too, so a virtual
+ * thread waiting for another session does not pin its carrier thread. The monitors left
+ * in the bank (allocating ids, adding symbols) are only taken while holding the command
+ * lock, so they never have to be waited for. The monitors of the JDK and of Jackson are
+ * not accounted for.
+ * <p>
+ * Closing the server stops accepting sessions, closes the open ones and waits for their
+ * threads, a command being executed running to its end, then finishes the bank system.
+ */
+public final class VirtualThreadBankServer implements Closeable {
+    private static final int BUFFER_SIZE = 8 * 1024;
+    private static final int ACCEPT_BACKLOG = 4096;
+    private static final int INITIAL_LINE_CAPACITY = 256;
+    private static final byte NEWLINE = '\n';
+
+    private final BankSystem bankSystem;
+    private final ServerSocketChannel serverChannel;
+    private final ThreadFactory sessionThreads;
+    private final ReentrantLock commandLock = new ReentrantLock();
+    private final ReentrantLock closeLock = new ReentrantLock(); // Guards running
+    private final Map<Thread, SocketChannel> sessions = new ConcurrentHashMap<>();
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final ObjectReader commandReader; // Shares the identifiers the bank knows
+    private volatile boolean running;
+
+    /**
+     * Opens the server socket, serving every session on a virtual thread.
+     *
+     * @param bankSystem the bank system executing the commands
+     * @param address a loopback TCP address or a Unix domain socket address
+     * @throws IOException if the socket cannot be opened
+     */
+    public VirtualThreadBankServer(final BankSystem bankSystem, final SocketAddress address)
+            throws IOException {
+        this(bankSystem, address, Thread.ofVirtual().name("bank-session-", 0).factory());
+    }
+
+    /**
+     * Opens the server socket, serving every session on a thread of the given factory.
+     *
+     * @param bankSystem the bank system executing the commands
+     * @param address a loopback TCP address or a Unix domain socket address
+     * @param sessionThreads the factory creating one thread per session
+     * @throws IOException if the socket cannot be opened
+     */
+    public VirtualThreadBankServer(final BankSystem bankSystem, final SocketAddress address,
+                                   final ThreadFactory sessionThreads) throws IOException {
+        this.bankSystem = bankSystem;
+        this.commandReader = SymbolDeserializer.sharing(objectMapper, bankSystem.getSymbols())
+                .forType(CommandInput.class);
+        this.sessionThreads = sessionThreads;
+        this.serverChannel = address instanceof UnixDomainSocketAddress
+                ? ServerSocketChannel.open(StandardProtocolFamily.UNIX)
+                : ServerSocketChannel.open();
+        this.serverChannel.bind(address, ACCEPT_BACKLOG);
+        this.running = true;
+    }
+
+    /**
+     * Gets the address the server listens on (with the actual port for TCP port 0).
+     *
+     * @return the local address
+     * @throws IOException if the socket is closed
+     */
+    public SocketAddress getLocalAddress() throws IOException {
+        return serverChannel.getLocalAddress();
+    }
+
+    /**
+     * Accepts sessions until the server is closed, then closes it if it stopped for
+     * another reason.
+     *
+     * @throws IOException if accepting fails
+     */
+    public void serve() throws IOException {
+        try {
+            while (running) {
+                SocketChannel channel = serverChannel.accept();
+                if (!startSession(channel)) {
+                    channel.close();
+                }
+            }
+        } catch (ClosedChannelException e) {
+            // Closed by close()
+        } finally {
+            close();
+        }
+    }
+
+    /**
+     * Stops accepting sessions, closes the open ones and waits for them to end, then
+     * finishes the bank system. Closing an already closed server waits until it is
+     * finished.
+     *
+     * @throws IOException if the socket cannot be closed, or if interrupted while
+     *                     waiting for the sessions (the bank is not finished then)
+     */
+    @Override
+    public void close() throws IOException {
+        closeLock.lock();
+        try {
+            if (!running) {
+                return;
+            }
+            running = false;
+            serverChannel.close();
+
+            // A closed channel ends the blocked reads and writes of its session
+            for (SocketChannel channel : sessions.values()) {
+                channel.close();
+            }
+            for (Thread session : sessions.keySet()) {
+                session.join();
+            }
+
+            commandLock.lock();
+            try {
+                bankSystem.finish();
+            } finally {
+                commandLock.unlock();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while closing the sessions");
+        } finally {
+            closeLock.unlock();
+        }
+    }
+
+    /**
+     * Starts the thread of a session, unless the server is closed.
+     */
+    private boolean startSession(final SocketChannel channel) {
+        closeLock.lock();
+        try {
+            if (!running) {
+                return false;
+            }
+            Thread session = sessionThreads.newThread(() -> serveSession(channel));
+            sessions.put(session, channel);
+            session.start();
+            return true;
+        } finally {
+            closeLock.unlock();
+        }
+    }
+
+    private void serveSession(final SocketChannel channel) {
+        try (channel) {
+            ByteBuffer in = ByteBuffer.allocate(BUFFER_SIZE);
+            byte[] line = new byte[INITIAL_LINE_CAPACITY];
+            int length = 0;
+            while (channel.read(in) >= 0) {
+                in.flip();
+                while (in.hasRemaining()) {
+                    byte b = in.get();
+                    if (b != NEWLINE) {
+                        if (length == BankServer.MAX_LINE_LENGTH) {
+                            writeFully(channel, lineTooLong());
+                            return;
+                        }
+                        if (length == line.length) {
+                            line = Arrays.copyOf(line,
+                                    Math.min(length * 2, BankServer.MAX_LINE_LENGTH));
+                        }
+                        line[length++] = b;
+                        continue;
+                    }
+                    byte[] answer = answer(Arrays.copyOf(line, length));
+                    length = 0;
+                    if (answer != null) {
+                        writeFully(channel, answer);
+                    }
+                }
+                in.clear();
+            }
+        } catch (IOException e) {
+            // The client went away or the server was closed, only the session ends
+        } finally {
+            sessions.remove(Thread.currentThread());
+        }
+    }
+
+    private static void writeFully(final SocketChannel channel, final byte[] bytes)
+            throws IOException {
+        ByteBuffer out = ByteBuffer.wrap(bytes);
+        while (out.hasRemaining()) {
+            channel.write(out);
+        }
+    }
+
+    private byte[] lineTooLong() throws IOException {
+        ArrayNode results = objectMapper.createArrayNode();
+        results.addObject().put("error", BankServer.LINE_TOO_LONG);
+        return withNewline(objectMapper.writeValueAsBytes(results));
+    }
+
+    private byte[] answer(final byte[] line) throws IOException {
+        if (BankServer.isBlank(line)) {
+            return null;
+        }
+
+        ArrayNode results = objectMapper.createArrayNode();
+        try {
+            CommandInput command = commandReader.readValue(line);
+            commandLock.lock();
+            try {
+                bankSystem.process(command, results);
+            } finally {
+                commandLock.unlock();
+            }
+        } catch (IOException | RuntimeException e) {
+            results.removeAll();
+            ObjectNode error = results.addObject();
+            error.put("error", String.valueOf(e.getMessage()));
+        }
+
+        return withNewline(objectMapper.writeValueAsBytes(results));
+    }
+
+    private static byte[] withNewline(final byte[] json) {
+        byte[] answer = new byte[json.length + 1];
+        System.arraycopy(json, 0, answer, 0, json.length);
+        answer[json.length] = NEWLINE;
+        return answer;
+    }
+
+    /**
+     * Starts a server. The users, exchange rates, merchants and policies are loaded
+     * from an input file in the usual format; its commands are ignored.
+     *
+     * @param args the input file and the address ("unix:/path" or a TCP port)
+     * @throws IOException if the input cannot be read or the socket cannot be opened
+     */
+    public static void main(final String[] args) throws IOException {
+        if (args.length != 2) {
+            System.err.println("Usage: VirtualThreadBankServer <setup input file> "
+                    + "<port | unix:path>");
+            return;
+        }
+
+        ObjectInput setup = new ObjectMapper().readValue(new File(args[0]), ObjectInput.class);
+        SocketAddress address = BankServer.parseAddress(args[1]);
+        if (address instanceof UnixDomainSocketAddress unixAddress) {
+            Files.deleteIfExists(Path.of(unixAddress.getPath().toString()));
+        }
+
+        VirtualThreadBankServer server =
+                new VirtualThreadBankServer(BankSystem.fromInput(setup), address);
+        System.out.println("Listening on " + server.getLocalAddress());
+        server.serve();
+    }
+}
@@ -15,12 +15,17 @@ public final class CustomSplitStrategy implements SplitStrategy {
      * @param totalAmount the total amount to be split (not used in this strategy)
      * @param ibans the list of IBANs representing the accounts involved in the split
      * @param command the command input containing predefined amounts for the split
-     * @return a list of amounts corresponding to each account, as specified in the input
+     * @return the amounts corresponding to each account, as specified in the input
      */
     @Override
-    public List<Double> calculateSplit(final double totalAmount, final List<String> ibans,
+    public double[] calculateSplit(final double totalAmount, final List<String> ibans,
                                                             final CommandInput command) {
         // Retrieve the predefined amounts from the CommandInput
-        return command.getAmountForUsers();
+        List<Double> amountForUsers = command.getAmountForUsers();
+        double[] amounts = new double[amountForUsers.size()];
+        for (int i = 0; i < amounts.length; i++) {
+            amounts[i] = amountForUsers.get(i);
+        }
+        return amounts;
     }
 }
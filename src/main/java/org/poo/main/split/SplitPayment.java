@@ -1,6 +1,8 @@
 package org.poo.main.split;
 
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
@@ -8,48 +10,52 @@ import java.util.Map;
 /**
  * Represents a split payment operation.
  * Manages the accounts, amounts, and user statuses for the payment.
+ * The participants are kept in primitive arrays, their accounts are looked up when the
+ * payment is settled.
  */
 public final class SplitPayment {
     private final String splitPaymentType; // "equal" or "custom"
-    private final List<String> accounts; // List of IBANs involved
-    private final List<Double> amounts; // Amounts corresponding to each IBAN
+    private final String[] ibans; // IBANs involved, in input order
+    private final double[] amounts; // Amounts corresponding to each IBAN
+    private final double totalAmount;
     private final String currency;
     private final int timestamp;
     private final Map<String, Boolean> ibanAcceptanceMap; // Status of each account (accept/reject)
 
+    // Immutable views shared by every transaction generated for this split
+    private final List<String> involvedAccounts;
+    private final List<Double> amountsForUsers;
+
     /**
      * Constructs a SplitPayment object.
      *
      * @param splitPaymentType the type of the split payment ("equal" or "custom")
      * @param currency the currency of the split payment
      * @param timestamp the timestamp of the split payment operation
+     * @param ibans the IBANs of the participants
+     * @param amounts the amount each participant has to pay (same order as the IBANs)
      */
-    public SplitPayment(final String splitPaymentType, final String currency, final int timestamp) {
+    public SplitPayment(final String splitPaymentType, final String currency,
+                        final int timestamp, final List<String> ibans,
+                        final double[] amounts) {
         this.splitPaymentType = splitPaymentType;
-        this.accounts = new ArrayList<>();
-        this.amounts = new ArrayList<>();
         this.currency = currency;
         this.timestamp = timestamp;
-        this.ibanAcceptanceMap = new HashMap<>();
-    }
+        this.ibans = ibans.toArray(new String[0]);
+        this.amounts = amounts.clone();
+        this.totalAmount = Arrays.stream(this.amounts).sum();
 
-    /**
-     * Adds an account to the split payment.
-     *
-     * @param account the IBAN of the account to be added
-     */
-    public void addAccount(final String account) {
-        this.accounts.add(account);
-        this.ibanAcceptanceMap.put(account, null); // Add account with a null acceptance status
-    }
+        this.ibanAcceptanceMap = new HashMap<>();
+        for (String iban : this.ibans) {
+            this.ibanAcceptanceMap.put(iban, null); // Add account with a null acceptance status
+        }
 
-    /**
-     * Adds an amount to the split payment.
-     *
-     * @param amount the amount to be added
-     */
-    public void addAmount(final double amount) {
-        this.amounts.add(amount);
+        List<Double> boxedAmounts = new ArrayList<>(this.amounts.length);
+        for (double amount : this.amounts) {
+            boxedAmounts.add(amount);
+        }
+        this.involvedAccounts = Collections.unmodifiableList(Arrays.asList(this.ibans));
+        this.amountsForUsers = Collections.unmodifiableList(boxedAmounts);
     }
 
     /**
@@ -58,9 +64,12 @@ public final class SplitPayment {
      * @return true if all users have accepted, false otherwise
      */
     public boolean allAccepted() {
-        return ibanAcceptanceMap.values()
-                .stream()
-                .allMatch(status -> status != null && status.equals(Boolean.TRUE));
+        for (Boolean status : ibanAcceptanceMap.values()) {
+            if (!Boolean.TRUE.equals(status)) {
+                return false;
+            }
+        }
+        return true;
     }
 
     /**
@@ -73,6 +82,16 @@ public final class SplitPayment {
         ibanAcceptanceMap.put(account, status);
     }
 
+    /**
+     * Checks if the given IBAN takes part in the split and has not answered yet.
+     *
+     * @param iban the IBAN to check
+     * @return true if the IBAN is involved and still has no status
+     */
+    public boolean isAwaitingResponse(final String iban) {
+        return ibanAcceptanceMap.containsKey(iban) && ibanAcceptanceMap.get(iban) == null;
+    }
+
     // Getters
 
     /**
@@ -111,21 +130,61 @@ public final class SplitPayment {
         return new HashMap<>(ibanAcceptanceMap);
     }
 
+    /**
+     * Gets the number of participants in the split payment.
+     *
+     * @return the number of participants
+     */
+    public int getParticipantCount() {
+        return ibans.length;
+    }
+
+    /**
+     * Gets the IBAN of a participant.
+     *
+     * @param index the index of the participant
+     * @return the IBAN
+     */
+    public String getIban(final int index) {
+        return ibans[index];
+    }
+
+    /**
+     * Gets the amount a participant has to pay.
+     *
+     * @param index the index of the participant
+     * @return the amount, in the currency of the split
+     */
+    public double getAmount(final int index) {
+        return amounts[index];
+    }
+
+    /**
+     * Gets the total amount of the split payment, computed once at creation.
+     *
+     * @return the sum of all participant amounts
+     */
+    public double getTotalAmount() {
+        return totalAmount;
+    }
+
     /**
      * Gets the accounts involved in the split payment.
+     * The returned list is immutable and shared by all the transactions of this split.
      *
      * @return a list of IBANs
      */
     public List<String> getAccounts() {
-        return new ArrayList<>(accounts);
+        return involvedAccounts;
     }
 
     /**
      * Gets the amounts for the split payment.
+     * The returned list is immutable and shared by all the transactions of this split.
      *
      * @return a list of amounts
      */
     public List<Double> getAmounts() {
-        return new ArrayList<>(amounts);
+        return amountsForUsers;
     }
 }
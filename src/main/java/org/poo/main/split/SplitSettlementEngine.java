@@ -0,0 +1,178 @@
+package org.poo.main.split;
+
+import org.poo.main.accounts.Account;
+import org.poo.main.accounts.AccountLocks;
+import org.poo.main.accounts.AccountRegistry;
+import org.poo.main.exchange_rate.ExchangeRate;
+import org.poo.main.tools.Tools;
+import org.poo.main.transactions.TransactionService;
+import org.poo.main.user.User;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Settles the split payments that were accepted by all of their participants.
+ * Completed splits are queued and settled together at the end of a timestamp tick:
+ * the accounts of the participants are looked up in the registry when the split is
+ * settled, so an account deleted since the split was created is not debited. Every
+ * amount is converted in a single pass using exchange rates cached per currency pair,
+ * all accounts are validated before any of them is debited, and the resulting
+ * transactions are emitted once per split.
+ * <p>
+ * A tick ends when a command with a later timestamp arrives, or when the bank system
+ * finishes. Served over a socket, a split completed by the last command of a tick stays
+ * unsettled until the next tick starts or the server shuts down.
+ */
+public final class SplitSettlementEngine {
+    private final List<ExchangeRate> exchangeRates;
+    private final TransactionService transactionService;
+    private final AccountRegistry accountRegistry;
+    private final List<PendingSettlement> pendingSettlements;
+
+    public SplitSettlementEngine(final List<ExchangeRate> exchangeRates,
+                                 final TransactionService transactionService,
+                                 final AccountRegistry accountRegistry) {
+        this.exchangeRates = exchangeRates;
+        this.transactionService = transactionService;
+        this.accountRegistry = accountRegistry;
+        this.pendingSettlements = new ArrayList<>();
+    }
+
+    /**
+     * Queues a split payment accepted by everyone. The split stops being pending for
+     * its participants right away and is settled by the next call to settlePending.
+     *
+     * @param splitPayment the completed split payment
+     */
+    public void submit(final SplitPayment splitPayment) {
+        List<User> involvedUsers = Tools.findInvolvedUsers(splitPayment, accountRegistry);
+        for (User user : involvedUsers) {
+            user.removePendingSplitPayment(splitPayment);
+        }
+        pendingSettlements.add(new PendingSettlement(splitPayment, involvedUsers));
+    }
+
+    /**
+     * Settles all the queued split payments, in the order they were completed.
+     * The exchange rates looked up during the batch are shared by all of its splits.
+     */
+    public void settlePending() {
+        if (pendingSettlements.isEmpty()) {
+            return;
+        }
+
+        Map<String, Map<String, Double>> rateCache = new HashMap<>();
+        for (PendingSettlement pending : pendingSettlements) {
+            settle(pending.splitPayment, pending.involvedUsers, rateCache);
+        }
+        pendingSettlements.clear();
+    }
+
+    private void settle(final SplitPayment splitPayment, final List<User> involvedUsers,
+                        final Map<String, Map<String, Double>> rateCache) {
+        int participants = splitPayment.getParticipantCount();
+
+        // Look the accounts up now, the split may have waited for them to be deleted
+        Account[] accounts = new Account[participants];
+        for (int i = 0; i < participants; i++) {
+            accounts[i] = accountRegistry.findByIban(splitPayment.getIban(i));
+        }
+
+        // Convert every amount to the currency of its account
+        double[] convertedAmounts = new double[participants];
+        for (int i = 0; i < participants; i++) {
+            if (accounts[i] != null) {
+                convertedAmounts[i] = convert(splitPayment.getAmount(i),
+                        splitPayment.getCurrency(), accounts[i].getCurrency(), rateCache);
+            }
+        }
+
+        // Validate every account and debit them while holding all of them
+
+        String insufficientFundsIBAN = null;
+        int[] locked = AccountLocks.lock(accounts);
+        try {
+            for (int i = 0; i < participants; i++) {
+                if (accounts[i] == null) {
+                    break;
+                }
+                if (accounts[i].getBalance() < convertedAmounts[i]) {
+                    insufficientFundsIBAN = splitPayment.getIban(i);
+                    break;
+                }
+            }
+
+            if (insufficientFundsIBAN == null) {
+                insufficientFundsIBAN = debitAll(splitPayment, accounts, convertedAmounts);
+            }
+        } finally {
+            AccountLocks.unlock(locked);
+        }
+
+        if (insufficientFundsIBAN != null) {
+            transactionService.addSplitErrorTransaction(splitPayment, insufficientFundsIBAN,
+                    involvedUsers);
+            return;
+        }
+
+        transactionService.addSuccessSplitTransaction(splitPayment, involvedUsers);
+    }
+
+    /**
+     * Deducts the amounts from each account. A card payment, which takes no stripe, can
+     * still lower a balance after it was validated: the accounts already debited are
+     * then credited back and the split fails on that account.
+     *
+     * @return null if every account was debited, otherwise the IBAN lacking the funds
+     */
+    private static String debitAll(final SplitPayment splitPayment, final Account[] accounts,
+                                   final double[] amounts) {
+        for (int i = 0; i < accounts.length; i++) {
+            if (accounts[i] != null && !accounts[i].tryDebit(amounts[i])) {
+                for (int j = 0; j < i; j++) {
+                    if (accounts[j] != null) {
+                        accounts[j].deposit(amounts[j]);
+                    }
+                }
+                return splitPayment.getIban(i);
+            }
+        }
+        return null;
+    }
+
+    private double convert(final double amount, final String from, final String to,
+                           final Map<String, Map<String, Double>> rateCache) {
+        if (from.equals(to)) {
+            return amount;
+        }
+
+        Map<String, Double> ratesFrom = rateCache.computeIfAbsent(from, c -> new HashMap<>());
+        Double rate = ratesFrom.get(to);
+        if (rate == null) {
+            rate = ExchangeRate.getExchangeRate(from, to, exchangeRates);
+            ratesFrom.put(to, rate);
+        }
+
+        if (rate == 0) {
+            throw new IllegalArgumentException("Exchange rate not found ");
+        }
+
+        return amount * rate;
+    }
+
+    /**
+     * A completed split payment together with its already resolved users.
+     */
+    private static final class PendingSettlement {
+        private final SplitPayment splitPayment;
+        private final List<User> involvedUsers;
+
+        PendingSettlement(final SplitPayment splitPayment, final List<User> involvedUsers) {
+            this.splitPayment = splitPayment;
+            this.involvedUsers = involvedUsers;
+        }
+    }
+}
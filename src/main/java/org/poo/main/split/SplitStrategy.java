@@ -16,7 +16,7 @@ public interface SplitStrategy {
      * @param totalAmount the total amount to be split
      * @param ibans the list of IBANs representing the accounts involved in the split
      * @param command the command input containing additional information for the split
-     * @return a list of amounts corresponding to each account
+     * @return the amounts corresponding to each account
      */
-    List<Double> calculateSplit(double totalAmount, List<String> ibans, CommandInput command);
+    double[] calculateSplit(double totalAmount, List<String> ibans, CommandInput command);
 }
@@ -0,0 +1,339 @@
+package org.poo.main.tools;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonStreamContext;
+import com.fasterxml.jackson.core.PrettyPrinter;
+import com.fasterxml.jackson.core.SerializableString;
+import com.fasterxml.jackson.core.io.SerializedString;
+import com.fasterxml.jackson.core.util.DefaultPrettyPrinter;
+import com.fasterxml.jackson.databind.JsonSerializable;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializerProvider;
+import com.fasterxml.jackson.databind.jsontype.TypeSerializer;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * The JSON of an object of the output that does not change between prints (a
+ * transaction, a user until it is changed), rendered to UTF-8 the first time it is
+ * printed and written as raw bytes on the next prints, instead of building and
+ * serializing its node again.
+ * <p>
+ * The text is rendered for the way it is printed: compact, or pretty-printed like
+ * DefaultPrettyPrinter does at the depth the object is nested in the output. One text is
+ * kept per way it was printed, so an object printed at two depths (printTransactions
+ * and report) keeps two texts and renders neither again. The node is dropped once it is
+ * rendered. DefaultPrettyPrinter only indents after line feeds, so the text at a new
+ * depth is made from one at another depth by changing the indentation after every line
+ * feed; the compact text is rendered again through a parser. With any other pretty
+ * printer, the object is written as a tree.
+ * <p>
+ * Outputs holding the same object can be written by several threads. The texts are
+ * made under one of a fixed number of striped locks, as a lock per object would cost
+ * more than most of the texts. A rendered node holds no other rendered JSON, so a
+ * thread holds one stripe at a time.
+ */
+public final class RenderedJson implements JsonSerializable {
+    private static final ObjectMapper OBJECT_MAPPER = new ObjectMapper();
+    private static final int COMPACT = -1;
+    private static final int RENDER_BUFFER_SIZE = 256;
+    private static final int SPACES_PER_LEVEL = 2; // As DefaultIndenter
+    private static final byte LINE_FEED = '\n';
+    private static final Utf8Text[] NO_TEXTS = new Utf8Text[0];
+    private static final int LOCK_STRIPES = 64; // Power of two
+    private static final ReentrantLock[] LOCKS = new ReentrantLock[LOCK_STRIPES];
+
+    static {
+        for (int i = 0; i < LOCK_STRIPES; i++) {
+            LOCKS[i] = new ReentrantLock();
+        }
+    }
+
+    private ObjectNode node;
+    private Utf8Text compact;
+    private Utf8Text[] pretty = NO_TEXTS; // By depth
+
+    private RenderedJson(final ObjectNode node) {
+        this.node = node;
+    }
+
+    /**
+     * Wraps a node, to be rendered when it is first printed.
+     *
+     * @param node the node
+     * @return the rendered JSON
+     */
+    public static RenderedJson of(final ObjectNode node) {
+        return new RenderedJson(node);
+    }
+
+    @Override
+    public void serialize(final JsonGenerator generator, final SerializerProvider provider)
+            throws IOException {
+        PrettyPrinter prettyPrinter = generator.getPrettyPrinter();
+        if (prettyPrinter == null) {
+            generator.writeRawValue(textAt(COMPACT));
+        } else if (prettyPrinter.getClass() == DefaultPrettyPrinter.class) {
+            generator.writeRawValue(textAt(depth(generator.getOutputContext())));
+        } else {
+            generator.writeTree(OBJECT_MAPPER.readTree(textAt(COMPACT).bytes));
+        }
+    }
+
+    @Override
+    public void serializeWithType(final JsonGenerator generator,
+                                  final SerializerProvider provider,
+                                  final TypeSerializer typeSerializer) throws IOException {
+        serialize(generator, provider);
+    }
+
+    @Override
+    public boolean equals(final Object other) {
+        return other instanceof RenderedJson rendered
+                && Arrays.equals(compact(), rendered.compact());
+    }
+
+    @Override
+    public int hashCode() {
+        return Arrays.hashCode(compact());
+    }
+
+    @Override
+    public String toString() {
+        return new String(compact(), StandardCharsets.UTF_8);
+    }
+
+    private byte[] compact() {
+        try {
+            return textAt(COMPACT).bytes;
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Counts the objects the generator is in: DefaultPrettyPrinter writes arrays inline,
+     * only objects add a level of indentation.
+     */
+    private static int depth(final JsonStreamContext context) {
+        int depth = 0;
+        for (JsonStreamContext current = context; current != null;
+             current = current.getParent()) {
+            if (current.inObject()) {
+                depth++;
+            }
+        }
+        return depth;
+    }
+
+    /**
+     * Gets the text rendered compact, or pretty at a depth, making it the first time it
+     * is printed that way.
+     */
+    private Utf8Text textAt(final int depth) throws IOException {
+        ReentrantLock lock = LOCKS[System.identityHashCode(this) & (LOCK_STRIPES - 1)];
+        lock.lock();
+        try {
+            Utf8Text text = depth == COMPACT ? compact
+                    : depth < pretty.length ? pretty[depth] : null;
+            if (text != null) {
+                return text;
+            }
+
+            Utf8Text other = anyPretty();
+            if (depth != COMPACT && other != null) {
+                text = new Utf8Text(depth, reindent(other.bytes, other.depth, depth));
+            } else {
+                text = render(depth, other != null ? other : compact);
+            }
+
+            if (depth == COMPACT) {
+                compact = text;
+            } else {
+                if (depth >= pretty.length) {
+                    pretty = Arrays.copyOf(pretty, depth + 1);
+                }
+                pretty[depth] = text;
+            }
+            return text;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private Utf8Text anyPretty() {
+        for (Utf8Text text : pretty) {
+            if (text != null) {
+                return text;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Renders the node, or another text of the object once the node is dropped.
+     */
+    private Utf8Text render(final int depth, final Utf8Text source) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(RENDER_BUFFER_SIZE);
+        try (JsonGenerator generator = OBJECT_MAPPER.createGenerator(bytes)) {
+            if (depth != COMPACT) {
+                generator.setPrettyPrinter(new NestedPrettyPrinter(depth));
+            }
+            if (node != null) {
+                generator.writeTree(node);
+            } else {
+                try (JsonParser parser = OBJECT_MAPPER.createParser(source.bytes)) {
+                    parser.nextToken();
+                    generator.copyCurrentStructure(parser);
+                }
+            }
+        }
+        node = null;
+        return new Utf8Text(depth, bytes.toByteArray());
+    }
+
+    /**
+     * Moves pretty-printed text from a depth to another: a line feed byte only appears
+     * between tokens (inside strings it is escaped, and it is never part of a multi-byte
+     * character), and is followed by the indentation of its level plus the depth.
+     */
+    private static byte[] reindent(final byte[] text, final int from, final int to) {
+        int lineFeeds = 0;
+        for (byte b : text) {
+            if (b == LINE_FEED) {
+                lineFeeds++;
+            }
+        }
+
+        int removed = from * SPACES_PER_LEVEL;
+        int added = to * SPACES_PER_LEVEL;
+        byte[] moved = new byte[text.length + lineFeeds * (added - removed)];
+        int position = 0;
+        for (int i = 0; i < text.length; i++) {
+            moved[position++] = text[i];
+            if (text[i] == LINE_FEED) {
+                i += removed;
+                Arrays.fill(moved, position, position + added, (byte) ' ');
+                position += added;
+            }
+        }
+        return moved;
+    }
+
+    /**
+     * A DefaultPrettyPrinter starting at a given nesting level.
+     */
+    private static final class NestedPrettyPrinter extends DefaultPrettyPrinter {
+        private static final long serialVersionUID = 1L;
+
+        NestedPrettyPrinter(final int depth) {
+            _nesting = depth;
+        }
+    }
+
+    /**
+     * Rendered JSON as UTF-8 bytes, copied as they are into the output of a generator.
+     * The quoted forms, used only for names, are never needed for a whole object.
+     */
+    private static final class Utf8Text implements SerializableString {
+        private final int depth;
+        private final byte[] bytes;
+
+        Utf8Text(final int depth, final byte[] bytes) {
+            this.depth = depth;
+            this.bytes = bytes;
+        }
+
+        @Override
+        public String getValue() {
+            return new String(bytes, StandardCharsets.UTF_8);
+        }
+
+        @Override
+        public int charLength() {
+            return getValue().length();
+        }
+
+        @Override
+        public byte[] asUnquotedUTF8() {
+            return bytes;
+        }
+
+        @Override
+        public int appendUnquotedUTF8(final byte[] buffer, final int offset) {
+            if (bytes.length > buffer.length - offset) {
+                return -1;
+            }
+            System.arraycopy(bytes, 0, buffer, offset, bytes.length);
+            return bytes.length;
+        }
+
+        @Override
+        public int appendUnquoted(final char[] buffer, final int offset) {
+            String value = getValue();
+            if (value.length() > buffer.length - offset) {
+                return -1;
+            }
+            value.getChars(0, value.length(), buffer, offset);
+            return value.length();
+        }
+
+        @Override
+        public int writeUnquotedUTF8(final OutputStream out) throws IOException {
+            out.write(bytes);
+            return bytes.length;
+        }
+
+        @Override
+        public int putUnquotedUTF8(final ByteBuffer buffer) {
+            if (bytes.length > buffer.remaining()) {
+                return -1;
+            }
+            buffer.put(bytes);
+            return bytes.length;
+        }
+
+        @Override
+        public char[] asQuotedChars() {
+            return quoted().asQuotedChars();
+        }
+
+        @Override
+        public byte[] asQuotedUTF8() {
+            return quoted().asQuotedUTF8();
+        }
+
+        @Override
+        public int appendQuotedUTF8(final byte[] buffer, final int offset) {
+            return quoted().appendQuotedUTF8(buffer, offset);
+        }
+
+        @Override
+        public int appendQuoted(final char[] buffer, final int offset) {
+            return quoted().appendQuoted(buffer, offset);
+        }
+
+        @Override
+        public int writeQuotedUTF8(final OutputStream out) throws IOException {
+            return quoted().writeQuotedUTF8(out);
+        }
+
+        @Override
+        public int putQuotedUTF8(final ByteBuffer buffer) throws IOException {
+            return quoted().putQuotedUTF8(buffer);
+        }
+
+        private SerializedString quoted() {
+            return new SerializedString(getValue());
+        }
+    }
+}
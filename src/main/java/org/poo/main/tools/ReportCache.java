@@ -0,0 +1,310 @@
+package org.poo.main.tools;
+
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import org.poo.main.accounts.Account;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * The outputs of the last report and spendingsReport commands, reused when the same
+ * report is asked for again on an account that has not changed since.
+ * <p>
+ * A report is keyed by its IBAN, its time window and its kind. It is valid while the
+ * account is the same, with the same version, and the history of its owner has the
+ * same size: a transaction, a payment or a change of balance invalidates it.
+ * <p>
+ * The cache is bounded by a number of reports and by the number of transactions they
+ * hold together, the least recently used reports being evicted first.
+ * <p>
+ * The cache keeps its own copy of every output and hands out copies, so the outputs
+ * can be changed by their callers. The transactions of an output are shared rendered
+ * JSON, copying it only copies references.
+ */
+public final class ReportCache {
+    public static final int DEFAULT_MAX_REPORTS = 1024;
+    public static final int DEFAULT_MAX_TRANSACTIONS = 1 << 20;
+
+    private final int maxReports;
+    private final long maxTransactions;
+    private final ReentrantLock lock = new ReentrantLock();
+    private final LinkedHashMap<Key, Entry> reports = new LinkedHashMap<>(16, 0.75f, true);
+    private long transactions;
+    private long hits;
+    private long misses;
+    private long invalidations;
+    private long evictions;
+
+    /**
+     * Creates a cache with the default bounds.
+     */
+    public ReportCache() {
+        this(DEFAULT_MAX_REPORTS, DEFAULT_MAX_TRANSACTIONS);
+    }
+
+    /**
+     * Creates a cache.
+     *
+     * @param maxReports the maximum number of reports kept, 0 to keep none
+     * @param maxTransactions the maximum number of transactions of the reports kept
+     */
+    public ReportCache(final int maxReports, final long maxTransactions) {
+        if (maxReports < 0 || maxTransactions < 0) {
+            throw new IllegalArgumentException("Negative bounds " + maxReports + ", "
+                    + maxTransactions);
+        }
+        this.maxReports = maxReports;
+        this.maxTransactions = maxTransactions;
+    }
+
+    /**
+     * Computes the version of the reports of an account, changing whenever the account
+     * or the history of its owner changes.
+     *
+     * @param account the account
+     * @param historySize the number of transactions of the owner
+     * @return the version
+     */
+    public static long versionOf(final Account account, final int historySize) {
+        return (long) account.getVersion() << Integer.SIZE | Integer.toUnsignedLong(historySize);
+    }
+
+    /**
+     * Gets a report, if it is cached and still valid.
+     *
+     * @param account the account of the report
+     * @param version the current version of the reports of the account
+     * @param startTimestamp the start of the window
+     * @param endTimestamp the end of the window
+     * @param kind the kind of report
+     * @return a copy of the output of the report, or null if it has to be generated
+     */
+    public ObjectNode get(final Account account, final long version,
+                          final int startTimestamp, final int endTimestamp,
+                          final String kind) {
+        ObjectNode output = lookup(account, version, startTimestamp, endTimestamp, kind);
+        return output != null ? output.deepCopy() : null;
+    }
+
+    private ObjectNode lookup(final Account account, final long version,
+                              final int startTimestamp, final int endTimestamp,
+                              final String kind) {
+        lock.lock();
+        try {
+            Key key = new Key(account.getIban(), startTimestamp, endTimestamp, kind);
+            Entry entry = reports.get(key);
+            if (entry == null) {
+                misses++;
+                return null;
+            }
+            if (entry.account != account || entry.version != version) {
+                remove(key);
+                invalidations++;
+                misses++;
+                return null;
+            }
+            hits++;
+            return entry.output;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Keeps a report that was just generated.
+     *
+     * @param account the account of the report
+     * @param version the version of the reports of the account when it was generated
+     * @param startTimestamp the start of the window
+     * @param endTimestamp the end of the window
+     * @param kind the kind of report
+     * @param output the output of the report, copied
+     * @param transactionCount the number of transactions in the output
+     */
+    public void put(final Account account, final long version,
+                    final int startTimestamp, final int endTimestamp,
+                    final String kind, final ObjectNode output,
+                    final int transactionCount) {
+        if (maxReports == 0 || transactionCount > maxTransactions) {
+            return;
+        }
+        store(account, version, startTimestamp, endTimestamp, kind, output.deepCopy(),
+                transactionCount);
+    }
+
+    private void store(final Account account, final long version,
+                       final int startTimestamp, final int endTimestamp,
+                       final String kind, final ObjectNode output,
+                       final int transactionCount) {
+        lock.lock();
+        try {
+            Key key = new Key(account.getIban(), startTimestamp, endTimestamp, kind);
+            remove(key);
+            reports.put(key, new Entry(account, version, output, transactionCount));
+            transactions += transactionCount;
+
+            Iterator<Map.Entry<Key, Entry>> eldest = reports.entrySet().iterator();
+            while (reports.size() > maxReports || transactions > maxTransactions) {
+                transactions -= eldest.next().getValue().transactionCount;
+                eldest.remove();
+                evictions++;
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Gets the number of reports kept.
+     *
+     * @return the number of reports
+     */
+    public int size() {
+        lock.lock();
+        try {
+            return reports.size();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Gets the number of transactions of the reports kept.
+     *
+     * @return the number of transactions
+     */
+    public long getTransactionCount() {
+        lock.lock();
+        try {
+            return transactions;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Gets the number of reports served from the cache.
+     *
+     * @return the number of hits
+     */
+    public long getHits() {
+        lock.lock();
+        try {
+            return hits;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Gets the number of reports that had to be generated, not cached or not valid.
+     *
+     * @return the number of misses
+     */
+    public long getMisses() {
+        lock.lock();
+        try {
+            return misses;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Gets the number of cached reports dropped because their account had changed.
+     *
+     * @return the number of invalidations
+     */
+    public long getInvalidations() {
+        lock.lock();
+        try {
+            return invalidations;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Gets the number of reports evicted to stay within the bounds.
+     *
+     * @return the number of evictions
+     */
+    public long getEvictions() {
+        lock.lock();
+        try {
+            return evictions;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public String toString() {
+        lock.lock();
+        try {
+            return String.format("%d reports (%d transactions), %d hits, %d misses, "
+                            + "%d invalidations, %d evictions", reports.size(), transactions,
+                    hits, misses, invalidations, evictions);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void remove(final Key key) {
+        Entry entry = reports.remove(key);
+        if (entry != null) {
+            transactions -= entry.transactionCount;
+        }
+    }
+
+    /**
+     * What a report is asked for.
+     */
+    private static final class Key {
+        private final String iban;
+        private final int startTimestamp;
+        private final int endTimestamp;
+        private final String kind;
+
+        Key(final String iban, final int startTimestamp, final int endTimestamp,
+            final String kind) {
+            this.iban = iban;
+            this.startTimestamp = startTimestamp;
+            this.endTimestamp = endTimestamp;
+            this.kind = kind;
+        }
+
+        @Override
+        public boolean equals(final Object other) {
+            return other instanceof Key key && iban.equals(key.iban)
+                    && startTimestamp == key.startTimestamp
+                    && endTimestamp == key.endTimestamp && kind.equals(key.kind);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(iban, startTimestamp, endTimestamp, kind);
+        }
+    }
+
+    /**
+     * A report kept, with the state of the account it was generated on.
+     */
+    private static final class Entry {
+        private final Account account;
+        private final long version;
+        private final ObjectNode output;
+        private final int transactionCount;
+
+        Entry(final Account account, final long version, final ObjectNode output,
+              final int transactionCount) {
+            this.account = account;
+            this.version = version;
+            this.output = output;
+            this.transactionCount = transactionCount;
+        }
+    }
+}
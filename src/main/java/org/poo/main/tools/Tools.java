@@ -14,9 +14,13 @@ import org.poo.main.transactions.TransactionDetail;
 import org.poo.main.cards.Card;
 import org.poo.main.split.SplitPayment;
 import org.poo.main.accounts.Account;
+import org.poo.main.accounts.AccountRegistry;
 import org.poo.main.exchange_rate.ExchangeRate;
+import org.poo.main.transactions.CardPayments;
 import org.poo.main.transactions.Transaction;
 import org.poo.main.transactions.TransactionFilter;
+import org.poo.main.transactions.TransactionHistory;
+import org.poo.main.transactions.TransactionPage;
 import org.poo.main.user.User;
 
 public final class Tools {
@@ -147,6 +151,23 @@ public final class Tools {
     }
 
 
+    /**
+     * Converts a user into JSON, reusing the JSON rendered when it was last printed if
+     * the user, its accounts and their cards have not changed since.
+     *
+     * @param user the user to convert
+     * @return the JSON of the user
+     */
+    public static RenderedJson renderUser(final User user) {
+        long printStamp = user.getPrintStamp();
+        RenderedJson rendered = user.getRendered(printStamp);
+        if (rendered == null) {
+            rendered = RenderedJson.of(printUser(user));
+            user.setRendered(rendered, printStamp);
+        }
+        return rendered;
+    }
+
     /**
      * Retrieves the exchange rate between two currencies.
      *
@@ -188,7 +209,8 @@ public final class Tools {
     }
 
     /**
-     * Converts a list of transactions into a JSON array.
+     * Converts a list of transactions into a JSON array. Each transaction is rendered
+     * the first time it is printed, and its rendered JSON is reused afterwards.
      *
      * @param transactions the list of transactions
      * @return a JSON array representing the transactions
@@ -198,114 +220,128 @@ public final class Tools {
         ArrayNode transactionsArray = ObjectMapper.createArrayNode();
 
         for (Transaction transaction : transactions) {
-            ObjectNode transactionNode = ObjectMapper.createObjectNode();
+            RenderedJson rendered = transaction.getRendered();
+            if (rendered == null) {
+                rendered = RenderedJson.of(getTransactionNode(transaction));
+                transaction.setRendered(rendered);
+            }
+            transactionsArray.addPOJO(rendered);
+        }
+        return transactionsArray;
+    }
+
+    /**
+     * Converts a transaction into a JSON object, with the fields of its kind.
+     *
+     * @param transaction the transaction
+     * @return a JSON object representing the transaction
+     */
+    private static ObjectNode getTransactionNode(final Transaction transaction) {
+        ObjectNode transactionNode = ObjectMapper.createObjectNode();
 
-            // Add timestamp at the beginning for all transactions
-            transactionNode.put("timestamp", transaction.getTimestamp());
+        // Add timestamp at the beginning for all transactions
+        transactionNode.put("timestamp", transaction.getTimestamp());
 
-            // Add description field after timestamp
-            transactionNode.put("description", transaction.getDescription());
+        // Add description field after timestamp
+        transactionNode.put("description", transaction.getDescription());
 
-            // Handle split payment transactions
-            if (transaction.getDescription().startsWith("Split payment")) {
-                transactionNode.put("currency", transaction.getCurrency());
+        // Handle split payment transactions
+        if (transaction.getDescription().startsWith("Split payment")) {
+            transactionNode.put("currency", transaction.getCurrency());
 
-                // Add amountForUsers as an array
-                ArrayNode amountsForUsersArray = ObjectMapper.createArrayNode();
-                if (transaction.getAmountForUsers() != null) {
-                    if (transaction.getSplitPaymentType().equals("custom")) {
-                        for (Double amount : transaction.getAmountForUsers()) {
-                            amountsForUsersArray.add(amount);
-                        }
-                        transactionNode.set("amountForUsers", amountsForUsersArray);
-                    } else { // equal type
-                        double amount = transaction.getAmountForUsers().get(0);
-                        transactionNode.put("amount", amount);
+            // Add amountForUsers as an array
+            ArrayNode amountsForUsersArray = ObjectMapper.createArrayNode();
+            if (transaction.getAmountForUsers() != null) {
+                if (transaction.getSplitPaymentType().equals("custom")) {
+                    for (Double amount : transaction.getAmountForUsers()) {
+                        amountsForUsersArray.add(amount);
                     }
+                    transactionNode.set("amountForUsers", amountsForUsersArray);
+                } else { // equal type
+                    double amount = transaction.getAmountForUsers().get(0);
+                    transactionNode.put("amount", amount);
                 }
+            }
 
-                // Add involved accounts as an array
-                ArrayNode involvedAccountsArray = ObjectMapper.createArrayNode();
-                if (transaction.getInvolvedAccounts() != null) {
-                    for (String account : transaction.getInvolvedAccounts()) {
-                        involvedAccountsArray.add(account);
-                    }
+            // Add involved accounts as an array
+            ArrayNode involvedAccountsArray = ObjectMapper.createArrayNode();
+            if (transaction.getInvolvedAccounts() != null) {
+                for (String account : transaction.getInvolvedAccounts()) {
+                    involvedAccountsArray.add(account);
                 }
-                transactionNode.set("involvedAccounts", involvedAccountsArray);
+            }
+            transactionNode.set("involvedAccounts", involvedAccountsArray);
 
-                // Add split payment type
-                transactionNode.put("splitPaymentType", transaction.getSplitPaymentType());
+            // Add split payment type
+            transactionNode.put("splitPaymentType", transaction.getSplitPaymentType());
 
-                if (transaction.getError() != null) {
-                    transactionNode.put("error", transaction.getError());
-                }
-            } else if (transaction.getDescription().startsWith("Cash withdrawal")) {
-                // Format the amount as an integer for cash withdrawals
-                if (transaction.getAmount() != null) {
-                    transactionNode.put("amount", transaction.getAmount().doubleValue());
-                }
-            } else if ("Upgrade plan".equals(transaction.getDescription())) {
-                transactionNode.put("accountIBAN", transaction.getAccountIBAN());
-                transactionNode.put("newPlanType", transaction.getPlan());
-            } else if ("Interest rate income".equals(transaction.getDescription())) {
-                // Add separate fields for amount and currency
-                if (transaction.getAmount() != null) {
-                    transactionNode.put("amount", transaction.getAmount());
-                }
-                if (transaction.getCurrency() != null) {
-                    transactionNode.put("currency", transaction.getCurrency());
-                }
-            } else if ("Savings withdrawal".equals(transaction.getDescription())) {
-                if (transaction.getAmount() != null) {
+            if (transaction.getError() != null) {
+                transactionNode.put("error", transaction.getError());
+            }
+        } else if (transaction.getDescription().startsWith("Cash withdrawal")) {
+            // Format the amount as an integer for cash withdrawals
+            if (transaction.getAmount() != null) {
+                transactionNode.put("amount", transaction.getAmount().doubleValue());
+            }
+        } else if ("Upgrade plan".equals(transaction.getDescription())) {
+            transactionNode.put("accountIBAN", transaction.getAccountIBAN());
+            transactionNode.put("newPlanType", transaction.getPlan());
+        } else if ("Interest rate income".equals(transaction.getDescription())) {
+            // Add separate fields for amount and currency
+            if (transaction.getAmount() != null) {
+                transactionNode.put("amount", transaction.getAmount());
+            }
+            if (transaction.getCurrency() != null) {
+                transactionNode.put("currency", transaction.getCurrency());
+            }
+        } else if ("Savings withdrawal".equals(transaction.getDescription())) {
+            if (transaction.getAmount() != null) {
+                transactionNode.put("amount", transaction.getAmount());
+            }
+            // The classic account IBAN is the "receiverIBAN"
+            if (transaction.getReceiverIBAN() != null) {
+                transactionNode.put("classicAccountIBAN", transaction.getReceiverIBAN());
+            }
+            // The savings account IBAN is the "senderIBAN"
+            if (transaction.getSenderIBAN() != null) {
+                transactionNode.put("savingsAccountIBAN", transaction.getSenderIBAN());
+            }
+        } else {
+            // Default handling for other transactions
+            if ("The card has been destroyed".equals(transaction.getDescription())
+                    || "New card created".equals(transaction.getDescription())) {
+                transactionNode.put("account", transaction.getAccountIBAN());
+            }
+            if (transaction.getCardNumber() != null) {
+                transactionNode.put("card", transaction.getCardNumber());
+            }
+            if (transaction.getCardHolder() != null) {
+                transactionNode.put("cardHolder", transaction.getCardHolder());
+            }
+            if (transaction.getAmount() != null) {
+                if ("Card payment".equals(transaction.getDescription())) {
                     transactionNode.put("amount", transaction.getAmount());
-                }
-                // The classic account IBAN is the "receiverIBAN"
-                if (transaction.getReceiverIBAN() != null) {
-                    transactionNode.put("classicAccountIBAN", transaction.getReceiverIBAN());
-                }
-                // The savings account IBAN is the "senderIBAN"
-                if (transaction.getSenderIBAN() != null) {
-                    transactionNode.put("savingsAccountIBAN", transaction.getSenderIBAN());
-                }
-            } else {
-                // Default handling for other transactions
-                if ("The card has been destroyed".equals(transaction.getDescription())
-                        || "New card created".equals(transaction.getDescription())) {
-                    transactionNode.put("account", transaction.getAccountIBAN());
-                }
-                if (transaction.getCardNumber() != null) {
-                    transactionNode.put("card", transaction.getCardNumber());
-                }
-                if (transaction.getCardHolder() != null) {
-                    transactionNode.put("cardHolder", transaction.getCardHolder());
-                }
-                if (transaction.getAmount() != null) {
-                    if ("Card payment".equals(transaction.getDescription())) {
-                        transactionNode.put("amount", transaction.getAmount());
-                    } else {
-                        String formattedAmount =
-                                transaction.getAmount() + " " + transaction.getCurrency();
-                        transactionNode.put("amount", formattedAmount);
-                    }
-                }
-                if (transaction.getSenderIBAN() != null) {
-                    transactionNode.put("senderIBAN", transaction.getSenderIBAN());
-                }
-                if (transaction.getReceiverIBAN() != null) {
-                    transactionNode.put("receiverIBAN", transaction.getReceiverIBAN());
-                }
-                if (transaction.getTransferType() != null) {
-                    transactionNode.put("transferType", transaction.getTransferType());
-                }
-                if (transaction.getCommerciant() != null) {
-                    transactionNode.put("commerciant", transaction.getCommerciant());
+                } else {
+                    String formattedAmount =
+                            transaction.getAmount() + " " + transaction.getCurrency();
+                    transactionNode.put("amount", formattedAmount);
                 }
             }
-
-            // Add the transaction node to the array
-            transactionsArray.add(transactionNode);
+            if (transaction.getSenderIBAN() != null) {
+                transactionNode.put("senderIBAN", transaction.getSenderIBAN());
+            }
+            if (transaction.getReceiverIBAN() != null) {
+                transactionNode.put("receiverIBAN", transaction.getReceiverIBAN());
+            }
+            if (transaction.getTransferType() != null) {
+                transactionNode.put("transferType", transaction.getTransferType());
+            }
+            if (transaction.getCommerciant() != null) {
+                transactionNode.put("commerciant", transaction.getCommerciant());
+            }
         }
-        return transactionsArray;
+
+        return transactionNode;
     }
 
     /**
@@ -328,12 +364,15 @@ public final class Tools {
 
     /**
      * Generates report data based on the command, filter, and additional parameters.
+     * A whole report is served from the cache if the account has not changed since it
+     * was last generated.
      *
      * @param command            the command input
      * @param filter             the transaction filter
      * @param includeCommerciants flag to include commerciants in the report
      * @param users              the list of users
      * @param exchangeRates      the list of exchange rates
+     * @param reportCache        the reports generated before
      * @return an ObjectNode containing the report data
      */
     public static ObjectNode generateReportData(
@@ -341,7 +380,8 @@ public final class Tools {
             final TransactionFilter filter,
             final boolean includeCommerciants,
             final List<User> users,
-            final List<ExchangeRate> exchangeRates) {
+            final List<ExchangeRate> exchangeRates,
+            final ReportCache reportCache) {
 
         ObjectMapper objectMapper = new ObjectMapper();
         String iban = command.getAccount();
@@ -352,21 +392,56 @@ public final class Tools {
             return createErrorNode(command, "Account not found");
         }
 
+        // The page of the transactions asked for, if any
+        TransactionPage page;
+        try {
+            page = TransactionPage.of(command);
+        } catch (IllegalArgumentException e) {
+            return createErrorNode(command, e.getMessage());
+        }
+
+        // Reuse the report if it was generated on the same state of the account,
+        // the version is taken first so that changes made meanwhile invalidate it
+        Account account = findAccountByIBAN(iban, List.of(user));
+        long version = ReportCache.versionOf(account, user.getTransactions().size());
+        String kind = filter.getClass().getName();
+        if (page == null) {
+            ObjectNode cached = reportCache.get(account, version,
+                    command.getStartTimestamp(), command.getEndTimestamp(), kind);
+            if (cached != null) {
+                return cached;
+            }
+        }
+
         // Filtering the transactions
         List<Transaction> filteredTransactions =
-                filterTransactions(user.getTransactions(), command, filter, iban);
+                filterTransactions(user.getTransactions(), command, filter, iban, page);
 
-        // Calculate totals for commerciants if requested
+        // Calculate totals for commerciants if requested, over the whole range even
+        // when only a page of the transactions is reported
         Map<String, Double> commerciantsTotals;
-        if (includeCommerciants) {
-            commerciantsTotals = calculateCommerciantsTotals(filteredTransactions);
+        CardPayments cardPayments = indexedCardPayments(user.getTransactions(), filter, iban);
+        if (includeCommerciants && cardPayments != null) {
+            commerciantsTotals = cardPayments.totalsByCommerciant(command.getStartTimestamp(),
+                    command.getEndTimestamp());
+        } else if (includeCommerciants) {
+            commerciantsTotals = calculateCommerciantsTotals(page == null
+                    ? filteredTransactions
+                    : filterTransactions(user.getTransactions(), command, filter, iban, null));
         } else {
             commerciantsTotals = null;
         }
 
         // Generate the report output node with filtered transactions and commerciant totals
-        return createReportOutputNode(command, filteredTransactions, commerciantsTotals,
-                                                        includeCommerciants, iban, user);
+        ObjectNode outputNode = createReportOutputNode(command, filteredTransactions,
+                commerciantsTotals, includeCommerciants, iban, user);
+        if (page == null) {
+            reportCache.put(account, version, command.getStartTimestamp(),
+                    command.getEndTimestamp(), kind, outputNode, filteredTransactions.size());
+        } else if (page.getNextCursor() != null) {
+            outputNode.put("cursor", page.getNextCursor());
+        }
+        return outputNode;
     }
 
     /**
@@ -448,13 +523,15 @@ public final class Tools {
      * @param command the command input containing the timestamp range
      * @param filter the filter to apply to the transactions
      * @param iban the IBAN for which the transactions are filtered
+     * @param page the page of the transactions to keep, or null to keep them all
      * @return a list of filtered transactions
      */
     private static List<Transaction> filterTransactions(
             final List<Transaction> transactions,
             final CommandInput command,
             final TransactionFilter filter,
-            final String iban) {
+            final String iban,
+            final TransactionPage page) {
 
         // Get the start and end timestamps from the command
         int startTimestamp = command.getStartTimestamp();
@@ -463,8 +540,45 @@ public final class Tools {
         // Create a list to store the filtered transactions
         List<Transaction> filteredTransactions = new ArrayList<>();
 
-        // Iterate through all the transactions
-        for (int i = 0; i < transactions.size(); i++) {
+        // The card payments are indexed: only those of the range are read
+        CardPayments cardPayments = indexedCardPayments(transactions, filter, iban);
+        if (cardPayments != null) {
+            int first = cardPayments.indexOfTimestamp(startTimestamp);
+            if (page != null) {
+                first = Math.max(first, cardPayments.indexOfPosition(page.first(transactions)));
+            }
+            for (int i = first;
+                 i < cardPayments.size() && cardPayments.timestampAt(i) <= endTimestamp; i++) {
+                // Skip the payment if it is a duplicate (same timestamp as the last one)
+                if (!filteredTransactions.isEmpty() && filteredTransactions
+                        .get(filteredTransactions.size() - 1).getTimestamp()
+                        == cardPayments.timestampAt(i)) {
+                    continue;
+                }
+                if (page != null && filteredTransactions.size() == page.getLimit()) {
+                    page.continueAt(transactions, cardPayments.positionAt(i));
+                    break;
+                }
+                filteredTransactions.add(transactions.get(cardPayments.positionAt(i)));
+            }
+            return filteredTransactions;
+        }
+
+        // A history is sorted by timestamp: only the range is read, spilled
+        // transactions outside of it stay in the store
+        int first = 0;
+        int end = transactions.size();
+        if (transactions instanceof TransactionHistory history) {
+            first = history.indexOfTimestamp(startTimestamp);
+            end = endTimestamp == Integer.MAX_VALUE
+                    ? end : history.indexOfTimestamp(endTimestamp + 1);
+        }
+        if (page != null) {
+            first = Math.max(first, page.first(transactions));
+        }
+
+        // Iterate through the transactions of the range
+        for (int i = first; i < end; i++) {
             Transaction transaction = transactions.get(i);
 
             // Check if the transaction is within the timestamp range and passes the filter
@@ -485,6 +599,12 @@ public final class Tools {
                     continue;
                 }
 
+                // Stop at the first transaction after a full page, the next page starts there
+                if (page != null && filteredTransactions.size() == page.getLimit()) {
+                    page.continueAt(transactions, i);
+                    break;
+                }
+
                 // Add the transaction to the filtered list
                 filteredTransactions.add(transaction);
             }
@@ -493,6 +613,27 @@ public final class Tools {
         return filteredTransactions;
     }
 
+    /**
+     * Gets the index of the card payments from an account, when the filter keeps only
+     * them and the transactions are a history indexing them (one without a store).
+     *
+     * @param transactions the transactions of a user
+     * @param filter the filter of the report
+     * @param iban the IBAN of the account
+     * @return the card payments, or null if they are not indexed
+     */
+    private static CardPayments indexedCardPayments(final List<Transaction> transactions,
+                                                    final TransactionFilter filter,
+                                                    final String iban) {
+        if (!filter.keepsCardPayments()
+                || !(transactions instanceof TransactionHistory history)
+                || !history.indexesCardPayments()) {
+            return null;
+        }
+        CardPayments cardPayments = history.getCardPayments(iban);
+        return cardPayments != null ? cardPayments : new CardPayments();
+    }
+
     /**
      * Calculates the total transaction amount for each commerciant based on the
      * list of transactions. The totals are stored in a map with the commerciant name
@@ -578,56 +719,24 @@ public final class Tools {
     }
 
     /**
-     * Verifies if the accounts involved in a split payment have sufficient funds.
-     *
-     * @param splitPayment   the split payment details
-     * @param exchangeRates  the list of exchange rates
-     * @param users          the list of users
-     * @return the IBAN of the account with insufficient funds, or null if
-     * all accounts have sufficient funds
-     */
-    public static String verifyAmounts(final SplitPayment splitPayment,
-                                       final List<ExchangeRate> exchangeRates,
-                                       final List<User> users) {
-        List<String> accounts = splitPayment.getAccounts();
-        List<Double> amounts = splitPayment.getAmounts();
-        String currency = splitPayment.getCurrency();
-
-        for (int i = 0; i < accounts.size(); i++) {
-            String accountIBAN = accounts.get(i);
-            double amount = amounts.get(i);
-
-            Account account = Tools.findAccountByIBAN(accountIBAN, users);
-
-            if (account == null) {
-                return null;
-            }
-
-            double convertedAmount =
-                    Tools.calculateFinalAmount(account, amount, exchangeRates, currency);
-
-            if (account.getBalance() < convertedAmount) {
-                return accountIBAN;
-            }
-        }
-
-        return null;
-    }
-
-    /**
-     * Removes a split payment from all users involved.
+     * Resolves the users holding the accounts involved in a split payment, through the
+     * registry instead of scanning the accounts of every user.
+     * A user appears once for every involved account they hold.
      *
-     * @param splitPayment the split payment to remove
-     * @param users        the list of users
+     * @param splitPayment the split payment
+     * @param accountRegistry the index of the accounts
+     * @return the involved users, in the order of the split's accounts
      */
-    public static void removeSplitPaymentFromUsers(final SplitPayment splitPayment,
-                                                            final List<User> users) {
+    public static List<User> findInvolvedUsers(final SplitPayment splitPayment,
+                                               final AccountRegistry accountRegistry) {
+        List<User> involvedUsers = new ArrayList<>(splitPayment.getParticipantCount());
         for (String iban : splitPayment.getAccounts()) {
-            User user = findUserByAccount(iban, users);
+            User user = accountRegistry.findHolder(iban);
             if (user != null) {
-                user.removePendingSplitPayment(splitPayment);
+                involvedUsers.add(user);
             }
         }
+        return involvedUsers;
     }
 
     /**
@@ -834,53 +943,4 @@ public final class Tools {
 
         return null; // Return null if no matching account is found
     }
-
-    /**
-     * Calculates the commission fee for a transaction based on the user's account plan,
-     * transaction amount, and currency.
-     *
-     * @param user          the user whose commission is calculated
-     * @param amount        the transaction amount
-     * @param currency      the currency of the transaction
-     * @param exchangeRates the exchange rates for currency conversion
-     * @return the calculated commission fee
-     */
-    public static double calculateComision(final User user, final double amount,
-                                           final String currency,
-                                           final List<ExchangeRate> exchangeRates) {
-        // Get the user plan
-        String plan = user.getAccountPlan();
-        double fee = 0;
-
-        // Convert the silver threshold into currency of user
-        double thresholdSilver = 500;
-        if (!currency.equals("RON")) {
-            double exchangeRate = ExchangeRate.getExchangeRate("RON", currency, exchangeRates);
-            thresholdSilver = Math.round((500.0 * exchangeRate) * 100.0) / 100.0;
-        }
-
-        // Calculate commision
-        switch (plan) {
-            case "standard":
-                fee = amount * 0.002;
-                break;
-
-            case "student":
-            case "gold":
-                fee = 0;
-                break;
-
-            case "silver":
-                if (amount >= thresholdSilver) {
-                    fee = amount * 0.001;
-                }
-                break;
-
-            default:
-                // unknown plan
-                fee = 0;
-        }
-
-        return fee;
-    }
 }
@@ -0,0 +1,197 @@
+package org.poo.main.transactions;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * The card payments from one account in the history of a user, in the order of the
+ * history: their timestamps, positions in the history, amounts and merchants, in
+ * parallel arrays. A spendings report finds the payments of its window here by binary
+ * search instead of filtering the whole history, and sums them per merchant without
+ * reading the transactions. Only a history without a store keeps this index.
+ * <p>
+ * The payments are summed one by one in the order of the history, like the report did
+ * over the filtered transactions; totals kept per time bucket and merged would add
+ * them in another order and round differently.
+ */
+public final class CardPayments {
+    private static final int INITIAL_CAPACITY = 8;
+
+    private int[] timestamps = new int[INITIAL_CAPACITY];
+    private int[] positions = new int[INITIAL_CAPACITY];
+    private double[] amounts = new double[INITIAL_CAPACITY];
+    private String[] commerciants = new String[INITIAL_CAPACITY];
+    private int size;
+    private int appliedInserts; // Inserts logged by the history the positions account for
+
+    /**
+     * Checks if a transaction is a card payment from an account.
+     *
+     * @param transaction the transaction
+     * @return true if it is a card payment
+     */
+    static boolean isCardPayment(final Transaction transaction) {
+        return "Card payment".equals(transaction.getDescription())
+                && transaction.getAccountIBAN() != null;
+    }
+
+    /**
+     * Gets the number of payments.
+     *
+     * @return the number of payments
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Gets the timestamp of a payment.
+     *
+     * @param index the index of the payment
+     * @return the timestamp
+     */
+    public int timestampAt(final int index) {
+        return timestamps[index];
+    }
+
+    /**
+     * Gets the position of a payment in the history.
+     *
+     * @param index the index of the payment
+     * @return the position in the history
+     */
+    public int positionAt(final int index) {
+        return positions[index];
+    }
+
+    /**
+     * Finds the first payment at or after a timestamp.
+     *
+     * @param timestamp the timestamp
+     * @return the index of the payment, or the number of payments if there is none
+     */
+    public int indexOfTimestamp(final int timestamp) {
+        int low = 0;
+        int high = size;
+        while (low < high) {
+            int middle = (low + high) >>> 1;
+            if (timestamps[middle] < timestamp) {
+                low = middle + 1;
+            } else {
+                high = middle;
+            }
+        }
+        return low;
+    }
+
+    /**
+     * Finds the first payment at or after a position in the history.
+     *
+     * @param position the position in the history
+     * @return the index of the payment, or the number of payments if there is none
+     */
+    public int indexOfPosition(final int position) {
+        int low = 0;
+        int high = size;
+        while (low < high) {
+            int middle = (low + high) >>> 1;
+            if (positions[middle] < position) {
+                low = middle + 1;
+            } else {
+                high = middle;
+            }
+        }
+        return low;
+    }
+
+    /**
+     * Sums the payments of a window per merchant. Of the payments with the same
+     * timestamp, only the first one counts, as in the reports.
+     *
+     * @param startTimestamp the start of the window
+     * @param endTimestamp the end of the window, included
+     * @return the total paid to every merchant
+     */
+    public Map<String, Double> totalsByCommerciant(final int startTimestamp,
+                                                   final int endTimestamp) {
+        Map<String, Double> totals = new HashMap<>();
+        boolean first = true;
+        int lastTimestamp = 0;
+        for (int i = indexOfTimestamp(startTimestamp);
+             i < size && timestamps[i] <= endTimestamp; i++) {
+            if (!first && timestamps[i] == lastTimestamp) {
+                continue;
+            }
+            first = false;
+            lastTimestamp = timestamps[i];
+            if (commerciants[i] != null) {
+                totals.put(commerciants[i],
+                        totals.getOrDefault(commerciants[i], 0.0) + amounts[i]);
+            }
+        }
+        return totals;
+    }
+
+    /**
+     * Adds a payment at a position of the history. The positions of the payments after
+     * it must have been shifted already.
+     *
+     * @param transaction the payment
+     * @param position the position of the payment in the history
+     * @param commerciant the merchant of the payment, as kept by the index
+     */
+    void add(final Transaction transaction, final int position, final String commerciant) {
+        if (size == timestamps.length) {
+            int capacity = size * 2;
+            timestamps = Arrays.copyOf(timestamps, capacity);
+            positions = Arrays.copyOf(positions, capacity);
+            amounts = Arrays.copyOf(amounts, capacity);
+            commerciants = Arrays.copyOf(commerciants, capacity);
+        }
+        // Payments are mostly appended after the last one
+        int index = size == 0 || positions[size - 1] < position ? size
+                : indexOfPosition(position);
+        int moved = size - index;
+        System.arraycopy(timestamps, index, timestamps, index + 1, moved);
+        System.arraycopy(positions, index, positions, index + 1, moved);
+        System.arraycopy(amounts, index, amounts, index + 1, moved);
+        System.arraycopy(commerciants, index, commerciants, index + 1, moved);
+
+        timestamps[index] = transaction.getTimestamp();
+        positions[index] = position;
+        amounts[index] = transaction.getAmount() != null ? transaction.getAmount() : 0.0;
+        commerciants[index] = commerciant;
+        size++;
+    }
+
+    /**
+     * Gets the number of inserts logged by the history that the positions account for.
+     *
+     * @return the number of inserts applied
+     */
+    int getAppliedInserts() {
+        return appliedInserts;
+    }
+
+    /**
+     * Sets the number of inserts logged by the history that the positions account for.
+     *
+     * @param appliedInserts the number of inserts applied
+     */
+    void setAppliedInserts(final int appliedInserts) {
+        this.appliedInserts = appliedInserts;
+    }
+
+    /**
+     * Shifts the payments at or after a position of the history, for a transaction
+     * inserted there.
+     *
+     * @param position the position of the inserted transaction
+     */
+    void shiftFrom(final int position) {
+        for (int i = indexOfPosition(position); i < size; i++) {
+            positions[i]++;
+        }
+    }
+}
@@ -18,4 +18,9 @@ public class SpendingsTransactionFilter implements TransactionFilter {
         return "Card payment".equals(transaction.getDescription())
                 && iban.equals(transaction.getAccountIBAN());
     }
+
+    @Override
+    public boolean keepsCardPayments() {
+        return true;
+    }
 }
@@ -1,4 +1,6 @@
 package org.poo.main.transactions;
+import org.poo.main.tools.RenderedJson;
+
 import java.util.List;
 
 /**
@@ -23,6 +25,7 @@ public final class Transaction {
     private String plan;
     private String splitPaymentType;
     private List<Double> amountForUsers;
+    private volatile RenderedJson rendered;
 
     public Transaction(final int timestamp, final String description, final String senderIBAN,
                        final String receiverIBAN, final Double amount, final String currency,
@@ -138,6 +141,7 @@ public final class Transaction {
      */
     public void setDescription(final String description) {
         this.description = description;
+        this.rendered = null;
     }
 
     /**
@@ -174,4 +178,18 @@ public final class Transaction {
     public List<Double> getAmountForUsers() {
         return amountForUsers;
     }
+
+    /**
+     * @return The JSON of the transaction rendered when it was first printed, or null.
+     */
+    public RenderedJson getRendered() {
+        return rendered;
+    }
+
+    /**
+     * @param rendered The JSON of the transaction, to reuse on the next prints.
+     */
+    public void setRendered(final RenderedJson rendered) {
+        this.rendered = rendered;
+    }
 }
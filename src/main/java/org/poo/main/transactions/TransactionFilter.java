@@ -14,4 +14,14 @@ public interface TransactionFilter {
      * @return true if the transaction matches the filter criteria, false otherwise.
      */
     boolean filter(Transaction transaction, String iban);
+
+    /**
+     * Tells whether the filter keeps the card payments from the account and nothing
+     * else, so that a report can read them from the CardPayments of a history.
+     *
+     * @return true if the filter keeps exactly the card payments from the account
+     */
+    default boolean keepsCardPayments() {
+        return false;
+    }
 }
@@ -0,0 +1,255 @@
+package org.poo.main.transactions;
+
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.RandomAccess;
+
+/**
+ * The transactions of a user, in timestamp order. Without a store they all stay on the
+ * heap. With a TransactionStore, only the most recent ones do: when they reach the hot
+ * limit of the store, the older half is spilled as one run. The history keeps the pages
+ * and the size of each run, and reads spilled transactions back from the store when
+ * they are accessed.
+ * <p>
+ * A transaction inserted among the spilled ones (a split payment settled long after it
+ * was requested) first brings the run it falls in and the later ones back on the heap,
+ * and gives their pages back to the store.
+ * <p>
+ * Without a store, the card payments are indexed per account, see CardPayments. The
+ * index takes about 20 bytes a payment, which would stay on the heap for the spilled
+ * ones, so attaching a store drops it and the reports read the range of the history
+ * instead. The merchant names it holds are shared per history, not those of each
+ * transaction. A transaction inserted before later ones is only logged; the index of an
+ * account shifts its positions for the logged inserts when it is next read or added to,
+ * so an insert does not touch the accounts the user does not report on.
+ */
+public final class TransactionHistory extends AbstractList<Transaction> implements RandomAccess {
+    private static final int INITIAL_RUNS = 4;
+    private static final int INSERT_LOG_SIZE = 64;
+
+    private final List<Transaction> recent = new ArrayList<>();
+    private TransactionStore store;
+    private int[][] runPages = new int[INITIAL_RUNS][];
+    private int[] runEnd = new int[INITIAL_RUNS]; // Number of spilled transactions up to a run
+    private int runs;
+    private int spilled;
+    private final Map<String, CardPayments> cardPayments = new HashMap<>();
+    private final Map<String, String> commerciants = new HashMap<>();
+    private final int[] insertedAt = new int[INSERT_LOG_SIZE]; // Positions of the inserts
+    private int inserts;
+
+    /**
+     * Spills the older transactions of the history to a store, now and from now on.
+     * The card payments are not indexed any more.
+     *
+     * @param transactionStore the store
+     */
+    public void spillTo(final TransactionStore transactionStore) {
+        if (store != null && store != transactionStore) {
+            throw new IllegalStateException("The history already spills to another store");
+        }
+        store = transactionStore;
+        cardPayments.clear();
+        commerciants.clear();
+        inserts = 0;
+        spillIfNeeded();
+    }
+
+    /**
+     * Gets the card payments made from an account, by the user of the history.
+     *
+     * @param iban the IBAN of the account
+     * @return the payments, or null if the user has not paid by card from the account
+     *         or the payments are not indexed
+     */
+    public CardPayments getCardPayments(final String iban) {
+        CardPayments payments = cardPayments.get(iban);
+        return payments != null ? caughtUp(payments) : null;
+    }
+
+    /**
+     * Tells if the card payments are indexed, which they are while there is no store.
+     *
+     * @return true if getCardPayments has every card payment of the history
+     */
+    public boolean indexesCardPayments() {
+        return store == null;
+    }
+
+    /**
+     * Gets the number of transactions read back from the store when accessed.
+     *
+     * @return the number of spilled transactions
+     */
+    public int getSpilledCount() {
+        return spilled;
+    }
+
+    /**
+     * Finds the first transaction at or after a timestamp.
+     *
+     * @param timestamp the timestamp
+     * @return the index of the transaction, or the size of the history if there is none
+     */
+    public int indexOfTimestamp(final int timestamp) {
+        int low = 0;
+        int high = size();
+        while (low < high) {
+            int middle = (low + high) >>> 1;
+            if (timestampAt(middle) < timestamp) {
+                low = middle + 1;
+            } else {
+                high = middle;
+            }
+        }
+        return low;
+    }
+
+    @Override
+    public Transaction get(final int index) {
+        if (index >= spilled) {
+            return recent.get(index - spilled);
+        }
+        if (index < 0) {
+            throw new IndexOutOfBoundsException(index);
+        }
+        int run = runOf(index);
+        return store.read(runPages[run], index - runStart(run));
+    }
+
+    @Override
+    public int size() {
+        return spilled + recent.size();
+    }
+
+    @Override
+    public boolean add(final Transaction transaction) {
+        recent.add(transaction);
+        indexCardPayment(transaction, size() - 1);
+        modCount++;
+        spillIfNeeded();
+        return true;
+    }
+
+    @Override
+    public void add(final int index, final Transaction transaction) {
+        if (index < 0 || index > size()) {
+            throw new IndexOutOfBoundsException(index);
+        }
+        if (index < spilled) {
+            unspillFrom(index);
+        }
+        recent.add(index - spilled, transaction);
+        if (index < size() - 1 && store == null) {
+            logInsert(index);
+        }
+        indexCardPayment(transaction, index);
+        modCount++;
+        spillIfNeeded();
+    }
+
+    private void indexCardPayment(final Transaction transaction, final int position) {
+        if (store != null || !CardPayments.isCardPayment(transaction)) {
+            return;
+        }
+        String commerciant = transaction.getCommerciant();
+        if (commerciant != null) {
+            commerciant = commerciants.computeIfAbsent(commerciant, name -> name);
+        }
+        CardPayments payments = cardPayments.get(transaction.getAccountIBAN());
+        if (payments == null) {
+            payments = new CardPayments();
+            payments.setAppliedInserts(inserts);
+            cardPayments.put(transaction.getAccountIBAN(), payments);
+        }
+        caughtUp(payments).add(transaction, position, commerciant);
+    }
+
+    private void logInsert(final int index) {
+        // A full log is applied to every index and emptied
+        if (inserts == insertedAt.length) {
+            for (CardPayments payments : cardPayments.values()) {
+                caughtUp(payments).setAppliedInserts(0);
+            }
+            inserts = 0;
+        }
+        insertedAt[inserts++] = index;
+    }
+
+    private CardPayments caughtUp(final CardPayments payments) {
+        for (int i = payments.getAppliedInserts(); i < inserts; i++) {
+            payments.shiftFrom(insertedAt[i]);
+        }
+        payments.setAppliedInserts(inserts);
+        return payments;
+    }
+
+    private int timestampAt(final int index) {
+        if (index >= spilled) {
+            return recent.get(index - spilled).getTimestamp();
+        }
+        int run = runOf(index);
+        return store.readTimestamp(runPages[run], index - runStart(run));
+    }
+
+    private int runOf(final int index) {
+        // First run whose end is past the index
+        int low = 0;
+        int high = runs - 1;
+        while (low < high) {
+            int middle = (low + high) >>> 1;
+            if (runEnd[middle] <= index) {
+                low = middle + 1;
+            } else {
+                high = middle;
+            }
+        }
+        return low;
+    }
+
+    private int runStart(final int run) {
+        return run == 0 ? 0 : runEnd[run - 1];
+    }
+
+    private void unspillFrom(final int index) {
+        int firstRun = runOf(index);
+        int start = runStart(firstRun);
+        List<Transaction> reloaded = new ArrayList<>(spilled - start + recent.size());
+        for (int run = firstRun; run < runs; run++) {
+            int size = runEnd[run] - runStart(run);
+            for (int i = 0; i < size; i++) {
+                reloaded.add(store.read(runPages[run], i));
+            }
+            store.release(runPages[run], size);
+            runPages[run] = null;
+        }
+        reloaded.addAll(recent);
+        recent.clear();
+        recent.addAll(reloaded);
+
+        runs = firstRun;
+        spilled = start;
+    }
+
+    private void spillIfNeeded() {
+        if (store == null || recent.size() < store.getHotLimit()) {
+            return;
+        }
+
+        List<Transaction> older = recent.subList(0, recent.size() / 2);
+        int[] pages = store.append(older);
+        if (runs == runEnd.length) {
+            runPages = Arrays.copyOf(runPages, runs * 2);
+            runEnd = Arrays.copyOf(runEnd, runs * 2);
+        }
+        spilled += older.size();
+        runPages[runs] = pages;
+        runEnd[runs] = spilled;
+        runs++;
+        older.clear();
+    }
+}
@@ -0,0 +1,132 @@
+package org.poo.main.transactions;
+
+import org.poo.fileio.CommandInput;
+
+import java.util.List;
+
+/**
+ * One page of the transactions of a user, asked for with the limit, cursor and
+ * fromTimestamp of a printTransactions, report or spendingsReport command.
+ * <p>
+ * A page starts at fromTimestamp, or where the cursor returned with the previous page
+ * points, and holds at most limit transactions. The cursor is the timestamp of the
+ * first transaction of the next page and its position among the transactions with that
+ * timestamp, so it stays valid while transactions are added after it. The start of the
+ * page is found by a binary search on the history, so a page costs its own size, not
+ * the size of the history.
+ */
+public final class TransactionPage {
+    private static final String SEPARATOR = ":";
+
+    private final int fromTimestamp;
+    private final int offset;
+    private final int limit;
+    private String nextCursor;
+
+    private TransactionPage(final int fromTimestamp, final int offset, final int limit) {
+        this.fromTimestamp = fromTimestamp;
+        this.offset = offset;
+        this.limit = limit;
+    }
+
+    /**
+     * Gets the page asked for by a command.
+     *
+     * @param command the command
+     * @return the page, or null if the command asks for every transaction
+     * @throws IllegalArgumentException if the limit is not positive or the cursor is not
+     *         one returned with a page
+     */
+    public static TransactionPage of(final CommandInput command) {
+        if (command.getLimit() == null && command.getCursor() == null
+                && command.getFromTimestamp() == null) {
+            return null;
+        }
+
+        int limit = command.getLimit() != null ? command.getLimit() : Integer.MAX_VALUE;
+        if (limit <= 0) {
+            throw new IllegalArgumentException("Invalid limit " + limit);
+        }
+        if (command.getCursor() == null) {
+            int fromTimestamp = command.getFromTimestamp() != null
+                    ? command.getFromTimestamp() : Integer.MIN_VALUE;
+            return new TransactionPage(fromTimestamp, 0, limit);
+        }
+
+        String[] parts = command.getCursor().split(SEPARATOR, -1);
+        try {
+            if (parts.length == 2) {
+                int timestamp = Integer.parseInt(parts[0]);
+                int offset = Integer.parseInt(parts[1]);
+                if (offset >= 0) {
+                    return new TransactionPage(timestamp, offset, limit);
+                }
+            }
+        } catch (NumberFormatException e) {
+            // Reported below
+        }
+        throw new IllegalArgumentException("Invalid cursor " + command.getCursor());
+    }
+
+    /**
+     * Finds the first transaction of the page.
+     *
+     * @param transactions the transactions, in timestamp order
+     * @return the index of the first transaction, or the size of the list if the page
+     *         is empty
+     */
+    public int first(final List<Transaction> transactions) {
+        return Math.min(indexOfTimestamp(transactions, fromTimestamp) + offset,
+                transactions.size());
+    }
+
+    /**
+     * Gets the maximum number of transactions of the page.
+     *
+     * @return the limit, Integer.MAX_VALUE if there is none
+     */
+    public int getLimit() {
+        return limit;
+    }
+
+    /**
+     * Sets where the next page starts.
+     *
+     * @param transactions the transactions, in timestamp order
+     * @param index the index of the first transaction of the next page
+     */
+    public void continueAt(final List<Transaction> transactions, final int index) {
+        int timestamp = transactions.get(index).getTimestamp();
+        nextCursor = timestamp + SEPARATOR
+                + (index - indexOfTimestamp(transactions, timestamp));
+    }
+
+    /**
+     * Gets the cursor of the next page.
+     *
+     * @return the cursor, or null if this is the last page
+     */
+    public String getNextCursor() {
+        return nextCursor;
+    }
+
+    /**
+     * Finds the first transaction at or after a timestamp.
+     *
+     * @param transactions the transactions, in timestamp order
+     * @param timestamp the timestamp
+     * @return the index of the transaction, or the size of the list if there is none
+     */
+    public static int indexOfTimestamp(final List<Transaction> transactions,
+                                       final int timestamp) {
+        if (transactions instanceof TransactionHistory history) {
+            return history.indexOfTimestamp(timestamp);
+        }
+        int index = 0;
+        while (index < transactions.size()
+                && transactions.get(index).getTimestamp() < timestamp) {
+            index++;
+        }
+        return index;
+    }
+}
@@ -3,6 +3,7 @@ package org.poo.main.transactions;
 import org.poo.main.tools.Tools;
 import org.poo.main.accounts.Account;
 import org.poo.main.cards.Card;
+import org.poo.main.split.SplitPayment;
 import org.poo.main.user.User;
 import java.util.List;
 
@@ -218,24 +219,21 @@ public class TransactionService {
     }
 
     /**
-     * Creates and adds a successful split transaction to the user's transaction list.
+     * Creates a successful split transaction and adds it to the transaction list of
+     * every involved user. The transaction is immutable, so all users share one instance.
      *
-     * @param timestamp the timestamp of the transaction.
-     * @param totalAmount the total amount of the payment.
-     * @param amountsForUsers the list of amounts assigned to each user.
-     * @param currency the currency of the transaction.
-     * @param accounts the list of accounts that the payment is split between.
-     * @param splitPaymentType the type of split payment (e.g., "equal" or "custom").
-     * @param user the user who initiated the split payment.
+     * @param splitPayment the completed split payment.
+     * @param involvedUsers the users owning the accounts involved in the split.
      */
-    public void addSuccessSplitTransaction(final int timestamp, final double totalAmount,
-                                           final List<Double> amountsForUsers,
-                                           final String currency, final List<String> accounts,
-                                           final String splitPaymentType,
-                                           final User user) {
+    public void addSuccessSplitTransaction(final SplitPayment splitPayment,
+                                           final List<User> involvedUsers) {
         Transaction splitTransaction = TransactionFactory.createSuccessSplitTransaction(
-                timestamp, totalAmount, amountsForUsers, currency, accounts, splitPaymentType);
-        user.addTransactionByTimestamp(splitTransaction);
+                splitPayment.getTimestamp(), splitPayment.getTotalAmount(),
+                splitPayment.getAmounts(), splitPayment.getCurrency(),
+                splitPayment.getAccounts(), splitPayment.getSplitPaymentType());
+        for (User user : involvedUsers) {
+            user.addTransactionByTimestamp(splitTransaction);
+        }
     }
 
     /**
@@ -253,26 +251,24 @@ public class TransactionService {
     }
 
     /**
-     * Creates and adds a transaction for a split payment error to the user's transaction list.
+     * Creates a split payment error transaction and adds it to the transaction list of
+     * every involved user.
      *
-     * @param timestamp        The timestamp of the transaction.
-     * @param totalAmount      The total amount of the payment.
-     * @param amountsForUsers  The list of amounts assigned to each user.
-     * @param currency         The currency of the transaction.
-     * @param cheapIBAN        The IBAN of the account with insufficient funds.
-     * @param accounts         The list of accounts that the payment is split between.
-     * @param splitPaymentType The type of split payment (e.g., "equal" or "custom").
-     * @param user             The user who initiated the split payment.
+     * @param splitPayment  The split payment that could not be completed.
+     * @param cheapIBAN     The IBAN of the account with insufficient funds.
+     * @param involvedUsers The users owning the accounts involved in the split.
      */
-    public void addSplitErrorTransaction(final int timestamp, final double totalAmount,
-                                         final List<Double> amountsForUsers, final String currency,
-                                         final String cheapIBAN, final List<String> accounts,
-                                         final String splitPaymentType, final User user) {
+    public void addSplitErrorTransaction(final SplitPayment splitPayment,
+                                         final String cheapIBAN,
+                                         final List<User> involvedUsers) {
         Transaction splitTransaction = TransactionFactory.createSplitErrorTransaction(
-                totalAmount, timestamp, amountsForUsers, currency, cheapIBAN,
-                accounts, splitPaymentType
+                splitPayment.getTotalAmount(), splitPayment.getTimestamp(),
+                splitPayment.getAmounts(), splitPayment.getCurrency(), cheapIBAN,
+                splitPayment.getAccounts(), splitPayment.getSplitPaymentType()
         );
-        user.addTransactionByTimestamp(splitTransaction);
+        for (User user : involvedUsers) {
+            user.addTransactionByTimestamp(splitTransaction);
+        }
     }
 
     /**
@@ -335,24 +331,22 @@ public class TransactionService {
     }
 
     /**
-     * Creates and adds a rejected split payment transaction to the user's transaction list.
+     * Creates a rejected split payment transaction and adds it to the transaction list of
+     * every involved user.
      *
-     * @param timestamp        The timestamp of the transaction.
-     * @param totalAmount      The total amount that was attempted to be split.
-     * @param amountsForUsers  The list of amounts assigned to each user.
-     * @param currency         The currency of the transaction.
-     * @param accounts         The list of accounts involved in the split payment.
-     * @param splitPaymentType The type of split payment (e.g., "equal" or "custom").
-     * @param user             The user who initiated the split payment.
+     * @param splitPayment  The rejected split payment.
+     * @param involvedUsers The users owning the accounts involved in the split.
      */
-    public void addSplitRejectTransaction(final int timestamp, final double totalAmount,
-                                         final List<Double> amountsForUsers, final String currency,
-                                         final List<String> accounts,
-                                         final String splitPaymentType, final User user) {
+    public void addSplitRejectTransaction(final SplitPayment splitPayment,
+                                          final List<User> involvedUsers) {
         Transaction splitTransaction = TransactionFactory.createSplitRejectTransaction(
-                totalAmount, timestamp, amountsForUsers, currency, accounts, splitPaymentType
+                splitPayment.getTotalAmount(), splitPayment.getTimestamp(),
+                splitPayment.getAmounts(), splitPayment.getCurrency(),
+                splitPayment.getAccounts(), splitPayment.getSplitPaymentType()
         );
-        user.addTransactionByTimestamp(splitTransaction);
+        for (User user : involvedUsers) {
+            user.addTransactionByTimestamp(splitTransaction);
+        }
     }
 
     /**
@@ -0,0 +1,483 @@
+package org.poo.main.transactions;
+
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Spill area for old transactions, shared by the transaction histories of a bank.
+ * A history spills its transactions in runs; a run is written whole, text and lists
+ * included, to fixed-size pages of a file, and the history keeps the page numbers of
+ * the run. Nothing of a spilled transaction stays on the heap, so the heap does not
+ * grow with the length of the histories, however distinct their descriptions are.
+ * <p>
+ * Run layout (big endian, over the pages of the run in order): the number of
+ * transactions n, the offsets of the n records and of their end, then the records.
+ * A record holds the timestamp, a flag byte telling if the amount is set, the amount
+ * if it is, then the other fields in the order of the Transaction constructor. A string
+ * is its UTF-8 length plus one as a varint (0 for null) followed by its bytes; a list is
+ * its size plus one as a varint (0 for null) followed by its elements, a Double element
+ * being a presence byte and the value.
+ * <p>
+ * Reading a record decodes it into a new Transaction. The pages are read with
+ * positional reads and kept in a small cache with one slot per page number modulo its
+ * size, so a scan reads each page once; a record within a page is decoded in place.
+ * A run released by its history (see TransactionHistory) gives its pages back for the
+ * next runs, so the file only grows with the transactions spilled at the same time.
+ * <p>
+ * The page allocation is guarded by a ReentrantLock rather than a monitor, so a virtual
+ * thread waiting for it does not pin its carrier; the file is read and written outside
+ * it and the cache is read without locking. A run is only read and released by the
+ * history owning it, so a page is never read while it is released and reused.
+ */
+public final class TransactionStore implements Closeable {
+    static final int MIN_PAGE_SIZE = 64;
+    private static final int DEFAULT_PAGE_SIZE = 4096;
+    private static final int DEFAULT_HOT_LIMIT = 256;
+    private static final int CACHED_PAGES = 64;
+
+    private static final int AMOUNT_SET = 1;
+    private static final int VARINT_SHIFT = 7;
+    private static final int VARINT_LOW_BITS = 0x7F;
+    private static final int VARINT_MORE = 0x80;
+
+    private final Path directory;
+    private final int pageSize;
+    private final int hotLimit;
+    private final ReentrantLock lock = new ReentrantLock();
+    private final AtomicReferenceArray<CachedPage> cache =
+            new AtomicReferenceArray<>(CACHED_PAGES);
+    private Path file;
+    private volatile FileChannel channel;
+    private int pages;
+    private int[] freePages = new int[0];
+    private int freeCount;
+    private long records;
+    private volatile boolean closed;
+
+    /**
+     * Opens a store with the default page size and number of transactions kept
+     * on the heap per history.
+     *
+     * @param directory the directory of the page file
+     */
+    public TransactionStore(final Path directory) {
+        this(directory, DEFAULT_PAGE_SIZE, DEFAULT_HOT_LIMIT);
+    }
+
+    /**
+     * Opens a store. The page file is created with the first spilled run.
+     *
+     * @param directory the directory of the page file
+     * @param pageSize the size of a page in bytes, at least MIN_PAGE_SIZE
+     * @param hotLimit the number of recent transactions a history keeps on the heap;
+     *                 when it reaches it, the older half is spilled
+     */
+    public TransactionStore(final Path directory, final int pageSize, final int hotLimit) {
+        if (pageSize < MIN_PAGE_SIZE || hotLimit < 2) {
+            throw new IllegalArgumentException("Invalid page size or hot limit");
+        }
+        this.directory = directory;
+        this.pageSize = pageSize;
+        this.hotLimit = hotLimit;
+    }
+
+    public int getHotLimit() {
+        return hotLimit;
+    }
+
+    /**
+     * Gets the number of spilled transactions, those of released runs excluded.
+     *
+     * @return the number of records
+     */
+    public long getRecordCount() {
+        lock.lock();
+        try {
+            return records;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Gets the number of pages of the file, free ones included.
+     *
+     * @return the number of pages
+     */
+    public int getPageCount() {
+        lock.lock();
+        try {
+            return pages;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Gets the number of pages given back by released runs and not reused yet.
+     *
+     * @return the number of free pages
+     */
+    public int getFreePageCount() {
+        lock.lock();
+        try {
+            return freeCount;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Writes transactions as a run.
+     *
+     * @param transactions the transactions to spill
+     * @return the pages of the run, in order
+     */
+    int[] append(final List<Transaction> transactions) {
+        byte[] run = encode(transactions);
+        int[] runPages = new int[(run.length + pageSize - 1) / pageSize];
+
+        lock.lock();
+        try {
+            checkOpen();
+            if (channel == null) {
+                open();
+            }
+            for (int i = 0; i < runPages.length; i++) {
+                runPages[i] = freeCount > 0 ? freePages[--freeCount] : pages++;
+            }
+            records += transactions.size();
+        } finally {
+            lock.unlock();
+        }
+
+        // The pages belong to the run now, no other thread writes or caches them
+        for (int i = 0; i < runPages.length; i++) {
+            int length = Math.min(pageSize, run.length - i * pageSize);
+            ByteBuffer buffer = ByteBuffer.wrap(run, i * pageSize, length);
+            long position = (long) runPages[i] * pageSize;
+            try {
+                while (buffer.hasRemaining()) {
+                    position += channel.write(buffer, position);
+                }
+            } catch (IOException e) {
+                throw new UncheckedIOException("Cannot write transaction page " + runPages[i], e);
+            }
+        }
+        return runPages;
+    }
+
+    /**
+     * Gives the pages of a run back, its transactions will not be read anymore.
+     *
+     * @param runPages the pages of the run
+     * @param count the number of transactions of the run
+     */
+    void release(final int[] runPages, final int count) {
+        lock.lock();
+        try {
+            if (closed) {
+                return;
+            }
+            if (freeCount + runPages.length > freePages.length) {
+                freePages = Arrays.copyOf(freePages,
+                        Math.max(freeCount + runPages.length, freePages.length * 2));
+            }
+            for (int page : runPages) {
+                CachedPage cached = cache.get(page % CACHED_PAGES);
+                if (cached != null && cached.page == page) {
+                    cache.compareAndSet(page % CACHED_PAGES, cached, null);
+                }
+                freePages[freeCount++] = page;
+            }
+            records -= count;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Reads a record of a run back into a transaction.
+     *
+     * @param runPages the pages of the run
+     * @param index the index of the transaction in the run
+     * @return a new transaction equal to the spilled one
+     */
+    Transaction read(final int[] runPages, final int index) {
+        ByteBuffer bounds = slice(runPages, Integer.BYTES * (index + 1), 2 * Integer.BYTES);
+        int start = bounds.getInt();
+        ByteBuffer record = slice(runPages, start, bounds.getInt() - start);
+
+        int timestamp = record.getInt();
+        Double amount = (record.get() & AMOUNT_SET) != 0 ? record.getDouble() : null;
+        return new Transaction(timestamp, readString(record), readString(record),
+                readString(record), amount, readString(record), readString(record),
+                readString(record), readString(record), readString(record),
+                readString(record), readString(record), readStrings(record),
+                readString(record), readString(record), readString(record),
+                readDoubles(record));
+    }
+
+    /**
+     * Reads only the timestamp of a record.
+     *
+     * @param runPages the pages of the run
+     * @param index the index of the transaction in the run
+     * @return the timestamp
+     */
+    int readTimestamp(final int[] runPages, final int index) {
+        int start = slice(runPages, Integer.BYTES * (index + 1), Integer.BYTES).getInt();
+        return slice(runPages, start, Integer.BYTES).getInt();
+    }
+
+    private byte[] encode(final List<Transaction> transactions) {
+        ByteArrayOutputStream body = new ByteArrayOutputStream();
+        DataOutputStream out = new DataOutputStream(body);
+        int headerSize = Integer.BYTES * (transactions.size() + 2);
+        int[] offsets = new int[transactions.size() + 1];
+        try {
+            for (int i = 0; i < transactions.size(); i++) {
+                offsets[i] = headerSize + out.size();
+                writeRecord(out, transactions.get(i));
+            }
+            offsets[transactions.size()] = headerSize + out.size();
+
+            ByteBuffer run = ByteBuffer.allocate(headerSize + out.size());
+            run.putInt(transactions.size());
+            for (int offset : offsets) {
+                run.putInt(offset);
+            }
+            run.put(body.toByteArray());
+            return run.array();
+        } catch (IOException e) {
+            // Writing to memory does not fail
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private static void writeRecord(final DataOutputStream out, final Transaction transaction)
+            throws IOException {
+        out.writeInt(transaction.getTimestamp());
+        out.writeByte(transaction.getAmount() != null ? AMOUNT_SET : 0);
+        if (transaction.getAmount() != null) {
+            out.writeDouble(transaction.getAmount());
+        }
+        writeString(out, transaction.getDescription());
+        writeString(out, transaction.getSenderIBAN());
+        writeString(out, transaction.getReceiverIBAN());
+        writeString(out, transaction.getCurrency());
+        writeString(out, transaction.getTransferType());
+        writeString(out, transaction.getCardNumber());
+        writeString(out, transaction.getCardHolder());
+        writeString(out, transaction.getAccountIBAN());
+        writeString(out, transaction.getCommerciant());
+        writeString(out, transaction.getEmail());
+        List<String> involvedAccounts = transaction.getInvolvedAccounts();
+        writeVarint(out, involvedAccounts != null ? involvedAccounts.size() + 1 : 0);
+        if (involvedAccounts != null) {
+            for (String iban : involvedAccounts) {
+                writeString(out, iban);
+            }
+        }
+        writeString(out, transaction.getError());
+        writeString(out, transaction.getPlan());
+        writeString(out, transaction.getSplitPaymentType());
+        List<Double> amountForUsers = transaction.getAmountForUsers();
+        writeVarint(out, amountForUsers != null ? amountForUsers.size() + 1 : 0);
+        if (amountForUsers != null) {
+            for (Double amount : amountForUsers) {
+                out.writeBoolean(amount != null);
+                if (amount != null) {
+                    out.writeDouble(amount);
+                }
+            }
+        }
+    }
+
+    private static void writeString(final DataOutputStream out, final String value)
+            throws IOException {
+        if (value == null) {
+            writeVarint(out, 0);
+            return;
+        }
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        writeVarint(out, bytes.length + 1);
+        out.write(bytes);
+    }
+
+    private static void writeVarint(final DataOutputStream out, final int value)
+            throws IOException {
+        int remaining = value;
+        while ((remaining & ~VARINT_LOW_BITS) != 0) {
+            out.writeByte((remaining & VARINT_LOW_BITS) | VARINT_MORE);
+            remaining >>>= VARINT_SHIFT;
+        }
+        out.writeByte(remaining);
+    }
+
+    private static String readString(final ByteBuffer record) {
+        int length = readVarint(record) - 1;
+        if (length < 0) {
+            return null;
+        }
+        String value = new String(record.array(), record.position(), length,
+                StandardCharsets.UTF_8);
+        record.position(record.position() + length);
+        return value;
+    }
+
+    private static List<String> readStrings(final ByteBuffer record) {
+        int size = readVarint(record) - 1;
+        if (size < 0) {
+            return null;
+        }
+        List<String> values = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            values.add(readString(record));
+        }
+        return values;
+    }
+
+    private static List<Double> readDoubles(final ByteBuffer record) {
+        int size = readVarint(record) - 1;
+        if (size < 0) {
+            return null;
+        }
+        List<Double> values = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            values.add(record.get() != 0 ? record.getDouble() : null);
+        }
+        return values;
+    }
+
+    private static int readVarint(final ByteBuffer record) {
+        int value = 0;
+        int shift = 0;
+        int current;
+        do {
+            current = record.get();
+            value |= (current & VARINT_LOW_BITS) << shift;
+            shift += VARINT_SHIFT;
+        } while ((current & VARINT_MORE) != 0);
+        return value;
+    }
+
+    /**
+     * Gets bytes of a run as a buffer positioned on them: a view of the page holding
+     * them, or a copy if they span several pages.
+     */
+    private ByteBuffer slice(final int[] runPages, final int offset, final int length) {
+        int start = offset % pageSize;
+        if (start + length <= pageSize) {
+            return ByteBuffer.wrap(page(runPages[offset / pageSize]), start, length);
+        }
+
+        byte[] bytes = new byte[length];
+        int copied = 0;
+        while (copied < length) {
+            int position = offset + copied;
+            int within = position % pageSize;
+            int count = Math.min(length - copied, pageSize - within);
+            System.arraycopy(page(runPages[position / pageSize]), within, bytes, copied, count);
+            copied += count;
+        }
+        return ByteBuffer.wrap(bytes);
+    }
+
+    private byte[] page(final int page) {
+        checkOpen();
+        CachedPage cached = cache.get(page % CACHED_PAGES);
+        if (cached != null && cached.page == page) {
+            return cached.bytes;
+        }
+
+        // The last page of the file may be shorter, the rest of it reads as zeros
+        byte[] bytes = new byte[pageSize];
+        ByteBuffer buffer = ByteBuffer.wrap(bytes);
+        long position = (long) page * pageSize;
+        try {
+            while (buffer.hasRemaining()) {
+                int read = channel.read(buffer, position + buffer.position());
+                if (read < 0) {
+                    break;
+                }
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot read transaction page " + page, e);
+        }
+
+        cache.set(page % CACHED_PAGES, new CachedPage(page, bytes));
+        return bytes;
+    }
+
+    private void open() {
+        try {
+            file = Files.createTempFile(directory, "transactions-", ".pages");
+            channel = FileChannel.open(file, StandardOpenOption.READ,
+                    StandardOpenOption.WRITE);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot create a transaction page file in "
+                    + directory, e);
+        }
+    }
+
+    private void checkOpen() {
+        if (closed) {
+            throw new IllegalStateException("The transaction store is closed");
+        }
+    }
+
+    /**
+     * Forgets the spilled transactions, closes and deletes the page file. The histories
+     * using the store must not be read afterwards.
+     */
+    @Override
+    public void close() throws IOException {
+        lock.lock();
+        try {
+            if (closed) {
+                return;
+            }
+            closed = true;
+            for (int i = 0; i < CACHED_PAGES; i++) {
+                cache.set(i, null);
+            }
+            freePages = new int[0];
+            freeCount = 0;
+            records = 0;
+            if (channel != null) {
+                channel.close();
+                Files.deleteIfExists(file);
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * A page read from the file.
+     */
+    private static final class CachedPage {
+        private final int page;
+        private final byte[] bytes;
+
+        CachedPage(final int page, final byte[] bytes) {
+            this.page = page;
+            this.bytes = bytes;
+        }
+    }
+}
@@ -4,6 +4,7 @@ import java.util.ArrayList;
 import java.util.Comparator;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.locks.ReentrantLock;
 
 import java.time.LocalDate;
 import java.time.Period;
@@ -11,7 +12,11 @@ import java.time.format.DateTimeFormatter;
 
 import org.poo.main.split.SplitPayment;
 import org.poo.main.accounts.Account;
+import org.poo.main.policy.PolicyEngine;
+import org.poo.main.tools.RenderedJson;
 import org.poo.main.transactions.Transaction;
+import org.poo.main.transactions.TransactionHistory;
+import org.poo.main.transactions.TransactionStore;
 
 /**
  * Represents a user in the banking system.
@@ -24,9 +29,15 @@ public final class User {
     private String birthDate;
     private String occupation;
     private String accountPlan;
+    private PolicyEngine policies; // The policies of the bank, which compile the plan
+    private int planId = PolicyEngine.UNKNOWN_PLAN; // Compiled id of the plan
     private List<Account> accounts; // Accounts linked to the user
-    private List<Transaction> transactions; // Transactions performed by the user
+    private final TransactionHistory transactions; // Transactions performed by the user
     private final List<SplitPayment> pendingTransactions; // Split payments pending of user
+    private volatile int version; // Changes of the user itself, not of its accounts
+    private final ReentrantLock renderLock = new ReentrantLock(); // Guards the rendering
+    private RenderedJson rendered; // The user as last printed by printUsers
+    private long renderedStamp; // The print stamp of the user when it was rendered
 
     private static final int MIN_AGE = 21;
 
@@ -38,7 +49,7 @@ public final class User {
         this.birthDate = birthDate;
         this.occupation = occupation;
         this.accounts = new ArrayList<>();
-        this.transactions = new ArrayList<>();
+        this.transactions = new TransactionHistory();
         this.pendingTransactions = new ArrayList<>();
 
         if ("student".equals(occupation)) {
@@ -54,6 +65,7 @@ public final class User {
 
     public void setFirstName(final String firstName) {
         this.firstName = firstName;
+        version++;
     }
 
     public String getLastName() {
@@ -62,6 +74,7 @@ public final class User {
 
     public void setLastName(final String lastName) {
         this.lastName = lastName;
+        version++;
     }
 
     public String getEmail() {
@@ -70,6 +83,7 @@ public final class User {
 
     public void setEmail(final String email) {
         this.email = email;
+        version++;
     }
 
     public String getBirthDate() {
@@ -92,14 +106,56 @@ public final class User {
         return accountPlan;
     }
 
+    /**
+     * Changes the plan of the user, compiling it against the policies of its bank.
+     *
+     * @param accountPlan the name of the plan
+     */
     public void setAccountPlan(final String accountPlan) {
         this.accountPlan = accountPlan;
+        compilePlan();
+        version++;
+    }
+
+    /**
+     * Gets the compiled id of the plan of the user.
+     *
+     * @return the plan id, or UNKNOWN_PLAN if the plan is not one of the policies of
+     *         the bank, or the user is not in a bank
+     */
+    public int getPlanId() {
+        return planId;
+    }
+
+    /**
+     * Compiles the plan of the user against the policies of its bank, now and whenever
+     * the plan changes. Called again when the bank loads new policies.
+     *
+     * @param policyEngine the policies of the bank
+     */
+    public void compilePlanWith(final PolicyEngine policyEngine) {
+        this.policies = policyEngine;
+        compilePlan();
+    }
+
+    private void compilePlan() {
+        planId = policies != null ? policies.planId(accountPlan) : PolicyEngine.UNKNOWN_PLAN;
     }
 
     public List<Transaction> getTransactions() {
         return transactions;
     }
 
+    /**
+     * Moves the older transactions of the user to a store, keeping the recent ones
+     * on the heap.
+     *
+     * @param store the store receiving the older transactions
+     */
+    public void spillTransactionsTo(final TransactionStore store) {
+        transactions.spillTo(store);
+    }
+
     /**
      * Adds an account to the user's account list.
      *
@@ -107,6 +163,7 @@ public final class User {
      */
     public void addAccount(final Account account) {
         accounts.add(account);
+        version++;
     }
 
     /**
@@ -116,12 +173,59 @@ public final class User {
      */
     public void removeAccount(final Account account) {
         accounts.remove(account);
+        version++;
     }
 
     public List<Account> getAccounts() {
         return accounts;
     }
 
+    /**
+     * Computes the print stamp of the user: its version and the sum of the versions of
+     * its accounts. The stamp changes whenever the user, its list of accounts or one of
+     * its accounts changes.
+     *
+     * @return the print stamp
+     */
+    public long getPrintStamp() {
+        int accountVersions = 0;
+        for (Account account : accounts) {
+            accountVersions += account.getVersion();
+        }
+        return (long) version << Integer.SIZE | Integer.toUnsignedLong(accountVersions);
+    }
+
+    /**
+     * Gets the user as last printed, if it has not changed since.
+     *
+     * @param printStamp the current print stamp of the user
+     * @return the rendered user, or null if it was never rendered or has changed
+     */
+    public RenderedJson getRendered(final long printStamp) {
+        renderLock.lock();
+        try {
+            return renderedStamp == printStamp ? rendered : null;
+        } finally {
+            renderLock.unlock();
+        }
+    }
+
+    /**
+     * Keeps the user as printed, to be reused until it changes.
+     *
+     * @param rendered the rendered user
+     * @param printStamp the print stamp of the user when it was rendered
+     */
+    public void setRendered(final RenderedJson rendered, final long printStamp) {
+        renderLock.lock();
+        try {
+            this.rendered = rendered;
+            this.renderedStamp = printStamp;
+        } finally {
+            renderLock.unlock();
+        }
+    }
+
     /**
      * Adds a transaction to the user's transaction list.
      *
@@ -142,10 +246,11 @@ public final class User {
         if (transaction == null) {
             return;
         }
-        int index = 0;
-        while (index < transactions.size()
-                && transactions.get(index).getTimestamp() <= transaction.getTimestamp()) {
-            index++;
+        // The list is sorted, search from the end to stay among the recent transactions
+        int index = transactions.size();
+        while (index > 0
+                && transactions.get(index - 1).getTimestamp() > transaction.getTimestamp()) {
+            index--;
         }
         transactions.add(index, transaction);
     }
@@ -153,18 +258,16 @@ public final class User {
     /**
      * Checks if the user meets the minimum age requirement.
      *
+     * @param currentDate the current date, as read from the clock of the bank
      * @return true if the user is at least 21 years old, false otherwise.
      */
-    public boolean hasMinAge() {
+    public boolean hasMinAge(final LocalDate currentDate) {
         // Formatting the birth date
         DateTimeFormatter formatter = DateTimeFormatter.ofPattern("yyyy-MM-dd");
 
         // Converting birthDate to LocalDate
         LocalDate birthDateLocal = LocalDate.parse(this.birthDate, formatter);
 
-        // Current Date
-        LocalDate currentDate = LocalDate.now();
-
         // Calculating the age
         int age = Period.between(birthDateLocal, currentDate).getYears();
 
@@ -210,8 +313,7 @@ public final class User {
         for (SplitPayment payment : pendingTransactions) {
             for (Account acc : accounts) {
                 String iban = acc.getIban();
-                if (payment.getIbanAcceptanceMap().containsKey(iban)
-                        && payment.getIbanAcceptanceMap().get(iban) == null) {
+                if (payment.isAwaitingResponse(iban)) {
                     // Found the first unaccepted transaction for the account and
                     // return the found split transaction and iban to accept
                     return Map.entry(payment, iban);
@@ -0,0 +1,159 @@
+package org.poo.utils;
+
+/**
+ * Packs IBANs and card numbers into longs, to key indexes by a primitive instead of
+ * a String.
+ * <p>
+ * The IBANs generated by the bank ("RO", 2 digits, "POOB", 16 digits) keep their
+ * 18 digits and the card numbers their 16 digits, in the low 60 bits of the key. Any
+ * other value (merchant or foreign IBANs, aliases) falls back to its id in the
+ * SymbolTable of the bank. The kind of the value is in the next two bits, so an IBAN, a card
+ * number and a symbol never get the same key, and a key is never 0 nor negative.
+ */
+public final class PackedId {
+    private static final int KIND_SHIFT = 60;
+    private static final long VALUE_MASK = (1L << KIND_SHIFT) - 1;
+    private static final long IBAN = 1L;
+    private static final long CARD_NUMBER = 2L;
+    private static final long SYMBOL = 3L;
+
+    private static final String COUNTRY = "RO";
+    private static final String BANK = "POOB";
+    private static final int CHECK_DIGITS = 2;
+    private static final int NUMBER_DIGITS = 16;
+    private static final int IBAN_LENGTH =
+            COUNTRY.length() + CHECK_DIGITS + BANK.length() + NUMBER_DIGITS;
+    private static final long NUMBER_SCALE = 10_000_000_000_000_000L;
+    private static final int DECIMAL = 10;
+
+    private PackedId() {
+        // Utility class
+    }
+
+    /**
+     * Packs an IBAN.
+     *
+     * @param iban the IBAN
+     * @param symbols the table of the bank
+     * @return its key
+     */
+    public static long ofIban(final String iban, final SymbolTable symbols) {
+        return packIban(iban, symbols, true);
+    }
+
+    /**
+     * Gets the key of an IBAN to look it up, without adding it to the symbol table.
+     *
+     * @param iban the IBAN
+     * @param symbols the table of the bank
+     * @return its key, or 0 if no key was ever made for it
+     */
+    public static long findIban(final String iban, final SymbolTable symbols) {
+        return packIban(iban, symbols, false);
+    }
+
+    /**
+     * Packs a card number.
+     *
+     * @param cardNumber the card number
+     * @param symbols the table of the bank
+     * @return its key
+     */
+    public static long ofCardNumber(final String cardNumber, final SymbolTable symbols) {
+        return packCardNumber(cardNumber, symbols, true);
+    }
+
+    /**
+     * Gets the key of a card number to look it up, without adding it to the symbol table.
+     *
+     * @param cardNumber the card number
+     * @param symbols the table of the bank
+     * @return its key, or 0 if no key was ever made for it
+     */
+    public static long findCardNumber(final String cardNumber, final SymbolTable symbols) {
+        return packCardNumber(cardNumber, symbols, false);
+    }
+
+    private static long packIban(final String iban, final SymbolTable symbols,
+                                 final boolean add) {
+        if (iban.length() == IBAN_LENGTH && iban.startsWith(COUNTRY)
+                && iban.startsWith(BANK, COUNTRY.length() + CHECK_DIGITS)) {
+            long check = digits(iban, COUNTRY.length(), CHECK_DIGITS);
+            long number = digits(iban, IBAN_LENGTH - NUMBER_DIGITS, NUMBER_DIGITS);
+            if (check >= 0 && number >= 0) {
+                return IBAN << KIND_SHIFT | check * NUMBER_SCALE + number;
+            }
+        }
+        return symbol(iban, symbols, add);
+    }
+
+    private static long packCardNumber(final String cardNumber, final SymbolTable symbols,
+                                       final boolean add) {
+        if (cardNumber.length() == NUMBER_DIGITS) {
+            long number = digits(cardNumber, 0, NUMBER_DIGITS);
+            if (number >= 0) {
+                return CARD_NUMBER << KIND_SHIFT | number;
+            }
+        }
+        return symbol(cardNumber, symbols, add);
+    }
+
+    /**
+     * Renders a key back to the IBAN or card number it was packed from.
+     *
+     * @param key the key
+     * @param symbols the table of the bank the key was made for
+     * @return the IBAN or card number
+     */
+    public static String toString(final long key, final SymbolTable symbols) {
+        long kind = key >>> KIND_SHIFT;
+        long value = key & VALUE_MASK;
+        if (kind == IBAN) {
+            StringBuilder sb = new StringBuilder(IBAN_LENGTH).append(COUNTRY);
+            appendDigits(sb, value / NUMBER_SCALE, CHECK_DIGITS);
+            sb.append(BANK);
+            appendDigits(sb, value % NUMBER_SCALE, NUMBER_DIGITS);
+            return sb.toString();
+        }
+        if (kind == CARD_NUMBER) {
+            return appendDigits(new StringBuilder(NUMBER_DIGITS), value, NUMBER_DIGITS)
+                    .toString();
+        }
+        if (kind == SYMBOL) {
+            return symbols.name((int) value);
+        }
+        throw new IllegalArgumentException("Not a packed id: " + key);
+    }
+
+    private static long symbol(final String value, final SymbolTable symbols,
+                               final boolean add) {
+        int id = add ? symbols.intern(value) : symbols.idOf(value);
+        return id >= 0 ? SYMBOL << KIND_SHIFT | id : 0;
+    }
+
+    /**
+     * Reads a run of decimal digits.
+     *
+     * @return their value, or -1 if one of them is not a digit
+     */
+    private static long digits(final String value, final int start, final int count) {
+        long number = 0;
+        for (int i = start; i < start + count; i++) {
+            int digit = value.charAt(i) - '0';
+            if (digit < 0 || digit >= DECIMAL) {
+                return -1;
+            }
+            number = number * DECIMAL + digit;
+        }
+        return number;
+    }
+
+    private static StringBuilder appendDigits(final StringBuilder sb, final long number,
+                                              final int count) {
+        String digits = Long.toString(number);
+        for (int i = digits.length(); i < count; i++) {
+            sb.append('0');
+        }
+        return sb.append(digits);
+    }
+}
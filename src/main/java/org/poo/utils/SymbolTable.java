@@ -0,0 +1,128 @@
+package org.poo.utils;
+
+import java.util.Arrays;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Canonical instances of the identifiers of the bank (IBANs, emails, card numbers,
+ * currencies, merchant names), each with a dense int id given in the order the
+ * identifiers are first seen.
+ * <p>
+ * Every bank has its own table (see AccountRegistry.getSymbols). It holds the
+ * identifiers the bank creates (users, merchants, currencies, generated IBANs and card
+ * numbers) and those of a trusted input parsed into it (see SymbolDeserializer), so
+ * every occurrence of such an identifier is the same String: it is kept once in memory
+ * however many commands, transactions and indexes hold it, and equals and hash lookups
+ * succeed on the reference check. Code that needs compact keys can use the ids instead,
+ * in arrays or primitive maps.
+ * <p>
+ * Identifiers are never removed, so the table grows with what the bank creates. The
+ * commands received by the servers are only looked up in it, never added.
+ */
+public final class SymbolTable {
+    private static final int INITIAL_CAPACITY = 1024;
+
+    private final Map<String, Symbol> symbols = new ConcurrentHashMap<>();
+    private volatile String[] names = new String[INITIAL_CAPACITY];
+    private int size;
+
+    /**
+     * Gets the canonical instance of an identifier, adding it if it is new.
+     *
+     * @param value the identifier, may be null
+     * @return the canonical instance, equal to the value
+     */
+    public String canonical(final String value) {
+        return value != null ? symbol(value).name : null;
+    }
+
+    /**
+     * Gets the canonical instance of an identifier without adding it.
+     *
+     * @param value the identifier
+     * @return the canonical instance, or the value itself if it was never interned
+     */
+    public String share(final String value) {
+        Symbol symbol = symbols.get(value);
+        return symbol != null ? symbol.name : value;
+    }
+
+    /**
+     * Gets the id of an identifier, adding it if it is new.
+     *
+     * @param value the identifier
+     * @return its id
+     */
+    public int intern(final String value) {
+        return symbol(value).id;
+    }
+
+    /**
+     * Gets the id of an identifier without adding it.
+     *
+     * @param value the identifier
+     * @return its id, or -1 if it was never interned
+     */
+    public int idOf(final String value) {
+        Symbol symbol = symbols.get(value);
+        return symbol != null ? symbol.id : -1;
+    }
+
+    /**
+     * Gets the identifier with an id.
+     *
+     * @param id the id
+     * @return the canonical instance of the identifier
+     */
+    public String name(final int id) {
+        String[] current = names;
+        if (id < 0 || id >= current.length || current[id] == null) {
+            throw new IllegalArgumentException("Unknown symbol " + id);
+        }
+        return current[id];
+    }
+
+    /**
+     * Gets the number of identifiers, their ids going from 0 to it.
+     *
+     * @return the number of identifiers
+     */
+    public synchronized int size() {
+        return size;
+    }
+
+    private Symbol symbol(final String value) {
+        Symbol symbol = symbols.get(value);
+        return symbol != null ? symbol : add(value);
+    }
+
+    private synchronized Symbol add(final String value) {
+        Symbol symbol = symbols.get(value);
+        if (symbol != null) {
+            return symbol;
+        }
+
+        if (size == names.length) {
+            names = Arrays.copyOf(names, size * 2);
+        }
+        symbol = new Symbol(size, value);
+        names[size] = value;
+        size++;
+        symbols.put(value, symbol);
+        return symbol;
+    }
+
+    /**
+     * An identifier and its id.
+     */
+    private static final class Symbol {
+        private final int id;
+        private final String name;
+
+        Symbol(final int id, final String name) {
+            this.id = id;
+            this.name = name;
+        }
+    }
+}
@@ -7,55 +7,87 @@ public final class Utils {
         // Checkstyle error free constructor
     }
 
-    private static final int IBAN_SEED = 1;
-    private static final int CARD_SEED = 2;
     private static final int DIGIT_BOUND = 10;
     private static final int DIGIT_GENERATION = 16;
     private static final String RO_STR = "RO";
     private static final String POO_STR = "POOB";
 
-
-    private static Random ibanRandom = new Random(IBAN_SEED);
-    private static Random cardRandom = new Random(CARD_SEED);
-
     /**
-     * Utility method for generating an IBAN code.
+     * Utility method for generating an IBAN code, one random digit at a time.
      *
+     * @param random the generator to draw the digits from
      * @return the IBAN as String
      */
-    public static String generateIBAN() {
-        StringBuilder sb = new StringBuilder(RO_STR);
+    public static String generateIBAN(final Random random) {
+        char[] iban = new char[RO_STR.length() * 2 + POO_STR.length() + DIGIT_GENERATION];
+        int length = copy(RO_STR, iban, 0);
         for (int i = 0; i < RO_STR.length(); i++) {
-            sb.append(ibanRandom.nextInt(DIGIT_BOUND));
+            iban[length++] = (char) ('0' + random.nextInt(DIGIT_BOUND));
         }
 
-        sb.append(POO_STR);
+        length = copy(POO_STR, iban, length);
         for (int i = 0; i < DIGIT_GENERATION; i++) {
-            sb.append(ibanRandom.nextInt(DIGIT_BOUND));
+            iban[length++] = (char) ('0' + random.nextInt(DIGIT_BOUND));
         }
 
-        return sb.toString();
+        return new String(iban);
     }
 
     /**
-     * Utility method for generating a card number.
+     * Utility method for generating a card number, one random digit at a time.
      *
+     * @param random the generator to draw the digits from
      * @return the card number as String
      */
-    public static String generateCardNumber() {
-        StringBuilder sb = new StringBuilder();
+    public static String generateCardNumber(final Random random) {
+        char[] cardNumber = new char[DIGIT_GENERATION];
         for (int i = 0; i < DIGIT_GENERATION; i++) {
-            sb.append(cardRandom.nextInt(DIGIT_BOUND));
+            cardNumber[i] = (char) ('0' + random.nextInt(DIGIT_BOUND));
         }
 
-        return sb.toString();
+        return new String(cardNumber);
     }
 
     /**
-     * Resets the seeds between runs.
+     * Utility method for building an IBAN code from its numbers.
+     *
+     * @param checkDigits the 2 digits after the country code
+     * @param number the 16 digits after the bank code
+     * @return the IBAN as String
      */
-    public static void resetRandom() {
-        ibanRandom = new Random(IBAN_SEED);
-        cardRandom = new Random(CARD_SEED);
+    public static String formatIBAN(final int checkDigits, final long number) {
+        char[] iban = new char[RO_STR.length() * 2 + POO_STR.length() + DIGIT_GENERATION];
+        int length = copy(RO_STR, iban, 0);
+        length = digits(checkDigits, iban, length, RO_STR.length());
+        length = copy(POO_STR, iban, length);
+        digits(number, iban, length, DIGIT_GENERATION);
+        return new String(iban);
+    }
+
+    /**
+     * Utility method for building a card number from its number.
+     *
+     * @param number the 16 digits of the card number
+     * @return the card number as String
+     */
+    public static String formatCardNumber(final long number) {
+        char[] cardNumber = new char[DIGIT_GENERATION];
+        digits(number, cardNumber, 0, DIGIT_GENERATION);
+        return new String(cardNumber);
+    }
+
+    private static int copy(final String value, final char[] target, final int start) {
+        value.getChars(0, value.length(), target, start);
+        return start + value.length();
+    }
+
+    private static int digits(final long number, final char[] target, final int start,
+                              final int count) {
+        long rest = number;
+        for (int i = start + count - 1; i >= start; i--) {
+            target[i] = (char) ('0' + rest % DIGIT_BOUND);
+            rest /= DIGIT_BOUND;
+        }
+        return start + count;
     }
 }
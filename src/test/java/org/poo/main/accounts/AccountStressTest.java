@@ -0,0 +1,79 @@
+package org.poo.main.accounts;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.LongAdder;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Hammers a few accounts from many threads with the balance operations the commands use:
+ * transfers through AccountLocks.transfer (sendMoney, withdrawSavings), lock-free card
+ * payments through Account.tryDebit and deposits. The balances start low, so debits are
+ * often refused and race with each other. The amounts are whole numbers, so the sums are
+ * exact. Checks that no balance is ever seen negative and that the total balance equals
+ * the initial one plus the deposits minus the payments.
+ */
+class AccountStressTest {
+    private static final double INITIAL_BALANCE = 100.0;
+    private static final int MAX_AMOUNT = 50;
+    private static final int OPERATIONS = 4; // transfer, transfer, payment, deposit
+
+    private static final int THREADS = 8;
+    private static final int ACCOUNTS = 4;
+    private static final int OPERATIONS_PER_THREAD = 100_000;
+
+    @Test
+    void concurrentTransfersPaymentsAndDepositsKeepTheBalancesConsistent()
+            throws InterruptedException {
+        Account[] accounts = new Account[ACCOUNTS];
+        for (int i = 0; i < ACCOUNTS; i++) {
+            accounts[i] = new ClassicAccount("RON", "user" + i + "@bank.ro", "RO" + i);
+            accounts[i].deposit(INITIAL_BALANCE);
+        }
+
+        LongAdder deposited = new LongAdder();
+        LongAdder paid = new LongAdder();
+        LongAdder overdrawn = new LongAdder();
+        Thread[] threads = new Thread[THREADS];
+        for (int t = 0; t < THREADS; t++) {
+            threads[t] = new Thread(() -> {
+                ThreadLocalRandom random = ThreadLocalRandom.current();
+                for (int i = 0; i < OPERATIONS_PER_THREAD; i++) {
+                    Account account = accounts[random.nextInt(ACCOUNTS)];
+                    int amount = 1 + random.nextInt(MAX_AMOUNT);
+                    switch (random.nextInt(OPERATIONS)) {
+                        case 0, 1 -> {
+                            Account receiver = accounts[random.nextInt(ACCOUNTS)];
+                            AccountLocks.transfer(account, amount, receiver, amount);
+                        }
+                        case 2 -> {
+                            if (account.tryDebit(amount)) {
+                                paid.add(amount);
+                            }
+                        }
+                        default -> {
+                            account.deposit(amount);
+                            deposited.add(amount);
+                        }
+                    }
+                    if (account.getBalance() < 0) {
+                        overdrawn.increment();
+                    }
+                }
+            });
+            threads[t].start();
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+
+        double total = 0;
+        for (Account account : accounts) {
+            total += account.getBalance();
+        }
+        assertEquals(INITIAL_BALANCE * ACCOUNTS + deposited.sum() - paid.sum(), total);
+        assertEquals(0, overdrawn.sum(), "negative balances seen");
+    }
+}